@@ -1,6 +1,12 @@
 package org.camunda.bpm.externaltask.cdi;
 
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Lock;
@@ -9,11 +15,17 @@ import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Timeout;
 import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
 import javax.ejb.TimerService;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
 import javax.transaction.TransactionSynchronizationRegistry;
@@ -58,11 +70,34 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
     
     @Inject
     private ProcessEngine processEngine;
+    
+    private ManagedExecutorService managedExecutorService;
+    
+    /**
+     * Milliseconds a wake-up may be delayed to be merged with other wake-ups
+     * due within the same window.
+     */
+    protected long wakeUpCoalescingWindow = 1000;
+    
+    /*
+     * Due times of the timers pending per registration key.
+     */
+    private final Map<String, NavigableSet<Long>> pendingWakeUps = new ConcurrentHashMap<>();
 
     @PostConstruct
     private void configure() {
         
         configurator.configure(this);
+        
+        final String managedExecutorServiceName = configurator.getManagedExecutorService();
+        if (managedExecutorServiceName != null) {
+            try {
+                managedExecutorService = InitialContext.doLookup(managedExecutorServiceName);
+            } catch (NamingException e) {
+                throw new IllegalStateException("Could not lookup managed executor service '"
+                        + managedExecutorServiceName + "'", e);
+            }
+        }
 
         getProcessEngineConfiguration()
                 .getJobHandlers()
@@ -70,6 +105,13 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
 
     }
     
+    @PreDestroy
+    private void destroy() {
+        
+        shutdown();
+        
+    }
+    
     @Override
     protected ProcessEngineConfigurationImpl getProcessEngineConfiguration() {
 
@@ -111,14 +153,18 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
     public void fetchAndLockExternalTasks() {
         
-        registrations.keySet()
-                .forEach(super::fetchAndLockExternalTasks);
+        sweepExternalTasks();
         
     }
     
     @Override
     protected void doAfterTransaction(Runnable action) {
         
+        // processors may run without transaction
+        if (txSyncRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            processAsynchronously(action);
+            return;
+        }
         txSyncRegistry.registerInterposedSynchronization(new Synchronization() {
             @Override
             public void beforeCompletion() {
@@ -135,10 +181,53 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
         
     }
     
+    @Override
+    protected void doAfterTransactionCompletion(Runnable action) {
+        
+        if (txSyncRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            processAsynchronously(action);
+            return;
+        }
+        txSyncRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // ignore this event
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                processAsynchronously(action);
+            }
+        });
+        
+    }
+    
+    @Override
+    protected boolean isTransactionActive() {
+        
+        return txSyncRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION;
+        
+    }
+    
     @Override
     protected void processAsynchronously(Runnable action) {
         
-        helper.processAsynchronously(action);
+        if (managedExecutorService != null) {
+            managedExecutorService.execute(() -> helper.processTransactional(action));
+        } else {
+            helper.processAsynchronously(action);
+        }
+        
+    }
+
+    @Override
+    protected void processAsynchronouslyWithoutTransaction(Runnable action) {
+        
+        if (managedExecutorService != null) {
+            managedExecutorService.execute(action);
+        } else {
+            helper.processAsynchronouslyWithoutTransaction(action);
+        }
         
     }
 
@@ -146,14 +235,48 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
     public void fetchAndLockExternalTasks(Timer timer) {
         
-        super.fetchAndLockExternalTasks((String) timer.getInfo());
+        final String key = (String) timer.getInfo();
+        final NavigableSet<Long> wakeUps = pendingWakeUps.get(key);
+        if (wakeUps != null) {
+            // timers fire in the order of their due times
+            synchronized (wakeUps) {
+                wakeUps.pollFirst();
+            }
+        }
+        super.fetchAndLockExternalTasks(key);
         
     }
     
+    /*
+     * Wake-ups are not persisted because they are lost only if the node fails,
+     * in which case the sweep picks up the tasks. Retries of many tasks of a key
+     * usually are due at about the same time, so wake-ups are rounded up to the
+     * coalescing window and only one timer is created per window.
+     */
     @Override
     protected void scheduleFetchAndLockExternalTasks(long timeout, String key) {
         
-        timerService.createTimer(timeout, key);
+        final long now = System.currentTimeMillis();
+        long dueAt = now + timeout;
+        if (wakeUpCoalescingWindow > 0) {
+            dueAt = ((dueAt + wakeUpCoalescingWindow - 1) / wakeUpCoalescingWindow) * wakeUpCoalescingWindow;
+        }
+        final NavigableSet<Long> wakeUps = pendingWakeUps.computeIfAbsent(key, k -> new TreeSet<>());
+        synchronized (wakeUps) {
+            if (!wakeUps.add(dueAt)) {
+                return;
+            }
+        }
+        timerService.createSingleActionTimer(dueAt - now, new TimerConfig(key, false));
+        
+    }
+    
+    /**
+     * Pickup external tasks waiting for processors registered at startup.
+     */
+    public void onApplicationInitialized(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        
+        onApplicationReady();
         
     }
     
@@ -167,7 +290,9 @@ public class CdiExternalTaskHandler extends org.camunda.bpm.externaltask.Externa
                 .getBpmnModelInstance(businessProcessEvent.getProcessDefinition().getId())
                 .getModelElementById(businessProcessEvent.getActivityId());
         
-        super.onTaskEvent(businessProcessEvent.getProcessDefinition().getKey(), bpmnElement);
+        super.onTaskEvent(businessProcessEvent.getProcessDefinition().getKey(),
+                businessProcessEvent.getProcessInstanceId(),
+                bpmnElement);
         
     }
     
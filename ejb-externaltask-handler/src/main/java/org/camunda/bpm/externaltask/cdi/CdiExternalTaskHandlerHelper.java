@@ -18,4 +18,17 @@ public class CdiExternalTaskHandlerHelper {
         task.run();
     }
     
+    @SuppressWarnings("static-method")
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void processTransactional(final Runnable task) {
+        task.run();
+    }
+    
+    @SuppressWarnings("static-method")
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void processAsynchronouslyWithoutTransaction(final Runnable task) {
+        task.run();
+    }
+    
 }
@@ -7,9 +7,13 @@ import javax.ejb.LockType;
 import javax.ejb.Singleton;
 
 import org.camunda.bpm.externaltask.spi.ExternalTaskAsyncProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchProcessingRegistration;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncBatchRequestProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncRequestProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncResponseProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerContextProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerSyncProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
 
@@ -38,6 +42,26 @@ public class CdiExternalTaskHandlerSpi implements ExternalTaskHandler {
         return delegate.registerExternalTaskProcessor(processDefinitionKey, topic, processor);
     }
 
+    @Override
+    public ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerContextProcessor processor) {
+        return delegate.registerExternalTaskProcessor(processDefinitionKey, topic, processor);
+    }
+
+    @Override
+    public ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> registerExternalTaskBatchProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerBatchProcessor processor) {
+        return delegate.registerExternalTaskBatchProcessor(processDefinitionKey, topic, processor);
+    }
+
+    @Override
+    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskBatchProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerAsyncBatchRequestProcessor requestProcessor,
+            ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+        return delegate.registerExternalTaskBatchProcessor(processDefinitionKey, topic, requestProcessor,
+                responseProcessor);
+    }
+
     @Override
     public <R, I> R handleAsyncInput(String correlationId, I input) throws Exception {
         return delegate.handleAsyncInput(correlationId, input);
@@ -53,4 +77,44 @@ public class CdiExternalTaskHandlerSpi implements ExternalTaskHandler {
         delegate.setWorkerId(workerId);
     }
 
+    @Override
+    public void setMaxInFlight(int maxInFlight) {
+        delegate.setMaxInFlight(maxInFlight);
+    }
+
+    @Override
+    public void setShutdownGracePeriod(long shutdownGracePeriod) {
+        delegate.setShutdownGracePeriod(shutdownGracePeriod);
+    }
+
+    @Override
+    public void setSingletonSweep(boolean singletonSweep) {
+        delegate.setSingletonSweep(singletonSweep);
+    }
+
+    @Override
+    public void setStartupRecovery(boolean startupRecovery) {
+        delegate.setStartupRecovery(startupRecovery);
+    }
+
+    @Override
+    public void setTransactionalProcessing(boolean transactionalProcessing) {
+        delegate.setTransactionalProcessing(transactionalProcessing);
+    }
+
+    @Override
+    public void setOptimisticLockingRetries(int retries) {
+        delegate.setOptimisticLockingRetries(retries);
+    }
+
+    @Override
+    public void setProcessInstanceLanes(int lanes) {
+        delegate.setProcessInstanceLanes(lanes);
+    }
+
+    @Override
+    public void setPartitionedFetching(boolean partitionedFetching) {
+        delegate.setPartitionedFetching(partitionedFetching);
+    }
+
 }
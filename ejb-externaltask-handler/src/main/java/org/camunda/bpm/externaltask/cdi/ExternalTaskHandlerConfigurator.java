@@ -6,4 +6,19 @@ public interface ExternalTaskHandlerConfigurator {
 
     void configure(ExternalTaskHandler handler);
     
+    /**
+     * Tasks are processed by asynchronous EJB invocations by default, whose
+     * concurrency is governed by the container's default pool. A managed
+     * executor service configured in the container allows to size the pool and
+     * the queue for external tasks separately. Submissions rejected are unlocked
+     * and fetched again later.
+     * 
+     * @return The JNDI name of a ManagedExecutorService, e.g.
+     *         <i>java:jboss/ee/concurrency/executor/externaltasks</i>, or null to
+     *         use asynchronous EJB invocations
+     */
+    default String getManagedExecutorService() {
+        return null;
+    }
+    
 }
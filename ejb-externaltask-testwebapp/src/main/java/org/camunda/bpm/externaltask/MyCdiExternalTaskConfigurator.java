@@ -8,6 +8,8 @@ import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
 @ApplicationScoped
 public class MyCdiExternalTaskConfigurator implements ExternalTaskHandlerConfigurator {
 
+    public static final String MANAGED_EXECUTOR_SERVICE_PROPERTY = "externaltask.managed-executor-service";
+
     @Override
     public void configure(final ExternalTaskHandler handler) {
         
@@ -16,4 +18,16 @@ public class MyCdiExternalTaskConfigurator implements ExternalTaskHandlerConfigu
         
     }
     
+    /**
+     * Set the system property <i>externaltask.managed-executor-service</i> to the
+     * JNDI name of a managed executor service, e.g.
+     * <i>java:comp/DefaultManagedExecutorService</i>, to run the tests on it.
+     */
+    @Override
+    public String getManagedExecutorService() {
+        
+        return System.getProperty(MANAGED_EXECUTOR_SERVICE_PROPERTY);
+        
+    }
+    
 }
@@ -4,13 +4,20 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
+import javax.ejb.Timer;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 
@@ -36,14 +43,26 @@ public class TestApi {
     @EJB
     private ExternalTaskHandler externalTaskHandler;
     
+    @Resource
+    private TransactionSynchronizationRegistry txSyncRegistry;
+    
+    @EJB
+    private WakeUpTimers wakeUpTimers;
+    
     private static int[] called = new int[] { 0 };
     
+    private static String[] processorThread = new String[] { null };
+    
+    private static boolean[] processorTransactional = new boolean[] { false };
+    
     @PostConstruct
     public void init() {
         
         externalTaskHandler.registerExternalTaskProcessor("ExternalTaskProcess", "TestTopic",
                 (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
                     
+                    processorThread[0] = Thread.currentThread().getName();
+                    processorTransactional[0] = txSyncRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION;
                     called[0]++;
                     synchronized (called) {
                         called.notify();
@@ -171,6 +190,107 @@ public class TestApi {
         
     }
 
+    @GET
+    @Path("/managed-executor")
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public String testManagedExecutor() throws Exception {
+        
+        final String managedExecutorServiceName = System
+                .getProperty(MyCdiExternalTaskConfigurator.MANAGED_EXECUTOR_SERVICE_PROPERTY);
+        if (managedExecutorServiceName == null) {
+            return "skipped: system property '"
+                    + MyCdiExternalTaskConfigurator.MANAGED_EXECUTOR_SERVICE_PROPERTY + "' not set";
+        }
+        
+        called[0] = 0;
+        processorThread[0] = null;
+        
+        final ProcessInstance instance = runtimeService.startProcessInstanceByKey("ExternalTaskProcess");
+        
+        synchronized (called) {
+            try {
+                called.wait(5000);
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+        
+        Assert.assertTrue("processor not called!", called[0] == 1);
+        
+        // threads of one executor differ by their number only
+        final ManagedExecutorService managedExecutorService = InitialContext.doLookup(managedExecutorServiceName);
+        final String executorThread = managedExecutorService
+                .submit(() -> Thread.currentThread().getName())
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("processor not run by the managed executor service",
+                executorThread.replaceAll("\\d+$", ""),
+                processorThread[0].replaceAll("\\d+$", ""));
+        Assert.assertTrue("processor not run in a transaction", processorTransactional[0]);
+        
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(instance.getId())
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        
+        return "passed";
+        
+    }
+    
+    @GET
+    @Path("/wake-ups")
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public String testWakeUps() {
+        
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("retry", Boolean.TRUE);
+
+        called[0] = 0;
+        
+        final List<String> processInstanceIds = new LinkedList<>();
+        for (int i = 0; i < 5; ++i) {
+            processInstanceIds.add(runtimeService
+                    .startProcessInstanceByKey("ExternalTaskProcess", variables)
+                    .getId());
+        }
+        
+        final long firstAttempts = System.currentTimeMillis() + 900;
+        while ((called[0] < processInstanceIds.size())
+                && (System.currentTimeMillis() < firstAttempts)) {
+            synchronized (called) {
+                try {
+                    called.wait(100);
+                } catch (InterruptedException e) {
+                    Assert.fail("Interrupted");
+                }
+            }
+        }
+        Assert.assertEquals("processor not called!", processInstanceIds.size(), called[0]);
+        
+        // five retries due one second later are due within two windows at most
+        final List<Timer> wakeUps = wakeUpTimers.getWakeUps("ExternalTaskProcess", "TestTopic");
+        Assert.assertTrue("retries not coalesced: " + wakeUps.size() + " timers",
+                !wakeUps.isEmpty() && (wakeUps.size() <= 2));
+        wakeUps.forEach(timer -> Assert.assertFalse("wake-up persisted", timer.isPersistent()));
+        
+        // all retries done, so they do not interfere with other tests
+        final long deadline = System.currentTimeMillis() + 10000;
+        while ((processInstanceIds.stream()
+                        .filter(id -> runtimeService.createIncidentQuery().processInstanceId(id).count() > 0)
+                        .count() < processInstanceIds.size())
+                && (System.currentTimeMillis() < deadline)) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+        Assert.assertEquals("retries not run", 3 * processInstanceIds.size(), called[0]);
+        
+        return "passed";
+        
+    }
+    
     private static Map<String, Object> variables(String... variables) {
         
         final Map<String, Object> result = new HashMap<>();
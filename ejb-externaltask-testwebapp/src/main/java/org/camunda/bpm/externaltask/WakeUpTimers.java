@@ -0,0 +1,44 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerService;
+
+/**
+ * Lists the timers created by the external task handler, which is packaged in
+ * the same module.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class WakeUpTimers {
+
+    @Resource
+    private TimerService timerService;
+    
+    public List<Timer> getWakeUps(final String processDefinitionKey, final String topic) {
+        
+        final String key = processDefinitionKey + "#" + topic;
+        return timerService.getAllTimers()
+                .stream()
+                .filter(timer -> key.equals(timer.getInfo()))
+                .collect(Collectors.toList());
+        
+    }
+    
+    /*
+     * Containers provide a functional timer service only to beans having a
+     * timeout method.
+     */
+    @Timeout
+    public void timeout(final Timer timer) {
+        // never scheduled
+    }
+    
+}
@@ -0,0 +1,21 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+/**
+ * Boots a process engine on H2 together with the handler, runs the configured
+ * scenarios and exits once the report is written.
+ */
+@SpringBootApplication
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestApplication {
+
+    public static void main(final String[] args) {
+
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Compares the report of a run with the report of a previous run taken as
+ * baseline. A scenario regresses if its throughput dropped or its p99 latency
+ * rose by more than the given percentage. A baseline lacking scenarios or one
+ * of these metrics is a violation as well, so the gate cannot pass vacuously.
+ */
+public class LoadTestBaseline {
+
+    private final JsonNode baseline;
+
+    private final List<String> violations = new ArrayList<>();
+
+    public LoadTestBaseline(final JsonNode baseline) {
+
+        this.baseline = baseline;
+
+    }
+
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @param report             The report of this run, read back as JSON
+     * @param maxThroughputDrop  Percentage by which the throughput may drop
+     * @param maxLatencyIncrease Percentage by which the p99 latency may rise
+     * @return The comparison per scenario, to be added to the report
+     */
+    public Map<String, Object> compare(final JsonNode report, final double maxThroughputDrop,
+            final double maxLatencyIncrease) {
+
+        if (!baseline.path("configuration").equals(report.path("configuration"))) {
+            throw new IllegalStateException("The baseline was recorded with a different configuration: "
+                    + baseline.path("configuration"));
+        }
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        if (baseline.path("scenarios").size() == 0) {
+            violations.add("baseline: no scenarios recorded");
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> it = baseline.path("scenarios").fields(); it.hasNext();) {
+            final Map.Entry<String, JsonNode> expected = it.next();
+            final String scenario = expected.getKey();
+            final JsonNode actual = report.path("scenarios").path(scenario);
+            if (actual.isMissingNode()) {
+                violations.add(scenario + ": not run");
+                continue;
+            }
+
+            if (!isMeasured(expected.getValue().path("throughput"))
+                    || !isMeasured(expected.getValue().path("latency").path("p99"))) {
+                violations.add(scenario + ": baseline has no throughput or p99 latency, record it again");
+                continue;
+            }
+            if (!actual.path("throughput").isNumber()
+                    || !actual.path("latency").path("p99").isNumber()) {
+                violations.add(scenario + ": no throughput or p99 latency measured");
+                continue;
+            }
+
+            final double throughputChange = change(expected.getValue().path("throughput"),
+                    actual.path("throughput"));
+            final double latencyChange = change(expected.getValue().path("latency").path("p99"),
+                    actual.path("latency").path("p99"));
+            if (-throughputChange > maxThroughputDrop) {
+                violations.add(String.format("%s: throughput dropped by %.1f%% (%s -> %s per second)", scenario,
+                        -throughputChange, expected.getValue().path("throughput"), actual.path("throughput")));
+            }
+            if (latencyChange > maxLatencyIncrease) {
+                violations.add(String.format("%s: p99 latency rose by %.1f%% (%s -> %s ms)", scenario,
+                        latencyChange, expected.getValue().path("latency").path("p99"),
+                        actual.path("latency").path("p99")));
+            }
+
+            final Map<String, Object> comparison = new LinkedHashMap<>();
+            comparison.put("throughputChange", Math.round(throughputChange * 10) / 10.0);
+            comparison.put("p99Change", Math.round(latencyChange * 10) / 10.0);
+            result.put(scenario, comparison);
+        }
+
+        return result;
+
+    }
+
+    private static boolean isMeasured(final JsonNode metric) {
+
+        return metric.isNumber()
+                && (metric.asDouble() > 0);
+
+    }
+
+    /**
+     * @return The change in percent
+     */
+    private static double change(final JsonNode expected, final JsonNode actual) {
+
+        return (actual.asDouble() - expected.asDouble()) * 100 / expected.asDouble();
+
+    }
+
+}
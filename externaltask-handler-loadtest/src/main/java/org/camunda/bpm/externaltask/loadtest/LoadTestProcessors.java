@@ -0,0 +1,101 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.externaltask.spi.RetryableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Processors simulating work by sleeping for a random time between the
+ * configured minimum and maximum latency. Invocations fail at the configured
+ * rate. Responses to async requests are sent by a simulated remote system after
+ * the configured delay.
+ */
+@Component
+public class LoadTestProcessors {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestProcessors.class);
+
+    private static final int MAX_RETRIES = 3;
+
+    private static final long RETRY_TIMEOUT = 1000;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    private LoadTestProperties properties;
+
+    private final ScheduledExecutorService remoteSystem = Executors.newScheduledThreadPool(2);
+
+    public void register(final LoadTestScenario scenario) {
+
+        switch (scenario) {
+        case SEQUENTIAL:
+        case PARALLEL:
+            externalTaskHandler.registerExternalTaskProcessor(scenario.getProcessDefinitionKey(), scenario.getTopic(),
+                    (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                        work(retries);
+                        return Collections.singletonMap(activityId, Boolean.TRUE);
+                    });
+            break;
+        case ASYNC:
+            externalTaskHandler.<Void, String>registerExternalTaskProcessor(scenario.getProcessDefinitionKey(),
+                    scenario.getTopic(),
+                    (correlationId, processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                        work(retries);
+                        remoteSystem.schedule(() -> respond(correlationId),
+                                properties.getAsyncResponseDelay(), TimeUnit.MILLISECONDS);
+                        return null;
+                    },
+                    (processInstanceId, businessKey, activityId, executionId, retries, correlationId, input,
+                            variablesToBeSet) -> {
+                        variablesToBeSet.put("response", input);
+                        return null;
+                    });
+            break;
+        default:
+            throw new IllegalStateException("Unsupported scenario " + scenario);
+        }
+
+    }
+
+    private void work(final Integer retries) throws RetryableException, InterruptedException {
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        Thread.sleep(properties.getLatencyMin()
+                + random.nextLong(Math.max(1, properties.getLatencyMax() - properties.getLatencyMin() + 1)));
+        if (random.nextDouble() < properties.getFailureRate()) {
+            throw new RetryableException("Synthetic failure", MAX_RETRIES, retries, RETRY_TIMEOUT);
+        }
+
+    }
+
+    private void respond(final String correlationId) {
+
+        try {
+            externalTaskHandler.handleAsyncInput(correlationId, "response");
+        } catch (Exception e) {
+            logger.warn("Could not respond to async request '{}'", correlationId, e);
+        }
+
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        remoteSystem.shutdownNow();
+
+    }
+
+}
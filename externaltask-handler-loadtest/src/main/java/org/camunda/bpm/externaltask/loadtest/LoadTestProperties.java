@@ -0,0 +1,219 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Parameters of a load test run. Rates are given per scenario, durations in
+ * seconds and latencies in milliseconds.
+ */
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    /**
+     * The scenarios to be run side by side.
+     */
+    private List<LoadTestScenario> scenarios = new ArrayList<>(Arrays.asList(LoadTestScenario.values()));
+
+    /**
+     * Process instances started per second and scenario.
+     */
+    private double rate = 10;
+
+    /**
+     * Seconds process instances are started.
+     */
+    private int duration = 60;
+
+    /**
+     * Seconds at the beginning of the run which are not measured.
+     */
+    private int warmup = 10;
+
+    /**
+     * Seconds to wait for started process instances to complete.
+     */
+    private int drainTimeout = 60;
+
+    /**
+     * Number of external tasks of the sequential scenario.
+     */
+    private int chainLength = 3;
+
+    /**
+     * Number of parallel external tasks of the fan-out scenario.
+     */
+    private int fanOut = 4;
+
+    private long latencyMin = 5;
+
+    private long latencyMax = 20;
+
+    /**
+     * Share of processor invocations failing with a retryable exception. A
+     * task failing four times in a row raises an incident.
+     */
+    private double failureRate = 0;
+
+    /**
+     * Milliseconds after which the simulated remote system responds to an async
+     * request.
+     */
+    private long asyncResponseDelay = 50;
+
+    private String reportFile = "target/loadtest-report.json";
+
+    /**
+     * The report of a previous run to compare this run with or null.
+     */
+    private String baselineFile;
+
+    /**
+     * Replace the baseline by the report of this run instead of comparing.
+     */
+    private boolean updateBaseline;
+
+    /**
+     * Percentage by which a scenario's throughput may drop compared to the
+     * baseline.
+     */
+    private double maxThroughputDrop = 20;
+
+    /**
+     * Percentage by which a scenario's p99 latency may rise compared to the
+     * baseline.
+     */
+    private double maxLatencyIncrease = 20;
+
+    public List<LoadTestScenario> getScenarios() {
+        return scenarios;
+    }
+
+    public void setScenarios(List<LoadTestScenario> scenarios) {
+        this.scenarios = scenarios;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    public int getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public void setDrainTimeout(int drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public int getChainLength() {
+        return chainLength;
+    }
+
+    public void setChainLength(int chainLength) {
+        this.chainLength = chainLength;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public long getLatencyMin() {
+        return latencyMin;
+    }
+
+    public void setLatencyMin(long latencyMin) {
+        this.latencyMin = latencyMin;
+    }
+
+    public long getLatencyMax() {
+        return latencyMax;
+    }
+
+    public void setLatencyMax(long latencyMax) {
+        this.latencyMax = latencyMax;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public long getAsyncResponseDelay() {
+        return asyncResponseDelay;
+    }
+
+    public void setAsyncResponseDelay(long asyncResponseDelay) {
+        this.asyncResponseDelay = asyncResponseDelay;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    public String getBaselineFile() {
+        return baselineFile;
+    }
+
+    public void setBaselineFile(String baselineFile) {
+        this.baselineFile = baselineFile;
+    }
+
+    public boolean isUpdateBaseline() {
+        return updateBaseline;
+    }
+
+    public void setUpdateBaseline(boolean updateBaseline) {
+        this.updateBaseline = updateBaseline;
+    }
+
+    public double getMaxThroughputDrop() {
+        return maxThroughputDrop;
+    }
+
+    public void setMaxThroughputDrop(double maxThroughputDrop) {
+        this.maxThroughputDrop = maxThroughputDrop;
+    }
+
+    public double getMaxLatencyIncrease() {
+        return maxLatencyIncrease;
+    }
+
+    public void setMaxLatencyIncrease(double maxLatencyIncrease) {
+        this.maxLatencyIncrease = maxLatencyIncrease;
+    }
+
+}
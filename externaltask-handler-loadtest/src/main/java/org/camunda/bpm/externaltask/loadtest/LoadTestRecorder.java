@@ -0,0 +1,99 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the point in time each process instance was triggered and completed.
+ * Instances are correlated by their business key, since the end event's
+ * listener may run before the process instance's id is known to the starting
+ * thread.
+ */
+@Component("loadTestRecorder")
+public class LoadTestRecorder {
+
+    private static class Trigger {
+
+        private final LoadTestScenario scenario;
+
+        private final long triggered;
+
+        private Trigger(final LoadTestScenario scenario, final long triggered) {
+
+            this.scenario = scenario;
+            this.triggered = triggered;
+
+        }
+
+    }
+
+    /**
+     * Completions of one scenario.
+     */
+    public static class Completions {
+
+        private final AtomicInteger started = new AtomicInteger();
+
+        private final List<long[]> completed = Collections.synchronizedList(new ArrayList<>());
+
+        public int getStarted() {
+            return started.get();
+        }
+
+        /**
+         * @return Pairs of the trigger's and the completion's nano time
+         */
+        public List<long[]> getCompleted() {
+            synchronized (completed) {
+                return new ArrayList<>(completed);
+            }
+        }
+
+    }
+
+    private final Map<String, Trigger> pending = new ConcurrentHashMap<>();
+
+    private final Map<LoadTestScenario, Completions> completions = new ConcurrentHashMap<>();
+
+    public void triggered(final String businessKey, final LoadTestScenario scenario) {
+
+        pending.put(businessKey, new Trigger(scenario, System.nanoTime()));
+        getCompletions(scenario).started.incrementAndGet();
+
+    }
+
+    public void failedToTrigger(final String businessKey) {
+
+        final Trigger trigger = pending.remove(businessKey);
+        if (trigger != null) {
+            getCompletions(trigger.scenario).started.decrementAndGet();
+        }
+
+    }
+
+    public void completed(final DelegateExecution execution) {
+
+        final Trigger trigger = pending.remove(execution.getProcessBusinessKey());
+        if (trigger == null) {
+            return;
+        }
+        getCompletions(trigger.scenario).completed.add(new long[] { trigger.triggered, System.nanoTime() });
+
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    public Completions getCompletions(final LoadTestScenario scenario) {
+        return completions.computeIfAbsent(scenario, s -> new Completions());
+    }
+
+}
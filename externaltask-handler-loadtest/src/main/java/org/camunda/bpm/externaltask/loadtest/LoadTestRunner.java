@@ -0,0 +1,308 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.repository.Deployment;
+import org.camunda.bpm.engine.repository.DeploymentBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Deploys the models of the configured scenarios, starts process instances at
+ * the configured rate and waits for them to complete. Process instances
+ * triggered during the warm-up are processed but not measured. The report is
+ * logged and written as JSON to the configured file. If a baseline is
+ * configured, the run fails on regressions compared to it.
+ */
+@Component
+public class LoadTestRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final long TICK = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private LoadTestProperties properties;
+
+    @Autowired
+    private LoadTestProcessors processors;
+
+    @Autowired
+    private LoadTestRecorder recorder;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Override
+    public void run(final ApplicationArguments args) throws Exception {
+
+        if (properties.getWarmup() >= properties.getDuration()) {
+            throw new IllegalArgumentException("The warm-up has to be shorter than the duration of the load test");
+        }
+
+        final List<LoadTestScenario> scenarios = properties.getScenarios();
+        final Map<LoadTestScenario, String> processDefinitionIds = deploy(scenarios);
+        scenarios.forEach(processors::register);
+
+        final long statementsBefore = statementCounter.getStatements();
+        final long start = System.nanoTime();
+        final long warmupEnd = start + TimeUnit.SECONDS.toNanos(properties.getWarmup());
+        final long end = start + TimeUnit.SECONDS.toNanos(properties.getDuration());
+
+        logger.info("Starting {} process instances per second and scenario for {} seconds",
+                properties.getRate(), properties.getDuration());
+        trigger(scenarios, start, end);
+
+        final long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getDrainTimeout());
+        while ((recorder.getPending() > 0) && (System.nanoTime() < drainDeadline)) {
+            Thread.sleep(TICK);
+        }
+        if (recorder.getPending() > 0) {
+            logger.warn("{} process instances did not complete within the drain timeout", recorder.getPending());
+        }
+
+        final Map<String, Object> report = report(scenarios, processDefinitionIds,
+                statementCounter.getStatements() - statementsBefore, warmupEnd, end);
+        final List<String> violations = compareWithBaseline(report);
+        write(report, properties.getReportFile());
+        logger.info("Load test report written to {}", new File(properties.getReportFile()).getAbsolutePath());
+
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Performance regressed compared to the baseline: " + violations);
+        }
+
+    }
+
+    /**
+     * Adds the comparison to the report unless the baseline is to be replaced by
+     * the report or no baseline was recorded yet.
+     * 
+     * @return The regressions found
+     */
+    private List<String> compareWithBaseline(final Map<String, Object> report) throws IOException {
+
+        if (properties.getBaselineFile() == null) {
+            return Collections.emptyList();
+        }
+
+        if (properties.isUpdateBaseline()) {
+            write(report, properties.getBaselineFile());
+            logger.info("Baseline {} updated", properties.getBaselineFile());
+            return Collections.emptyList();
+        }
+
+        final File baselineFile = new File(properties.getBaselineFile());
+        if (!baselineFile.exists()) {
+            logger.warn("No baseline recorded at {}, skipping the comparison. Record one with the "
+                    + "property loadtest.update-baseline on the reference machine.", baselineFile.getAbsolutePath());
+            report.put("comparison", "skipped: no baseline recorded");
+            return Collections.emptyList();
+        }
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(objectMapper.readTree(baselineFile));
+        // read back like the baseline, so numbers compare equal regardless of their Java type
+        report.put("comparison", baseline.compare(objectMapper.readTree(objectMapper.writeValueAsString(report)),
+                properties.getMaxThroughputDrop(), properties.getMaxLatencyIncrease()));
+        report.put("regressions", baseline.getViolations());
+        baseline.getViolations().forEach(violation -> logger.error("Regression: {}", violation));
+        return baseline.getViolations();
+
+    }
+
+    private void write(final Map<String, Object> report, final String fileName) throws IOException {
+
+        final File file = new File(fileName);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+
+    }
+
+    private Map<LoadTestScenario, String> deploy(final List<LoadTestScenario> scenarios) {
+
+        final DeploymentBuilder deploymentBuilder = repositoryService
+                .createDeployment()
+                .name("loadtest");
+        scenarios.forEach(scenario -> deploymentBuilder.addModelInstance(
+                scenario.getProcessDefinitionKey() + ".bpmn", scenario.buildModel(properties)));
+        final Deployment deployment = deploymentBuilder.deploy();
+
+        final Map<LoadTestScenario, String> processDefinitionIds = new EnumMap<>(LoadTestScenario.class);
+        scenarios.forEach(scenario -> processDefinitionIds.put(scenario, repositoryService
+                .createProcessDefinitionQuery()
+                .deploymentId(deployment.getId())
+                .processDefinitionKey(scenario.getProcessDefinitionKey())
+                .singleResult()
+                .getId()));
+        return processDefinitionIds;
+
+    }
+
+    /**
+     * Starts as many process instances on each tick as are due according to the
+     * rate, so a slow tick is caught up by the following one.
+     */
+    private void trigger(final List<LoadTestScenario> scenarios, final long start, final long end)
+            throws InterruptedException {
+
+        final ExecutorService starters = Executors.newFixedThreadPool(4);
+        try {
+            long triggered = 0;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                final long due = (long) (properties.getRate() * (now - start) / TimeUnit.SECONDS.toNanos(1));
+                for (; triggered < due; ++triggered) {
+                    for (LoadTestScenario scenario : scenarios) {
+                        starters.execute(() -> start(scenario));
+                    }
+                }
+                Thread.sleep(TICK);
+            }
+        } finally {
+            starters.shutdown();
+            starters.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+    }
+
+    private void start(final LoadTestScenario scenario) {
+
+        final String businessKey = UUID.randomUUID().toString();
+        recorder.triggered(businessKey, scenario);
+        try {
+            runtimeService.startProcessInstanceByKey(scenario.getProcessDefinitionKey(), businessKey);
+        } catch (Exception e) {
+            recorder.failedToTrigger(businessKey);
+            logger.warn("Could not start process instance of scenario {}", scenario, e);
+        }
+
+    }
+
+    private Map<String, Object> report(final List<LoadTestScenario> scenarios,
+            final Map<LoadTestScenario, String> processDefinitionIds, final long statements,
+            final long warmupEnd, final long end) {
+
+        final double measuredSeconds = (end - warmupEnd) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        final Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("rate", properties.getRate());
+        configuration.put("duration", properties.getDuration());
+        configuration.put("warmup", properties.getWarmup());
+        configuration.put("chainLength", properties.getChainLength());
+        configuration.put("fanOut", properties.getFanOut());
+        configuration.put("latencyMin", properties.getLatencyMin());
+        configuration.put("latencyMax", properties.getLatencyMax());
+        configuration.put("failureRate", properties.getFailureRate());
+        configuration.put("asyncResponseDelay", properties.getAsyncResponseDelay());
+
+        final Map<String, Object> results = new LinkedHashMap<>();
+        long completedTotal = 0;
+        long incidentsTotal = 0;
+        for (LoadTestScenario scenario : scenarios) {
+            final LoadTestRecorder.Completions completions = recorder.getCompletions(scenario);
+            final List<long[]> completed = completions.getCompleted();
+
+            final List<Long> latencies = new ArrayList<>();
+            long completedInWindow = 0;
+            for (long[] completion : completed) {
+                if ((completion[0] >= warmupEnd) && (completion[0] < end)) {
+                    latencies.add(completion[1] - completion[0]);
+                }
+                if ((completion[1] >= warmupEnd) && (completion[1] < end)) {
+                    ++completedInWindow;
+                }
+            }
+            Collections.sort(latencies);
+
+            final long incidents = runtimeService
+                    .createIncidentQuery()
+                    .processDefinitionId(processDefinitionIds.get(scenario))
+                    .count();
+
+            final Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50", percentile(latencies, 50));
+            latency.put("p95", percentile(latencies, 95));
+            latency.put("p99", percentile(latencies, 99));
+            latency.put("max", percentile(latencies, 100));
+
+            final Map<String, Object> result = new LinkedHashMap<>();
+            result.put("started", completions.getStarted());
+            result.put("completed", completed.size());
+            result.put("measured", latencies.size());
+            result.put("throughput", round(completedInWindow / measuredSeconds));
+            result.put("latency", latency);
+            result.put("incidents", incidents);
+            results.put(scenario.name().toLowerCase(), result);
+
+            completedTotal += completed.size();
+            incidentsTotal += incidents;
+
+            logger.info("{}: {} started, {} completed, {} per second, p50 {} ms, p95 {} ms, p99 {} ms, {} incidents",
+                    scenario, completions.getStarted(), completed.size(), result.get("throughput"),
+                    latency.get("p50"), latency.get("p95"), latency.get("p99"), incidents);
+        }
+
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("configuration", configuration);
+        report.put("scenarios", results);
+        report.put("statements", statements);
+        report.put("statementsPerInstance", completedTotal == 0 ? null : round(statements / (double) completedTotal));
+        report.put("incidents", incidentsTotal);
+
+        logger.info("{} statements, {} per completed process instance, {} incidents",
+                statements, report.get("statementsPerInstance"), incidentsTotal);
+        return report;
+
+    }
+
+    /**
+     * @return The nearest-rank percentile in milliseconds or null if nothing was
+     *         measured
+     */
+    private static Double percentile(final List<Long> sortedNanos, final int percentile) {
+
+        if (sortedNanos.isEmpty()) {
+            return null;
+        }
+        final int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.size());
+        return round(sortedNanos.get(Math.max(0, rank - 1)) / 1_000_000.0);
+
+    }
+
+    private static double round(final double value) {
+
+        return Math.round(value * 10) / 10.0;
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.builder.AbstractFlowNodeBuilder;
+
+/**
+ * The process models exercised by the load test. Every model records its
+ * completion by the end event's listener.
+ */
+public enum LoadTestScenario {
+
+    /**
+     * A chain of synchronously processed external tasks.
+     */
+    SEQUENTIAL("loadtest-sequential", "loadtest-step"),
+
+    /**
+     * Synchronously processed external tasks forked by a parallel gateway.
+     */
+    PARALLEL("loadtest-parallel", "loadtest-step"),
+
+    /**
+     * One external task completed by the response of a simulated remote system.
+     */
+    ASYNC("loadtest-async", "loadtest-request");
+
+    static final String COMPLETION_LISTENER = "${loadTestRecorder.completed(execution)}";
+
+    private final String processDefinitionKey;
+
+    private final String topic;
+
+    private LoadTestScenario(final String processDefinitionKey, final String topic) {
+
+        this.processDefinitionKey = processDefinitionKey;
+        this.topic = topic;
+
+    }
+
+    public String getProcessDefinitionKey() {
+        return processDefinitionKey;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public BpmnModelInstance buildModel(final LoadTestProperties properties) {
+
+        switch (this) {
+        case SEQUENTIAL:
+            AbstractFlowNodeBuilder<?, ?> chain = Bpmn.createExecutableProcess(processDefinitionKey)
+                    .startEvent();
+            for (int i = 1; i <= properties.getChainLength(); ++i) {
+                chain = chain.serviceTask("step" + i).camundaExternalTask(topic);
+            }
+            return end(chain);
+        case PARALLEL:
+            final AbstractFlowNodeBuilder<?, ?> fork = Bpmn.createExecutableProcess(processDefinitionKey)
+                    .startEvent()
+                    .parallelGateway("fork");
+            end(fork.serviceTask("step1").camundaExternalTask(topic).parallelGateway("join"));
+            for (int i = 2; i <= properties.getFanOut(); ++i) {
+                fork.moveToNode("fork").serviceTask("step" + i).camundaExternalTask(topic).connectTo("join");
+            }
+            return fork.done();
+        case ASYNC:
+            return end(Bpmn.createExecutableProcess(processDefinitionKey)
+                    .startEvent()
+                    .serviceTask("request").camundaExternalTask(topic));
+        default:
+            throw new IllegalStateException("Unsupported scenario " + this);
+        }
+
+    }
+
+    private static BpmnModelInstance end(final AbstractFlowNodeBuilder<?, ?> builder) {
+
+        return builder
+                .endEvent("end")
+                .camundaExecutionListenerExpression("end", COMPLETION_LISTENER)
+                .done();
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.camunda.bpm.externaltask.loadtest;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class LoadTestBaselineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testWithinTolerance() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(scenario("sequential", 20.0, 200)));
+
+        final Map<String, Object> comparison = baseline.compare(report(scenario("sequential", 17.0, 235)), 20, 20);
+
+        Assert.assertTrue("violations", baseline.getViolations().isEmpty());
+        Assert.assertTrue("comparison of scenario", comparison.containsKey("sequential"));
+
+    }
+
+    @Test
+    public void testThroughputDropped() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(scenario("sequential", 20.0, 200)));
+
+        baseline.compare(report(scenario("sequential", 15.0, 200)), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertTrue(baseline.getViolations().get(0),
+                baseline.getViolations().get(0).startsWith("sequential: throughput dropped by 25.0%"));
+
+    }
+
+    @Test
+    public void testLatencyRose() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(scenario("async", 20.0, 200)));
+
+        baseline.compare(report(scenario("async", 20.0, 300)), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertTrue(baseline.getViolations().get(0),
+                baseline.getViolations().get(0).startsWith("async: p99 latency rose by 50.0%"));
+
+    }
+
+    @Test
+    public void testScenarioNotRun() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(
+                scenario("sequential", 20.0, 200) + "," + scenario("parallel", 20.0, 200)));
+
+        baseline.compare(report(scenario("sequential", 20.0, 200)), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertEquals("parallel: not run", baseline.getViolations().get(0));
+
+    }
+
+    @Test
+    public void testBaselineWithoutMetrics() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(
+                "\"sequential\": { \"throughput\": 20.0, \"latency\": { \"p99\": \"n/a\" } }"));
+
+        baseline.compare(report(scenario("sequential", 20.0, 200)), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertTrue(baseline.getViolations().get(0),
+                baseline.getViolations().get(0).startsWith("sequential: baseline has no throughput"));
+
+    }
+
+    @Test
+    public void testReportWithoutMetrics() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(scenario("sequential", 20.0, 200)));
+
+        baseline.compare(report("\"sequential\": { \"throughput\": 20.0, \"latency\": { } }"), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertEquals("sequential: no throughput or p99 latency measured", baseline.getViolations().get(0));
+
+    }
+
+    @Test
+    public void testBaselineWithoutScenarios() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(""));
+
+        baseline.compare(report(scenario("sequential", 20.0, 200)), 20, 20);
+
+        Assert.assertEquals("violations", 1, baseline.getViolations().size());
+        Assert.assertEquals("baseline: no scenarios recorded", baseline.getViolations().get(0));
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDifferentConfiguration() throws Exception {
+
+        final LoadTestBaseline baseline = new LoadTestBaseline(report(scenario("sequential", 20.0, 200)));
+
+        baseline.compare(objectMapper.readTree("{ \"configuration\": { \"rate\": 50.0 }, \"scenarios\": { "
+                + scenario("sequential", 20.0, 200) + " } }"), 20, 20);
+
+    }
+
+    private JsonNode report(final String scenarios) throws Exception {
+
+        return objectMapper.readTree("{ \"configuration\": { \"rate\": 20.0 }, \"scenarios\": { "
+                + scenarios + " } }");
+
+    }
+
+    private static String scenario(final String name, final double throughput, final long p99) {
+
+        return "\"" + name + "\": { \"throughput\": " + throughput + ", \"latency\": { \"p99\": " + p99 + " } }";
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.camunda.bpm.externaltask.longpolling;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The body of a fetch and lock request - a subset of Camunda's REST API.
+ *
+ * @see https://docs.camunda.org/manual/7.13/reference/rest/external-task/fetch/
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FetchRequest {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Topic {
+
+        private String topicName;
+
+        private long lockDuration;
+
+        private List<String> variables;
+
+        private String processDefinitionKey;
+
+        private boolean deserializeValues;
+
+        public String getTopicName() {
+            return topicName;
+        }
+
+        public void setTopicName(String topicName) {
+            this.topicName = topicName;
+        }
+
+        public long getLockDuration() {
+            return lockDuration;
+        }
+
+        public void setLockDuration(long lockDuration) {
+            this.lockDuration = lockDuration;
+        }
+
+        public List<String> getVariables() {
+            return variables;
+        }
+
+        public void setVariables(List<String> variables) {
+            this.variables = variables;
+        }
+
+        public String getProcessDefinitionKey() {
+            return processDefinitionKey;
+        }
+
+        public void setProcessDefinitionKey(String processDefinitionKey) {
+            this.processDefinitionKey = processDefinitionKey;
+        }
+
+        public boolean isDeserializeValues() {
+            return deserializeValues;
+        }
+
+        public void setDeserializeValues(boolean deserializeValues) {
+            this.deserializeValues = deserializeValues;
+        }
+
+    }
+
+    private String workerId;
+
+    private int maxTasks = 1;
+
+    private boolean usePriority;
+
+    private long asyncResponseTimeout;
+
+    private List<Topic> topics = new LinkedList<>();
+
+    boolean isInterestedIn(final String processDefinitionKey, final String topicName) {
+
+        return topics
+                .stream()
+                .anyMatch(topic -> topic.getTopicName().equals(topicName)
+                        && ((topic.getProcessDefinitionKey() == null)
+                                || topic.getProcessDefinitionKey().equals(processDefinitionKey)));
+
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public int getMaxTasks() {
+        return maxTasks;
+    }
+
+    public void setMaxTasks(int maxTasks) {
+        this.maxTasks = maxTasks;
+    }
+
+    public boolean isUsePriority() {
+        return usePriority;
+    }
+
+    public void setUsePriority(boolean usePriority) {
+        this.usePriority = usePriority;
+    }
+
+    public long getAsyncResponseTimeout() {
+        return asyncResponseTimeout;
+    }
+
+    public void setAsyncResponseTimeout(long asyncResponseTimeout) {
+        this.asyncResponseTimeout = asyncResponseTimeout;
+    }
+
+    public List<Topic> getTopics() {
+        return topics;
+    }
+
+    public void setTopics(List<Topic> topics) {
+        this.topics = topics;
+    }
+
+}
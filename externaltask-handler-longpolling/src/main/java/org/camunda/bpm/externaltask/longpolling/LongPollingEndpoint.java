@@ -0,0 +1,676 @@
+package org.camunda.bpm.externaltask.longpolling;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.BadUserRequestException;
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.exception.NotFoundException;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQueryBuilder;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQueryTopicBuilder;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.variable.ValueTypeResolverImpl;
+import org.camunda.bpm.engine.variable.VariableMap;
+import org.camunda.bpm.engine.variable.type.FileValueType;
+import org.camunda.bpm.engine.variable.type.PrimitiveValueType;
+import org.camunda.bpm.engine.variable.type.SerializableValueType;
+import org.camunda.bpm.engine.variable.type.ValueType;
+import org.camunda.bpm.engine.variable.type.ValueTypeResolver;
+import org.camunda.bpm.engine.variable.value.FileValue;
+import org.camunda.bpm.engine.variable.value.SerializableValue;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+import org.camunda.bpm.externaltask.ExternalTaskHandlerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP endpoint offering fetch and lock with long polling, complete,
+ * failure, BPMN error and unlock for remote workers - a subset of Camunda's REST
+ * API (see <i>/external-task</i>). Unlike Camunda's REST API waiting requests
+ * are woken up by the task events the external task handler receives
+ * in-process. Tasks becoming available otherwise (e.g. created on another node,
+ * unlocked or their lock expired) are picked up by re-fetching periodically
+ * with an increasing interval.
+ * <p>
+ * Variables are mapped like Camunda's REST API does: typed by
+ * <i>type</i> and <i>valueInfo</i>, dates formatted as
+ * <i>yyyy-MM-dd'T'HH:mm:ss.SSSZ</i> and bytes encoded in Base64.
+ * </p>
+ * <p>
+ * The endpoint does not authenticate requests unless an {@link Authenticator}
+ * is set. Without one bind it to the loopback address only.
+ * </p>
+ * <p>
+ * Usage:
+ * </p>
+ *
+ * <pre>
+ * final LongPollingEndpoint endpoint = new LongPollingEndpoint(processEngine,
+ *         new InetSocketAddress(8081), 10);
+ * endpoint.setAuthenticator(new BasicAuthenticator("external-task") { ... });
+ * endpoint.attach(externalTaskHandler);
+ * endpoint.start();
+ * </pre>
+ */
+public class LongPollingEndpoint {
+
+    private static Logger logger = LoggerFactory.getLogger(LongPollingEndpoint.class);
+
+    public static final String CONTEXT_PATH = "/external-task";
+
+    /**
+     * Same limit as Camunda's REST API
+     */
+    public static final long MAX_ASYNC_RESPONSE_TIMEOUT = 1800000; // 30 minutes
+
+    /**
+     * Same format as Camunda's REST API
+     */
+    public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    private final ExternalTaskService externalTaskService;
+
+    private final ValueTypeResolver valueTypeResolver;
+
+    private final HttpServer server;
+
+    private final HttpContext context;
+
+    private final ExecutorService executor;
+
+    private final ScheduledExecutorService timeouts;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Queue<PendingFetchRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+
+    private final BiConsumer<String, String> taskCreatedListener = this::onTaskCreated;
+
+    private long minRefetchInterval = 1000;
+
+    private long maxRefetchInterval = 30000;
+
+    /**
+     * @param processEngine The engine whose tasks are offered. Its value types
+     *                      are used, so e.g. Spin's Json and Xml types are
+     *                      supported if the Spin plugin is configured.
+     * @param address       The address to listen on (port 0 for any free port)
+     * @param threads       Number of threads used to process requests
+     * @throws IOException If the server cannot be bound to the given address
+     */
+    public LongPollingEndpoint(final ProcessEngine processEngine, final InetSocketAddress address,
+            final int threads) throws IOException {
+
+        this(processEngine.getExternalTaskService(),
+                ((ProcessEngineConfigurationImpl) processEngine.getProcessEngineConfiguration()).getValueTypeResolver(),
+                address, threads);
+
+    }
+
+    /**
+     * Supports the engine's built-in value types only.
+     *
+     * @param externalTaskService The engine's external task service
+     * @param address             The address to listen on (port 0 for any free
+     *                            port)
+     * @param threads             Number of threads used to process requests
+     * @throws IOException If the server cannot be bound to the given address
+     */
+    public LongPollingEndpoint(final ExternalTaskService externalTaskService, final InetSocketAddress address,
+            final int threads) throws IOException {
+
+        this(externalTaskService, new ValueTypeResolverImpl(), address, threads);
+
+    }
+
+    private LongPollingEndpoint(final ExternalTaskService externalTaskService,
+            final ValueTypeResolver valueTypeResolver, final InetSocketAddress address, final int threads)
+            throws IOException {
+
+        this.externalTaskService = externalTaskService;
+        this.valueTypeResolver = valueTypeResolver;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.timeouts = Executors.newSingleThreadScheduledExecutor();
+
+        objectMapper.setDateFormat(new SimpleDateFormat(DATE_FORMAT));
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        context = server.createContext(CONTEXT_PATH, this::handle);
+
+    }
+
+    /**
+     * Authenticate all requests (fetch and lock as well as reporting results),
+     * e.g. by a {@link com.sun.net.httpserver.BasicAuthenticator}. Has to be set
+     * before the endpoint is started.
+     */
+    public void setAuthenticator(final Authenticator authenticator) {
+
+        context.setAuthenticator(authenticator);
+
+    }
+
+    /**
+     * Waiting requests are fetched again after the given interval, which is
+     * doubled after each attempt up to the maximum given.
+     *
+     * @param minRefetchInterval Milliseconds until the first re-fetch
+     * @param maxRefetchInterval Maximum milliseconds between re-fetches
+     */
+    public void setRefetchInterval(final long minRefetchInterval, final long maxRefetchInterval) {
+
+        if ((minRefetchInterval < 1)
+                || (maxRefetchInterval < minRefetchInterval)) {
+            throw new IllegalArgumentException("The re-fetch interval has to be at least 1 and not above its maximum");
+        }
+        this.minRefetchInterval = minRefetchInterval;
+        this.maxRefetchInterval = maxRefetchInterval;
+
+    }
+
+    /**
+     * Wake up waiting requests on task events of the given handler.
+     */
+    public void attach(final ExternalTaskHandlerImpl externalTaskHandler) {
+
+        externalTaskHandler.addTaskCreatedListener(taskCreatedListener);
+
+    }
+
+    public void detach(final ExternalTaskHandlerImpl externalTaskHandler) {
+
+        externalTaskHandler.removeTaskCreatedListener(taskCreatedListener);
+
+    }
+
+    public void start() {
+
+        server.start();
+        logger.info("Long-polling endpoint listening on port {}", getPort());
+
+    }
+
+    /**
+     * Stop the server. Waiting requests are answered with an empty result.
+     */
+    public void stop() {
+
+        PendingFetchRequest pending;
+        while ((pending = pendingRequests.poll()) != null) {
+            respondIfWaiting(pending, new LinkedList<>());
+        }
+        server.stop(0);
+        timeouts.shutdownNow();
+        executor.shutdown();
+
+    }
+
+    public int getPort() {
+
+        return server.getAddress().getPort();
+
+    }
+
+    /**
+     * Wake up requests waiting for tasks of the given topic. Called once the
+     * transaction which created the task is committed.
+     *
+     * @param processDefinitionKey The task's process definition key
+     * @param topic                The task's topic
+     */
+    public void onTaskCreated(final String processDefinitionKey, final String topic) {
+
+        pendingRequests
+                .stream()
+                .filter(pending -> pending.getRequest().isInterestedIn(processDefinitionKey, topic))
+                .forEach(pending -> executor.execute(() -> tryFetch(pending)));
+
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null);
+                return;
+            }
+
+            final String[] path = exchange
+                    .getRequestURI()
+                    .getPath()
+                    .substring(CONTEXT_PATH.length())
+                    .split("/");
+            // path[0] is empty because of the leading slash
+            if ((path.length == 2) && "fetchAndLock".equals(path[1])) {
+                fetchAndLock(exchange);
+            } else if (path.length == 3) {
+                final JsonNode body = readBody(exchange);
+                final String externalTaskId = path[1];
+                switch (path[2]) {
+                case "complete":
+                    complete(externalTaskId, body);
+                    break;
+                case "failure":
+                    handleFailure(externalTaskId, body);
+                    break;
+                case "bpmnError":
+                    handleBpmnError(externalTaskId, body);
+                    break;
+                case "unlock":
+                    externalTaskService.unlock(externalTaskId);
+                    break;
+                default:
+                    respond(exchange, 404, null);
+                    return;
+                }
+                respond(exchange, 204, null);
+            } else {
+                respond(exchange, 404, null);
+            }
+        } catch (NotFoundException e) {
+            respondError(exchange, 404, e);
+        } catch (BadUserRequestException | IllegalArgumentException | IOException e) {
+            respondError(exchange, 400, e);
+        } catch (Exception e) {
+            logger.warn("Could not process request '{}'", exchange.getRequestURI(), e);
+            respondError(exchange, 500, e);
+        }
+
+    }
+
+    private void fetchAndLock(final HttpExchange exchange) throws IOException {
+
+        final FetchRequest request = objectMapper.readValue(exchange.getRequestBody(), FetchRequest.class);
+        if ((request.getWorkerId() == null)
+                || request.getTopics().isEmpty()) {
+            throw new IllegalArgumentException("A workerId and at least one topic are required");
+        }
+        if (request.getAsyncResponseTimeout() > MAX_ASYNC_RESPONSE_TIMEOUT) {
+            throw new IllegalArgumentException("The asynchronous response timeout cannot be set to a value greater than "
+                    + MAX_ASYNC_RESPONSE_TIMEOUT + " milliseconds");
+        }
+
+        final PendingFetchRequest pending = new PendingFetchRequest(exchange, request);
+        if (request.getAsyncResponseTimeout() <= 0) {
+            respondIfWaiting(pending, fetch(request));
+            return;
+        }
+
+        /*
+         * Enqueue before the first attempt, otherwise a task created between the
+         * attempt and enqueuing would not wake up the request.
+         */
+        pendingRequests.add(pending);
+        pending.setTimeout(timeouts.schedule(
+                () -> respondIfWaiting(pending, new LinkedList<>()),
+                request.getAsyncResponseTimeout(),
+                TimeUnit.MILLISECONDS));
+        tryFetch(pending);
+        scheduleRefetch(pending, minRefetchInterval);
+
+    }
+
+    /*
+     * Task events only cover tasks created by this node, so waiting requests are
+     * fetched again periodically, backing off while nothing is found.
+     */
+    private void scheduleRefetch(final PendingFetchRequest pending, final long interval) {
+
+        if (pending.isAnswered()) {
+            return;
+        }
+        try {
+            pending.setRefetch(timeouts.schedule(
+                    () -> executor.execute(() -> {
+                        tryFetch(pending);
+                        scheduleRefetch(pending, Math.min(interval * 2, maxRefetchInterval));
+                    }),
+                    interval,
+                    TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Endpoint stopped, will not fetch again");
+        }
+
+    }
+
+    private void tryFetch(final PendingFetchRequest pending) {
+
+        synchronized (pending) {
+            if (pending.isAnswered()) {
+                return;
+            }
+            try {
+                final List<LockedExternalTask> tasks = fetch(pending.getRequest());
+                if (!tasks.isEmpty()) {
+                    respondIfWaiting(pending, tasks);
+                }
+            } catch (Exception e) {
+                logger.warn("Could not fetch external tasks", e);
+                pendingRequests.remove(pending);
+                pending.answer();
+                respondError(pending.getExchange(), 500, e);
+            }
+        }
+
+    }
+
+    private List<LockedExternalTask> fetch(final FetchRequest request) {
+
+        ExternalTaskQueryBuilder builder = externalTaskService
+                .fetchAndLock(request.getMaxTasks(), request.getWorkerId(), request.isUsePriority());
+        for (FetchRequest.Topic topic : request.getTopics()) {
+            final ExternalTaskQueryTopicBuilder topicBuilder = builder
+                    .topic(topic.getTopicName(), topic.getLockDuration());
+            if (topic.getVariables() != null) {
+                topicBuilder.variables(topic.getVariables());
+            }
+            if (topic.getProcessDefinitionKey() != null) {
+                topicBuilder.processDefinitionKey(topic.getProcessDefinitionKey());
+            }
+            if (topic.isDeserializeValues()) {
+                topicBuilder.enableCustomObjectDeserialization();
+            }
+            builder = topicBuilder;
+        }
+        return builder.execute();
+
+    }
+
+    private void respondIfWaiting(final PendingFetchRequest pending, final List<LockedExternalTask> tasks) {
+
+        synchronized (pending) {
+            if (pending.isAnswered()) {
+                if (!tasks.isEmpty()) {
+                    // answered by a timeout meanwhile: give the tasks back
+                    tasks.forEach(task -> externalTaskService.unlock(task.getId()));
+                }
+                return;
+            }
+            pending.answer();
+            pendingRequests.remove(pending);
+        }
+
+        try {
+            respond(pending.getExchange(), 200, tasks
+                    .stream()
+                    .map(this::toJson)
+                    .collect(Collectors.toList()));
+        } catch (IOException e) {
+            logger.warn("Could not respond to fetch and lock request, will unlock the tasks fetched", e);
+            tasks.forEach(task -> externalTaskService.unlock(task.getId()));
+        }
+
+    }
+
+    private Map<String, Object> toJson(final LockedExternalTask task) {
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", task.getId());
+        result.put("topicName", task.getTopicName());
+        result.put("workerId", task.getWorkerId());
+        result.put("lockExpirationTime", task.getLockExpirationTime() == null
+                ? null
+                : dateFormat.format(task.getLockExpirationTime()));
+        result.put("processInstanceId", task.getProcessInstanceId());
+        result.put("processDefinitionId", task.getProcessDefinitionId());
+        result.put("processDefinitionKey", task.getProcessDefinitionKey());
+        result.put("activityId", task.getActivityId());
+        result.put("activityInstanceId", task.getActivityInstanceId());
+        result.put("executionId", task.getExecutionId());
+        result.put("businessKey", task.getBusinessKey());
+        result.put("tenantId", task.getTenantId());
+        result.put("retries", task.getRetries());
+        result.put("priority", task.getPriority());
+        result.put("errorMessage", task.getErrorMessage());
+
+        final Map<String, Object> variables = new LinkedHashMap<>();
+        final VariableMap taskVariables = task.getVariables();
+        if (taskVariables != null) {
+            taskVariables.keySet().forEach(name -> variables.put(name, toJson(taskVariables.<TypedValue> getValueTyped(name))));
+        }
+        result.put("variables", variables);
+
+        return result;
+
+    }
+
+    /*
+     * Like Camunda's VariableValueDto: dates and bytes are formatted by the
+     * object mapper, the contents of files are not sent.
+     */
+    private Map<String, Object> toJson(final TypedValue value) {
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", value.getType() == null
+                ? null
+                : capitalize(value.getType().getName()));
+
+        if (value instanceof SerializableValue) {
+            final SerializableValue serializableValue = (SerializableValue) value;
+            result.put("value", serializableValue.isDeserialized()
+                    ? serializableValue.getValue()
+                    : serializableValue.getValueSerialized());
+        } else if (value instanceof FileValue) {
+            result.put("value", null);
+        } else {
+            result.put("value", value.getValue());
+        }
+        result.put("valueInfo", value.getType() == null
+                ? new HashMap<>()
+                : value.getType().getValueInfo(value));
+
+        return result;
+
+    }
+
+    private void complete(final String externalTaskId, final JsonNode body) {
+
+        externalTaskService.complete(externalTaskId,
+                getWorkerId(body),
+                toVariables(body.get("variables")),
+                toVariables(body.get("localVariables")));
+
+    }
+
+    private void handleFailure(final String externalTaskId, final JsonNode body) {
+
+        externalTaskService.handleFailure(externalTaskId,
+                getWorkerId(body),
+                text(body.path("errorMessage")),
+                text(body.path("errorDetails")),
+                body.path("retries").asInt(0),
+                body.path("retryTimeout").asLong(0));
+
+    }
+
+    private void handleBpmnError(final String externalTaskId, final JsonNode body) {
+
+        externalTaskService.handleBpmnError(externalTaskId,
+                getWorkerId(body),
+                text(body.path("errorCode")),
+                text(body.path("errorMessage")),
+                toVariables(body.get("variables")));
+
+    }
+
+    private static String getWorkerId(final JsonNode body) {
+
+        final String workerId = text(body.path("workerId"));
+        if (workerId == null) {
+            throw new IllegalArgumentException("A workerId is required");
+        }
+        return workerId;
+
+    }
+
+    private Map<String, Object> toVariables(final JsonNode variables) {
+
+        if ((variables == null)
+                || !variables.isObject()) {
+            return null;
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = variables.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            result.put(field.getKey(), toValue(field.getKey(), field.getValue()));
+        }
+        return result;
+
+    }
+
+    /*
+     * Like Camunda's VariableValueDto: the value is converted to the Java type
+     * of the given type, serialized values (Object, Json, Xml) are passed as
+     * Strings and files as Base64.
+     */
+    @SuppressWarnings("unchecked")
+    private Object toValue(final String name, final JsonNode variable) {
+
+        final JsonNode valueNode = variable.path("value");
+        final Object untypedValue = valueNode.isMissingNode() || valueNode.isNull()
+                ? null
+                : objectMapper.convertValue(valueNode, Object.class);
+        final String type = text(variable.path("type"));
+        if (type == null) {
+            return untypedValue;
+        }
+
+        final ValueType valueType = valueTypeResolver.typeForName(decapitalize(type));
+        if (valueType == null) {
+            throw new IllegalArgumentException("Unsupported value type '" + type + "' of variable '" + name + "'");
+        }
+        final JsonNode valueInfoNode = variable.path("valueInfo");
+        final Map<String, Object> valueInfo = valueInfoNode.isObject()
+                ? objectMapper.convertValue(valueInfoNode, Map.class)
+                : new HashMap<>();
+
+        if (!(valueType instanceof PrimitiveValueType)
+                && (untypedValue != null)
+                && !(untypedValue instanceof String)) {
+            throw new IllegalArgumentException("The value of variable '" + name + "' of type '" + type
+                    + "' has to be a String");
+        }
+
+        try {
+            if (valueType instanceof PrimitiveValueType) {
+                return valueType.createValue(untypedValue == null
+                        ? null
+                        : objectMapper.convertValue(valueNode, ((PrimitiveValueType) valueType).getJavaType()),
+                        valueInfo);
+            }
+            if (valueType instanceof SerializableValueType) {
+                return ((SerializableValueType) valueType).createValueFromSerialized((String) untypedValue, valueInfo);
+            }
+            if (valueType instanceof FileValueType) {
+                return valueType.createValue(untypedValue == null
+                        ? null
+                        : Base64.getDecoder().decode((String) untypedValue), valueInfo);
+            }
+            return valueType.createValue(untypedValue, valueInfo);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cannot convert value of variable '" + name + "' to type '" + type
+                    + "': " + e.getMessage(), e);
+        }
+
+    }
+
+    private JsonNode readBody(final HttpExchange exchange) throws IOException {
+
+        try (InputStream in = exchange.getRequestBody()) {
+            final JsonNode body = objectMapper.readTree(in);
+            return body == null
+                    ? objectMapper.createObjectNode()
+                    : body;
+        }
+
+    }
+
+    private void respondError(final HttpExchange exchange, final int status, final Exception e) {
+
+        final Map<String, Object> error = new HashMap<>();
+        error.put("type", e.getClass().getSimpleName());
+        error.put("message", e.getMessage());
+        try {
+            respond(exchange, status, error);
+        } catch (IOException ie) {
+            logger.debug("Could not respond error", ie);
+        }
+
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final Object body) throws IOException {
+
+        try {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            final byte[] content = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        } finally {
+            exchange.close();
+        }
+
+    }
+
+    private static String text(final JsonNode node) {
+
+        return node.isMissingNode() || node.isNull()
+                ? null
+                : node.asText();
+
+    }
+
+    private static String capitalize(final String typeName) {
+
+        return Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1);
+
+    }
+
+    private static String decapitalize(final String typeName) {
+
+        return Character.toLowerCase(typeName.charAt(0)) + typeName.substring(1);
+
+    }
+
+}
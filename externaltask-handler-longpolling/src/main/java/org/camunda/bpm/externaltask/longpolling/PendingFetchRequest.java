@@ -0,0 +1,72 @@
+package org.camunda.bpm.externaltask.longpolling;
+
+import java.util.concurrent.ScheduledFuture;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * A fetch and lock request waiting for external tasks. Callers synchronize on
+ * the instance to ensure the request is answered only once.
+ */
+class PendingFetchRequest {
+
+    private final HttpExchange exchange;
+
+    private final FetchRequest request;
+
+    private ScheduledFuture<?> timeout;
+
+    private ScheduledFuture<?> refetch;
+
+    private boolean answered;
+
+    PendingFetchRequest(final HttpExchange exchange, final FetchRequest request) {
+
+        this.exchange = exchange;
+        this.request = request;
+
+    }
+
+    HttpExchange getExchange() {
+        return exchange;
+    }
+
+    FetchRequest getRequest() {
+        return request;
+    }
+
+    synchronized void setTimeout(final ScheduledFuture<?> timeout) {
+
+        this.timeout = timeout;
+        if (answered) {
+            timeout.cancel(false);
+        }
+
+    }
+
+    synchronized void setRefetch(final ScheduledFuture<?> refetch) {
+
+        this.refetch = refetch;
+        if (answered) {
+            refetch.cancel(false);
+        }
+
+    }
+
+    synchronized boolean isAnswered() {
+        return answered;
+    }
+
+    synchronized void answer() {
+
+        answered = true;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        if (refetch != null) {
+            refetch.cancel(false);
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+package org.camunda.bpm.externaltask.longpolling;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.variable.Variables;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.BasicAuthenticator;
+
+public class LongPollingEndpointIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ProcessEngine processEngine;
+
+    private LongPollingEndpoint endpoint;
+
+    @Before
+    public void startEngine() throws Exception {
+
+        processEngine = ProcessEngineConfiguration
+                .createStandaloneInMemProcessEngineConfiguration()
+                .setJdbcUrl("jdbc:h2:mem:longpolling;DB_CLOSE_DELAY=1000")
+                .setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP)
+                .setJobExecutorActivate(false)
+                .buildProcessEngine();
+        processEngine
+                .getRepositoryService()
+                .createDeployment()
+                .addClasspathResource("test-external-task.bpmn")
+                .deploy();
+
+        endpoint = new LongPollingEndpoint(processEngine, new InetSocketAddress(0), 4);
+        endpoint.start();
+
+    }
+
+    @After
+    public void stopEngine() {
+
+        endpoint.stop();
+        processEngine.close();
+
+    }
+
+    @Test
+    public void testLongPolling() throws Exception {
+
+        final CompletableFuture<JsonNode> fetched = CompletableFuture
+                .supplyAsync(() -> post("/fetchAndLock", fetchRequest(20000)));
+
+        Thread.sleep(500); // ensure the request is waiting
+        Assert.assertFalse("request answered before a task was created", fetched.isDone());
+
+        final String processInstanceId = processEngine
+                .getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, "LongPolling")
+                .getId();
+        endpoint.onTaskCreated(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC);
+
+        final JsonNode tasks = fetched.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("number of tasks fetched", 1, tasks.size());
+        Assert.assertEquals("process instance", processInstanceId, tasks.get(0).get("processInstanceId").asText());
+        Assert.assertEquals("business key", "LongPolling", tasks.get(0).get("businessKey").asText());
+
+        post("/" + tasks.get(0).get("id").asText() + "/complete",
+                "{\"workerId\":\"remote\",\"variables\":{\"result\":{\"value\":42,\"type\":\"Integer\"}}}");
+
+        final HistoricProcessInstance historicProcessInstance = processEngine
+                .getHistoryService()
+                .createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertEquals("process state", "COMPLETED", historicProcessInstance.getState());
+        Assert.assertEquals("result", 42, processEngine
+                .getHistoryService()
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName("result")
+                .singleResult()
+                .getValue());
+
+    }
+
+    @Test
+    public void testTaskWithoutEventRefetched() throws Exception {
+
+        endpoint.setRefetchInterval(200, 400);
+        final CompletableFuture<JsonNode> fetched = CompletableFuture
+                .supplyAsync(() -> post("/fetchAndLock", fetchRequest(20000)));
+
+        Thread.sleep(500); // ensure the request is waiting
+        Assert.assertFalse("request answered before a task was created", fetched.isDone());
+
+        // e.g. created on another node: no task event
+        final String processInstanceId = processEngine
+                .getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                .getId();
+
+        final JsonNode tasks = fetched.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("number of tasks fetched", 1, tasks.size());
+        Assert.assertEquals("process instance", processInstanceId, tasks.get(0).get("processInstanceId").asText());
+
+    }
+
+    @Test
+    public void testLongPollingTimeout() throws Exception {
+
+        final long started = System.currentTimeMillis();
+        final JsonNode tasks = post("/fetchAndLock", fetchRequest(1000));
+
+        Assert.assertEquals("number of tasks fetched", 0, tasks.size());
+        Assert.assertTrue("request answered before timeout", System.currentTimeMillis() - started >= 1000);
+
+    }
+
+    @Test
+    public void testTypedVariables() throws Exception {
+
+        final Date date = new SimpleDateFormat(LongPollingEndpoint.DATE_FORMAT).parse("2020-05-01T10:15:30.123+0200");
+        final String processInstanceId = processEngine
+                .getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, Variables
+                        .createVariables()
+                        .putValue("long", 42L)
+                        .putValue("date", date)
+                        .putValue("bytes", new byte[] { 1, 2, 3 }))
+                .getId();
+
+        final JsonNode tasks = post("/fetchAndLock", fetchRequest(0));
+        Assert.assertEquals("number of tasks fetched", 1, tasks.size());
+        final JsonNode variables = tasks.get(0).get("variables");
+        Assert.assertEquals("long type", "Long", variables.get("long").get("type").asText());
+        Assert.assertEquals("long", 42L, variables.get("long").get("value").asLong());
+        Assert.assertEquals("date type", "Date", variables.get("date").get("type").asText());
+        Assert.assertEquals("date", date, new SimpleDateFormat(LongPollingEndpoint.DATE_FORMAT)
+                .parse(variables.get("date").get("value").asText()));
+        Assert.assertEquals("bytes type", "Bytes", variables.get("bytes").get("type").asText());
+        Assert.assertEquals("bytes", Base64.getEncoder().encodeToString(new byte[] { 1, 2, 3 }),
+                variables.get("bytes").get("value").asText());
+
+        post("/" + tasks.get(0).get("id").asText() + "/complete", "{\"workerId\":\"remote\",\"variables\":{"
+                + "\"long\":{\"value\":7,\"type\":\"Long\"},"
+                + "\"date\":{\"value\":\"2020-06-01T08:00:00.000+0000\",\"type\":\"Date\"},"
+                + "\"bytes\":{\"value\":\"BAUG\",\"type\":\"Bytes\"},"
+                + "\"untyped\":{\"value\":\"text\"}}}");
+
+        Assert.assertEquals("long", 7L, historicValue(processInstanceId, "long"));
+        Assert.assertEquals("date", new SimpleDateFormat(LongPollingEndpoint.DATE_FORMAT)
+                .parse("2020-06-01T08:00:00.000+0000"), historicValue(processInstanceId, "date"));
+        Assert.assertArrayEquals("bytes", new byte[] { 4, 5, 6 }, (byte[]) historicValue(processInstanceId, "bytes"));
+        Assert.assertEquals("untyped", "text", historicValue(processInstanceId, "untyped"));
+
+    }
+
+    @Test
+    public void testUnsupportedType() throws Exception {
+
+        processEngine
+                .getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY);
+        final JsonNode tasks = post("/fetchAndLock", fetchRequest(0));
+
+        // Json requires Spin which is not configured
+        Assert.assertEquals("status", 400, status("/" + tasks.get(0).get("id").asText() + "/complete",
+                "{\"workerId\":\"remote\",\"variables\":{\"json\":{\"value\":\"{}\",\"type\":\"Json\"}}}",
+                null));
+        Assert.assertEquals("status", 400, status("/" + tasks.get(0).get("id").asText() + "/complete",
+                "{\"workerId\":\"remote\",\"variables\":{\"date\":{\"value\":\"today\",\"type\":\"Date\"}}}",
+                null));
+
+    }
+
+    @Test
+    public void testAuthentication() throws Exception {
+
+        endpoint.stop();
+        endpoint = new LongPollingEndpoint(processEngine, new InetSocketAddress(0), 4);
+        endpoint.setAuthenticator(new BasicAuthenticator("external-task") {
+            @Override
+            public boolean checkCredentials(final String username, final String password) {
+                return "worker".equals(username) && "secret".equals(password);
+            }
+        });
+        endpoint.start();
+
+        processEngine
+                .getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY);
+        final String credentials = "Basic " + Base64.getEncoder()
+                .encodeToString("worker:secret".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals("fetch without credentials", 401, status("/fetchAndLock", fetchRequest(0), null));
+        Assert.assertEquals("fetch with credentials", 200, status("/fetchAndLock", fetchRequest(0), credentials));
+
+        final String externalTaskId = processEngine
+                .getExternalTaskService()
+                .createExternalTaskQuery()
+                .singleResult()
+                .getId();
+        Assert.assertEquals("unlock without credentials", 401,
+                status("/" + externalTaskId + "/unlock", "{}", null));
+        Assert.assertEquals("complete without credentials", 401,
+                status("/" + externalTaskId + "/complete", "{\"workerId\":\"remote\"}", null));
+        Assert.assertEquals("complete with credentials", 204,
+                status("/" + externalTaskId + "/complete", "{\"workerId\":\"remote\"}", credentials));
+
+    }
+
+    private Object historicValue(final String processInstanceId, final String name) {
+
+        return processEngine
+                .getHistoryService()
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName(name)
+                .singleResult()
+                .getValue();
+
+    }
+
+    private static String fetchRequest(final long asyncResponseTimeout) {
+
+        return "{\"workerId\":\"remote\",\"maxTasks\":1,\"asyncResponseTimeout\":" + asyncResponseTimeout
+                + ",\"topics\":[{\"topicName\":\"" + TESTPROCESS_TESTTOPIC + "\",\"lockDuration\":10000}]}";
+
+    }
+
+    private int status(final String path, final String body, final String authorization) {
+
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+                    + endpoint.getPort() + LongPollingEndpoint.CONTEXT_PATH + path).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            if (authorization != null) {
+                connection.setRequestProperty("Authorization", authorization);
+            }
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            return connection.getResponseCode();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+    }
+
+    private JsonNode post(final String path, final String body) {
+
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+                    + endpoint.getPort() + LongPollingEndpoint.CONTEXT_PATH + path).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            Assert.assertTrue("HTTP status " + connection.getResponseCode(), connection.getResponseCode() < 300);
+            if (connection.getResponseCode() == 204) {
+                return null;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return objectMapper.readTree(in);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+    }
+
+}
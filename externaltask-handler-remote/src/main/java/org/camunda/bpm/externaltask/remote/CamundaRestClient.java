@@ -0,0 +1,268 @@
+package org.camunda.bpm.externaltask.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+/**
+ * A minimal client of Camunda's REST API. Connections are kept alive and
+ * pooled by the JDK (see system property <i>http.maxConnections</i>).
+ */
+class CamundaRestClient {
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    private static final String JSON_DATA_FORMAT = "application/json";
+
+    private final String baseUrl;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private int connectTimeout = 10000;
+
+    CamundaRestClient(final String baseUrl) {
+
+        this.baseUrl = baseUrl.endsWith("/")
+                ? baseUrl.substring(0, baseUrl.length() - 1)
+                : baseUrl;
+
+    }
+
+    void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    JsonNode get(final String path) {
+
+        return request("GET", path, null, 0);
+
+    }
+
+    JsonNode post(final String path, final Object body) {
+
+        return request("POST", path, body, 0);
+
+    }
+
+    /**
+     * @param readTimeout Additional time the server is allowed to hold the
+     *                    request (long polling)
+     */
+    JsonNode post(final String path, final Object body, final long readTimeout) {
+
+        return request("POST", path, body, readTimeout);
+
+    }
+
+    private JsonNode request(final String method, final String path, final Object body, final long readTimeout) {
+
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout((int) (readTimeout + connectTimeout));
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    objectMapper.writeValue(out, body);
+                }
+            }
+
+            final int status = connection.getResponseCode();
+            if (status >= 300) {
+                throw new RemoteEngineException(status, method + " " + path + " failed: " + readError(connection));
+            }
+            // read the response completely, otherwise the connection cannot be reused
+            try (InputStream in = connection.getInputStream()) {
+                final byte[] response = readFully(in);
+                return response.length == 0
+                        ? NullNode.getInstance()
+                        : objectMapper.readTree(response);
+            }
+        } catch (IOException e) {
+            throw new RemoteEngineException(method + " " + path + " failed", e);
+        }
+
+    }
+
+    private static String readError(final HttpURLConnection connection) throws IOException {
+
+        try (InputStream in = connection.getErrorStream()) {
+            return in == null
+                    ? String.valueOf(connection.getResponseCode())
+                    : new String(readFully(in), "UTF-8");
+        }
+
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+
+    }
+
+    /**
+     * Converts variables to the typed-value representation of the REST API.
+     */
+    Map<String, Object> toRestVariables(final Map<String, Object> variables) {
+
+        if (variables == null) {
+            return null;
+        }
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            result.put(variable.getKey(), toRestValue(variable.getValue()));
+        }
+        return result;
+
+    }
+
+    private Map<String, Object> toRestValue(final Object value) {
+
+        final Map<String, Object> result = new HashMap<>();
+        if (value == null) {
+            result.put("type", "Null");
+        } else if (value instanceof String) {
+            result.put("type", "String");
+        } else if (value instanceof Integer) {
+            result.put("type", "Integer");
+        } else if (value instanceof Long) {
+            result.put("type", "Long");
+        } else if (value instanceof Short) {
+            result.put("type", "Short");
+        } else if (value instanceof Double) {
+            result.put("type", "Double");
+        } else if (value instanceof Boolean) {
+            result.put("type", "Boolean");
+        } else if (value instanceof Date) {
+            result.put("type", "Date");
+            result.put("value", new SimpleDateFormat(DATE_FORMAT).format((Date) value));
+            return result;
+        } else if (value instanceof byte[]) {
+            result.put("type", "Bytes");
+            result.put("value", Base64.getEncoder().encodeToString((byte[]) value));
+            return result;
+        } else {
+            result.put("type", "Object");
+            try {
+                result.put("value", objectMapper.writeValueAsString(value));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not serialize value of type " + value.getClass(), e);
+            }
+            final Map<String, Object> valueInfo = new HashMap<>();
+            valueInfo.put("objectTypeName", value.getClass().getName());
+            valueInfo.put("serializationDataFormat", JSON_DATA_FORMAT);
+            result.put("valueInfo", valueInfo);
+            return result;
+        }
+        result.put("value", value);
+        return result;
+
+    }
+
+    /**
+     * Converts variables given in the typed-value representation of the REST API.
+     */
+    Map<String, Object> fromRestVariables(final JsonNode variables) {
+
+        final Map<String, Object> result = new HashMap<>();
+        if ((variables == null)
+                || !variables.isObject()) {
+            return result;
+        }
+
+        final Iterator<Map.Entry<String, JsonNode>> fields = variables.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            result.put(field.getKey(), fromRestValue(field.getValue()));
+        }
+        return result;
+
+    }
+
+    Object fromRestValue(final JsonNode variable) {
+
+        final JsonNode value = variable.path("value");
+        if (value.isMissingNode() || value.isNull()) {
+            return null;
+        }
+
+        final String type = variable.path("type").asText();
+        switch (type) {
+        case "Integer":
+            return value.asInt();
+        case "Short":
+            return (short) value.asInt();
+        case "Long":
+            return value.asLong();
+        case "Double":
+            return value.asDouble();
+        case "Boolean":
+            return value.asBoolean();
+        case "Date":
+            try {
+                return new SimpleDateFormat(DATE_FORMAT).parse(value.asText());
+            } catch (ParseException e) {
+                throw new IllegalArgumentException("Unexpected date format: " + value.asText(), e);
+            }
+        case "Bytes":
+        case "File":
+            return Base64.getDecoder().decode(value.asText());
+        case "Object":
+            return fromObjectValue(variable.path("valueInfo"), value.asText());
+        default:
+            return value.isTextual()
+                    ? value.asText()
+                    : objectMapper.convertValue(value, Object.class);
+        }
+
+    }
+
+    /*
+     * JSON serialized objects of classes known are deserialized, any other
+     * object is given in its serialized form.
+     */
+    private Object fromObjectValue(final JsonNode valueInfo, final String serialized) {
+
+        if (!JSON_DATA_FORMAT.equals(valueInfo.path("serializationDataFormat").asText())) {
+            return serialized;
+        }
+        try {
+            final Class<?> type = Class.forName(valueInfo.path("objectTypeName").asText(),
+                    true, Thread.currentThread().getContextClassLoader());
+            return objectMapper.readValue(serialized, type);
+        } catch (ClassNotFoundException | IOException e) {
+            return serialized;
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.camunda.bpm.externaltask.remote;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskAsyncProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncRequestProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncResponseProcessor;
+
+public class RemoteAsyncProcessingRegistration<R, I>
+        extends RemoteSyncProcessingRegistration<ExternalTaskAsyncProcessingRegistration>
+        implements ExternalTaskAsyncProcessingRegistration {
+
+    private final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor;
+
+    private Long responseTimeout;
+
+    private String responseTimeoutExpiredMessage;
+
+    RemoteAsyncProcessingRegistration(final String processDefinitionKey, final String topic,
+            final ExternalTaskHandlerAsyncRequestProcessor requestProcessor,
+            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+
+        super(processDefinitionKey, topic, requestProcessor);
+        this.responseProcessor = responseProcessor;
+
+    }
+
+    ExternalTaskHandlerAsyncResponseProcessor<R, I> getResponseProcessor() {
+        return responseProcessor;
+    }
+
+    public Long getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    @Override
+    public RemoteAsyncProcessingRegistration<R, I> responseTimeout(Long responseTimeout) {
+        this.responseTimeout = responseTimeout;
+        return this;
+    }
+
+    public String getResponseTimeoutExpiredMessage() {
+        return responseTimeoutExpiredMessage;
+    }
+
+    @Override
+    public RemoteAsyncProcessingRegistration<R, I> responseTimeoutExpiredMessage(
+            String responseTimeoutExpiredMessage) {
+        this.responseTimeoutExpiredMessage = responseTimeoutExpiredMessage;
+        return this;
+    }
+
+}
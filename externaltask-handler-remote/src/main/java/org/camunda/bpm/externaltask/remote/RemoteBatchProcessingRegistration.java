@@ -0,0 +1,40 @@
+package org.camunda.bpm.externaltask.remote;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
+
+/**
+ * A batch processor's registration of {@link RemoteExternalTaskHandler}. Batch
+ * gathering is ignored: the tasks of one long poll form the batches.
+ */
+public class RemoteBatchProcessingRegistration
+        extends RemoteSyncProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>>
+        implements ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> {
+
+    private Integer batchSize;
+
+    RemoteBatchProcessingRegistration(final String processDefinitionKey, final String topic,
+            final ExternalTaskHandlerBatchProcessor processor) {
+        super(processDefinitionKey, topic, processor);
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public RemoteBatchProcessingRegistration batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size has to be at least 1");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    @Override
+    public RemoteBatchProcessingRegistration batchGatheringPeriod(long batchGatheringPeriod) {
+        ignored("Batch gathering");
+        return this;
+    }
+
+}
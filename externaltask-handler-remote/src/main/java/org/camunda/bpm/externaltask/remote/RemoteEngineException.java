@@ -0,0 +1,38 @@
+package org.camunda.bpm.externaltask.remote;
+
+/**
+ * Thrown if the remote engine answers a request by an error.
+ */
+public class RemoteEngineException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public RemoteEngineException(final int status, final String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public RemoteEngineException(final String message, final Throwable cause) {
+        super(message, cause);
+        this.status = -1;
+    }
+
+    /**
+     * @return The HTTP status or -1 if the engine was not reachable
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Whether the engine's command failed due to an optimistic locking
+     *         conflict, reported by Camunda's REST API as the error's type
+     */
+    public boolean isOptimisticLockingConflict() {
+        return (status == 500)
+                && getMessage().contains("\"OptimisticLockingException\"");
+    }
+
+}
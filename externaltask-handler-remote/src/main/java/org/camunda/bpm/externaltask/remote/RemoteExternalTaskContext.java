@@ -0,0 +1,166 @@
+package org.camunda.bpm.externaltask.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The context of a task fetched from a remote engine. Variables not fetched
+ * on locking are loaded on first access from the task's process instance.
+ */
+public class RemoteExternalTaskContext implements ExternalTaskContext {
+
+    private final JsonNode task;
+
+    private final CamundaRestClient client;
+
+    private final Map<String, Object> variables = new HashMap<>();
+
+    RemoteExternalTaskContext(final JsonNode task, final CamundaRestClient client) {
+
+        this.task = task;
+        this.client = client;
+        variables.putAll(client.fromRestVariables(task.get("variables")));
+
+    }
+
+    @Override
+    public String getExternalTaskId() {
+        return text("id");
+    }
+
+    @Override
+    public String getProcessDefinitionKey() {
+        return text("processDefinitionKey");
+    }
+
+    @Override
+    public String getTopic() {
+        return text("topicName");
+    }
+
+    @Override
+    public String getProcessInstanceId() {
+        return text("processInstanceId");
+    }
+
+    @Override
+    public String getBusinessKey() {
+        return text("businessKey");
+    }
+
+    @Override
+    public String getActivityId() {
+        return text("activityId");
+    }
+
+    @Override
+    public String getActivityInstanceId() {
+        return text("activityInstanceId");
+    }
+
+    @Override
+    public String getExecutionId() {
+        return text("executionId");
+    }
+
+    @Override
+    public String getTenantId() {
+        return text("tenantId");
+    }
+
+    @Override
+    public String getWorkerId() {
+        return text("workerId");
+    }
+
+    @Override
+    public Integer getRetries() {
+        final JsonNode retries = task.path("retries");
+        return retries.isNumber()
+                ? retries.asInt()
+                : null;
+    }
+
+    @Override
+    public Date getLockExpirationTime() {
+        final String lockExpirationTime = text("lockExpirationTime");
+        if (lockExpirationTime == null) {
+            return null;
+        }
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").parse(lockExpirationTime);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long getPriority() {
+        return task.path("priority").asLong();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getVariable(final String name) {
+        return (T) load(name);
+    }
+
+    @Override
+    public Map<String, Object> getVariables(final String... names) {
+        final Map<String, Object> result = new HashMap<>();
+        Arrays.stream(names).forEach(name -> result.put(name, load(name)));
+        return result;
+    }
+
+    private synchronized Object load(final String name) {
+
+        if (!variables.containsKey(name)) {
+            Object value;
+            try {
+                value = client.fromRestValue(client.get("/process-instance/"
+                        + getProcessInstanceId() + "/variables/" + name + "?deserializeValue=false"));
+            } catch (RemoteEngineException e) {
+                if (e.getStatus() != 404) {
+                    throw e;
+                }
+                value = null;
+            }
+            variables.put(name, value);
+        }
+        return variables.get(name);
+
+    }
+
+    @Override
+    public InputStream getPayload(final String name) throws IOException {
+        throw new IOException("Claim-check is not supported by remote workers");
+    }
+
+    @Override
+    public OutputStream setPayload(final String name) throws IOException {
+        throw new IOException("Claim-check is not supported by remote workers");
+    }
+
+    Map<String, Object> getFetchedVariables() {
+        return variables;
+    }
+
+    private String text(final String field) {
+        final JsonNode value = task.path(field);
+        return value.isMissingNode() || value.isNull()
+                ? null
+                : value.asText();
+    }
+
+}
@@ -0,0 +1,813 @@
+package org.camunda.bpm.externaltask.remote;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.delegate.BpmnError;
+import org.camunda.bpm.externaltask.spi.BpmnErrorWithResult;
+import org.camunda.bpm.externaltask.spi.BpmnErrorWithResultAndVariables;
+import org.camunda.bpm.externaltask.spi.BpmnErrorWithVariables;
+import org.camunda.bpm.externaltask.spi.ExternalTaskAsyncProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchResult;
+import org.camunda.bpm.externaltask.spi.ExternalTaskContext;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncBatchRequestProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncRequestProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncResponseProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerContextProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerSyncProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.RetryableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An {@link ExternalTaskHandler} for worker JVMs separated from the engine.
+ * Registrations are processed like the embedded handler does, but tasks are
+ * fetched, completed and failed using Camunda's REST API.
+ * <p>
+ * Since there are no task events remotely, the handler long-polls for tasks
+ * of all registrations by one fetch and lock request (see
+ * {@link #setAsyncResponseTimeout(long)}). The engine's REST API has no
+ * operation to complete many tasks by one request, so completions are sent in
+ * parallel using the JDK's pool of keep-alive connections.
+ * </p>
+ * <p>
+ * Usage:
+ * </p>
+ *
+ * <pre>
+ * final RemoteExternalTaskHandler externalTaskHandler = new RemoteExternalTaskHandler(
+ *         "http://camunda:8080/engine-rest");
+ * externalTaskHandler.setWorkerId("worker-1");
+ * externalTaskHandler.registerExternalTaskProcessor("myprocess", "mytopic1", this::processServiceTask1);
+ * externalTaskHandler.start();
+ * </pre>
+ */
+public class RemoteExternalTaskHandler implements ExternalTaskHandler {
+
+    private static Logger logger = LoggerFactory.getLogger(RemoteExternalTaskHandler.class);
+
+    private final CamundaRestClient client;
+
+    private final Map<String, RemoteSyncProcessingRegistration<?>> registrations = new ConcurrentHashMap<>();
+
+    private final Map<String, ScheduledFuture<?>> responseTimeouts = new ConcurrentHashMap<>();
+
+    private final Object capacity = new Object();
+
+    private String workerId;
+
+    private long defaultLockTimeout = 60000;
+
+    private long asyncResponseTimeout = 30000;
+
+    private long fetchErrorBackoff = 5000;
+
+    private int maxInFlight = 10;
+
+    private int inFlight;
+
+    private long shutdownGracePeriod = 10000;
+
+    private int optimisticLockingRetries = 3;
+
+    private long optimisticLockingRetryBackoff = 50;
+
+    private boolean startupRecovery;
+
+    private volatile boolean running;
+
+    private Thread fetchLoop;
+
+    private ExecutorService executor;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param baseUrl The URL of Camunda's REST API, e.g.
+     *                <i>http://localhost:8080/engine-rest</i>
+     */
+    public RemoteExternalTaskHandler(final String baseUrl) {
+
+        this.client = new CamundaRestClient(baseUrl);
+
+    }
+
+    /**
+     * Start fetching tasks of the processors registered.
+     */
+    public synchronized void start() {
+
+        if (running) {
+            return;
+        }
+        if (workerId == null) {
+            throw new IllegalStateException("No worker id set");
+        }
+
+        running = true;
+        executor = Executors.newFixedThreadPool(maxInFlight);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        fetchLoop = new Thread(this::fetchLoop, "external-task-fetch-" + workerId);
+        fetchLoop.setDaemon(true);
+        fetchLoop.start();
+
+    }
+
+    /**
+     * Stop fetching tasks and wait for running processors to finish (see
+     * {@link #setShutdownGracePeriod(long)}). Tasks not processed are unlocked
+     * by the engine once their lock expires.
+     */
+    public synchronized void shutdown() {
+
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        fetchLoop.interrupt();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownGracePeriod, TimeUnit.MILLISECONDS)) {
+                logger.warn("Processors still running after grace period of {}ms", shutdownGracePeriod);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+
+    }
+
+    private void fetchLoop() {
+
+        if (startupRecovery) {
+            unlockExternalTasksOfPreviousRun();
+        }
+
+        while (running) {
+            try {
+                final int maxTasks = awaitCapacity();
+                final List<Map<String, Object>> topics = buildTopics();
+                if (topics.isEmpty()) {
+                    Thread.sleep(fetchErrorBackoff);
+                    continue;
+                }
+
+                final Map<String, Object> request = new HashMap<>();
+                request.put("workerId", workerId);
+                request.put("maxTasks", maxTasks);
+                request.put("asyncResponseTimeout", asyncResponseTimeout);
+                request.put("topics", topics);
+
+                final JsonNode tasks = client.post("/external-task/fetchAndLock", request, asyncResponseTimeout);
+                dispatch(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Could not fetch external tasks, will retry in {}ms", fetchErrorBackoff, e);
+                try {
+                    Thread.sleep(fetchErrorBackoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+    }
+
+    /*
+     * Tasks still locked by this worker were fetched before a crash or a shutdown
+     * not finished in time. Unlocking them lets the first fetch pick them up
+     * instead of waiting for their locks to expire. Tasks of asynchronous
+     * registrations may still get their response and are kept locked.
+     */
+    private void unlockExternalTasksOfPreviousRun() {
+
+        final JsonNode tasks;
+        try {
+            tasks = client.get("/external-task?locked=true&workerId="
+                    + URLEncoder.encode(workerId, StandardCharsets.UTF_8.name()));
+        } catch (RuntimeException | UnsupportedEncodingException e) {
+            logger.warn("Could not unlock external tasks locked before the restart. They will be processed once "
+                    + "their locks expire: {}", e.getMessage());
+            return;
+        }
+        int unlocked = 0;
+        for (JsonNode task : tasks) {
+            final RemoteSyncProcessingRegistration<?> registration = registrations.get(getInternalKey(
+                    task.path("processDefinitionKey").asText(), task.path("topicName").asText()));
+            if (!(registration instanceof RemoteAsyncProcessingRegistration)) {
+                unlock(task.get("id").asText());
+                ++unlocked;
+            }
+        }
+        if (unlocked > 0) {
+            logger.info("Unlocked {} external tasks locked by worker '{}' before the restart", unlocked, workerId);
+        }
+
+    }
+
+    private int awaitCapacity() throws InterruptedException {
+
+        synchronized (capacity) {
+            while (inFlight >= maxInFlight) {
+                capacity.wait();
+            }
+            return maxInFlight - inFlight;
+        }
+
+    }
+
+    private void reserveCapacity(final RemoteSyncProcessingRegistration<?> registration, final int count) {
+
+        synchronized (capacity) {
+            inFlight += count;
+        }
+        registration.getInFlight().addAndGet(count);
+
+    }
+
+    private void releaseCapacity(final RemoteSyncProcessingRegistration<?> registration, final int count) {
+
+        registration.getInFlight().addAndGet(-count);
+        synchronized (capacity) {
+            inFlight -= count;
+            capacity.notifyAll();
+        }
+
+    }
+
+    /*
+     * Camunda's fetch and lock request accepts each topic name only once,
+     * so registrations of the same topic are merged and tasks are routed by
+     * their process definition key after fetching.
+     */
+    private List<Map<String, Object>> buildTopics() {
+
+        final Map<String, List<RemoteSyncProcessingRegistration<?>>> byTopic = registrations
+                .values()
+                .stream()
+                .filter(registration -> (registration.getMaxInFlight() == null)
+                        || (registration.getInFlight().get() < registration.getMaxInFlight()))
+                .collect(Collectors.groupingBy(RemoteSyncProcessingRegistration::getTopic));
+
+        final List<Map<String, Object>> result = new LinkedList<>();
+        byTopic.forEach((topic, topicRegistrations) -> {
+            final Map<String, Object> instruction = new HashMap<>();
+            instruction.put("topicName", topic);
+            instruction.put("lockDuration", topicRegistrations
+                    .stream()
+                    .mapToLong(this::getLockTimeout)
+                    .max()
+                    .getAsLong());
+            instruction.put("processDefinitionKeyIn", topicRegistrations
+                    .stream()
+                    .map(RemoteSyncProcessingRegistration::getProcessDefinitionKey)
+                    .collect(Collectors.toList()));
+            if (topicRegistrations
+                    .stream()
+                    .allMatch(registration -> registration.getVariablesToFetchOnLock() != null)) {
+                instruction.put("variables", topicRegistrations
+                        .stream()
+                        .flatMap(registration -> registration.getVariablesToFetchOnLock().stream())
+                        .distinct()
+                        .collect(Collectors.toList()));
+            }
+            result.add(instruction);
+        });
+        return result;
+
+    }
+
+    private long getLockTimeout(final RemoteSyncProcessingRegistration<?> registration) {
+
+        return registration.getLockTimeout() != null
+                ? registration.getLockTimeout()
+                : defaultLockTimeout;
+
+    }
+
+    private void dispatch(final JsonNode tasks) {
+
+        final Map<String, List<RemoteExternalTaskContext>> batches = new LinkedHashMap<>();
+        for (JsonNode task : tasks) {
+            final RemoteExternalTaskContext context = new RemoteExternalTaskContext(task, client);
+            final String key = getInternalKey(context.getProcessDefinitionKey(), context.getTopic());
+            final RemoteSyncProcessingRegistration<?> registration = registrations.get(key);
+            if (registration == null) {
+                // unregistered meanwhile or fetched by merged topic instructions
+                unlock(context.getExternalTaskId());
+                continue;
+            }
+            if ((registration.getMaxInFlight() != null)
+                    && (registration.getInFlight().get() >= registration.getMaxInFlight())) {
+                // one fetch may exceed the registration's headroom
+                unlock(context.getExternalTaskId());
+                continue;
+            }
+
+            reserveCapacity(registration, 1);
+            if (registration.isBatchProcessor()) {
+                batches.computeIfAbsent(key, k -> new LinkedList<>()).add(context);
+            } else {
+                submit(registration, 1, () -> processExternalTask(registration, context));
+            }
+        }
+
+        batches.forEach((key, contexts) -> {
+            final RemoteBatchProcessingRegistration registration
+                    = (RemoteBatchProcessingRegistration) registrations.get(key);
+            final int batchSize = registration.getBatchSize() != null
+                    ? registration.getBatchSize()
+                    : contexts.size();
+            for (int i = 0; i < contexts.size(); i += batchSize) {
+                final List<RemoteExternalTaskContext> batch = new LinkedList<>(
+                        contexts.subList(i, Math.min(i + batchSize, contexts.size())));
+                submit(registration, batch.size(), () -> processBatch(registration, batch));
+            }
+        });
+
+    }
+
+    private void submit(final RemoteSyncProcessingRegistration<?> registration, final int count,
+            final Runnable processing) {
+
+        executor.execute(() -> {
+            try {
+                processing.run();
+            } finally {
+                releaseCapacity(registration, count);
+            }
+        });
+
+    }
+
+    private void processExternalTask(final RemoteSyncProcessingRegistration<?> registration,
+            final RemoteExternalTaskContext context) {
+
+        final String externalTaskId = context.getExternalTaskId();
+        final ExternalTaskHandlerProcessor processor = registration.getProcessor();
+
+        // reporting is kept out of the processor's error handling, so a failing
+        // report does not turn into an incident of a task processed successfully
+        Runnable report;
+        try {
+            if (processor instanceof ExternalTaskHandlerSyncProcessor) {
+                final Map<String, Object> variablesToBeSet = ((ExternalTaskHandlerSyncProcessor) processor)
+                        .apply(context.getProcessInstanceId(), context.getBusinessKey(), context.getActivityId(),
+                                context.getExecutionId(), new HashMap<>(context.getFetchedVariables()),
+                                context.getRetries());
+                report = () -> complete(externalTaskId, variablesToBeSet);
+            } else if (processor instanceof ExternalTaskHandlerContextProcessor) {
+                final Map<String, Object> variablesToBeSet = ((ExternalTaskHandlerContextProcessor) processor)
+                        .apply(context);
+                report = () -> complete(externalTaskId, variablesToBeSet);
+            } else {
+                final Date responseTimeout = ((ExternalTaskHandlerAsyncRequestProcessor) processor)
+                        .apply(externalTaskId, context.getProcessInstanceId(), context.getBusinessKey(),
+                                context.getActivityId(), context.getExecutionId(),
+                                new HashMap<>(context.getFetchedVariables()), context.getRetries());
+                report = () -> setAsyncResponseTimeout(externalTaskId, responseTimeout,
+                        (RemoteAsyncProcessingRegistration<?, ?>) registration);
+            }
+        } catch (BpmnErrorWithVariables e) {
+            report = () -> handleBpmnError(externalTaskId, e, e.getVariables());
+        } catch (BpmnError e) {
+            report = () -> handleBpmnError(externalTaskId, e, null);
+        } catch (RetryableException e) {
+            report = () -> handleFailure(externalTaskId, e, e.getRetries(), e.getRetryTimeout());
+        } catch (Exception e) {
+            report = () -> handleFailure(externalTaskId, e, 0, 0);
+        }
+
+        try {
+            report.run();
+        } catch (RuntimeException e) {
+            logger.warn("Could not report result of external task '{}', the task will be fetched again "
+                    + "once its lock expires", externalTaskId, e);
+        }
+
+    }
+
+    private void processBatch(final RemoteSyncProcessingRegistration<?> registration,
+            final List<RemoteExternalTaskContext> contexts) {
+
+        Map<String, ExternalTaskBatchResult> results;
+        try {
+            results = ((ExternalTaskHandlerBatchProcessor) registration.getProcessor())
+                    .apply(new LinkedList<ExternalTaskContext>(contexts));
+        } catch (BpmnError e) {
+            results = new HashMap<>();
+            for (RemoteExternalTaskContext context : contexts) {
+                results.put(context.getExternalTaskId(), ExternalTaskBatchResult.bpmnError(e));
+            }
+        } catch (Exception e) {
+            results = new HashMap<>();
+            for (RemoteExternalTaskContext context : contexts) {
+                results.put(context.getExternalTaskId(), ExternalTaskBatchResult.failure(e));
+            }
+        }
+
+        for (RemoteExternalTaskContext context : contexts) {
+            final String externalTaskId = context.getExternalTaskId();
+            final ExternalTaskBatchResult result = results == null
+                    ? null
+                    : results.get(externalTaskId);
+            try {
+                if (result == null) {
+                    handleFailure(externalTaskId, new Exception("No result given by batch processor"), 0, 0);
+                    continue;
+                }
+                switch (result.getType()) {
+                case SUCCESS:
+                    complete(externalTaskId, result.getVariables());
+                    break;
+                case BPMN_ERROR:
+                    handleBpmnError(externalTaskId, result.getBpmnError(),
+                            result.getBpmnError() instanceof BpmnErrorWithVariables
+                                    ? ((BpmnErrorWithVariables) result.getBpmnError()).getVariables()
+                                    : null);
+                    break;
+                case FAILURE:
+                    if (result.getFailure() instanceof RetryableException) {
+                        final RetryableException failure = (RetryableException) result.getFailure();
+                        handleFailure(externalTaskId, failure, failure.getRetries(), failure.getRetryTimeout());
+                    } else {
+                        handleFailure(externalTaskId, result.getFailure(), 0, 0);
+                    }
+                    break;
+                default:
+                    handleFailure(externalTaskId, new Exception("Result type " + result.getType()
+                            + " is not supported by synchronous batch processors"), 0, 0);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not report result of external task '{}', the task will be fetched again "
+                        + "once its lock expires", externalTaskId, e);
+            }
+        }
+
+    }
+
+    /*
+     * Extends the lock to cover the response timeout so other workers do not
+     * fetch the task meanwhile. If this worker dies the lock expires and the
+     * request is retried by fetching the task again.
+     */
+    private void setAsyncResponseTimeout(final String externalTaskId, final Date overridingResponseTimeout,
+            final RemoteAsyncProcessingRegistration<?, ?> registration) {
+
+        final Long responseTimeout = registration.getResponseTimeout();
+        if ((responseTimeout == null)
+                && (overridingResponseTimeout == null)) {
+            return;
+        }
+
+        final long timeout = overridingResponseTimeout != null
+                ? overridingResponseTimeout.getTime() - System.currentTimeMillis()
+                : responseTimeout;
+
+        final Map<String, Object> request = new HashMap<>();
+        request.put("workerId", workerId);
+        request.put("newDuration", Math.max(timeout, 0) + getLockTimeout(registration));
+        client.post("/external-task/" + externalTaskId + "/extendLock", request);
+
+        responseTimeouts.put(externalTaskId, scheduler.schedule(() -> {
+            if (responseTimeouts.remove(externalTaskId) == null) {
+                return; // response arrived meanwhile
+            }
+            final Map<String, Object> failure = new HashMap<>();
+            failure.put("workerId", workerId);
+            failure.put("errorMessage", registration.getResponseTimeoutExpiredMessage());
+            failure.put("retries", 0);
+            failure.put("retryTimeout", 0);
+            try {
+                client.post("/external-task/" + externalTaskId + "/failure", failure);
+            } catch (RuntimeException e) {
+                logger.warn("Could not report expired response timeout of external task '{}'", externalTaskId, e);
+            }
+        }, Math.max(timeout, 0), TimeUnit.MILLISECONDS));
+
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <R, I> R handleAsyncInput(String correlationId, I input) throws Exception {
+
+        final JsonNode externalTask = client.get("/external-task/" + correlationId);
+        final String processDefinitionKey = externalTask.path("processDefinitionKey").asText();
+        final String topic = externalTask.path("topicName").asText();
+
+        final RemoteSyncProcessingRegistration<?> registration = registrations
+                .get(getInternalKey(processDefinitionKey, topic));
+        if (!(registration instanceof RemoteAsyncProcessingRegistration)) {
+            throw new Exception("Topic '"
+                    + topic
+                    + "' of process definition '"
+                    + processDefinitionKey
+                    + "' was registered for synchonous processing!");
+        }
+
+        final ScheduledFuture<?> timeout = responseTimeouts.remove(correlationId);
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+
+        final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor
+                = ((RemoteAsyncProcessingRegistration<R, I>) registration).getResponseProcessor();
+        final Map<String, Object> variablesToBeSet = new HashMap<>();
+        final R result;
+        try {
+            result = responseProcessor.apply(
+                    externalTask.path("processInstanceId").asText(),
+                    externalTask.path("businessKey").isNull() ? null : externalTask.path("businessKey").asText(),
+                    externalTask.path("activityId").asText(),
+                    externalTask.path("executionId").asText(),
+                    externalTask.path("retries").isNumber() ? externalTask.path("retries").asInt() : null,
+                    correlationId,
+                    input,
+                    variablesToBeSet);
+        } catch (BpmnErrorWithResultAndVariables e) {
+            handleBpmnError(correlationId, e, e.getVariables());
+            return (R) e.getResult();
+        } catch (BpmnErrorWithResult e) {
+            handleBpmnError(correlationId, e, null);
+            return (R) e.getResult();
+        } catch (BpmnErrorWithVariables e) {
+            handleBpmnError(correlationId, e, e.getVariables());
+            return null;
+        } catch (BpmnError e) {
+            handleBpmnError(correlationId, e, null);
+            return null;
+        }
+
+        complete(correlationId, variablesToBeSet);
+        return result;
+
+    }
+
+    private void complete(final String externalTaskId, final Map<String, Object> variables) {
+
+        final Map<String, Object> request = new HashMap<>();
+        request.put("workerId", workerId);
+        request.put("variables", client.toRestVariables(variables));
+        postRetryingOnConflict("/external-task/" + externalTaskId + "/complete", request);
+
+    }
+
+    private void handleBpmnError(final String externalTaskId, final BpmnError e,
+            final Map<String, Object> variables) {
+
+        final Map<String, Object> request = new HashMap<>();
+        request.put("workerId", workerId);
+        request.put("errorCode", e.getErrorCode());
+        request.put("errorMessage", e.getMessage());
+        request.put("variables", client.toRestVariables(variables));
+        postRetryingOnConflict("/external-task/" + externalTaskId + "/bpmnError", request);
+
+    }
+
+    private void postRetryingOnConflict(final String path, final Map<String, Object> request) {
+
+        for (int retry = 1;; ++retry) {
+            try {
+                client.post(path, request);
+                return;
+            } catch (RemoteEngineException e) {
+                if (!e.isOptimisticLockingConflict() || (retry > optimisticLockingRetries)) {
+                    throw e;
+                }
+                final long backoff = optimisticLockingRetryBackoff << (retry - 1);
+                logger.debug("Optimistic locking conflict on {}, retry {} in {}ms", path, retry, backoff);
+                try {
+                    Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+
+    }
+
+    private void handleFailure(final String externalTaskId, final Exception e, final int retries,
+            final long retryTimeout) {
+
+        final Map<String, Object> request = new HashMap<>();
+        request.put("workerId", workerId);
+        request.put("errorMessage", e.getMessage());
+        request.put("errorDetails", buildIncidentDetails(e));
+        request.put("retries", retries);
+        request.put("retryTimeout", retryTimeout);
+        client.post("/external-task/" + externalTaskId + "/failure", request);
+
+    }
+
+    private void unlock(final String externalTaskId) {
+
+        try {
+            client.post("/external-task/" + externalTaskId + "/unlock", null);
+        } catch (RuntimeException e) {
+            logger.debug("Could not unlock external task '{}'", externalTaskId, e);
+        }
+
+    }
+
+    private static String buildIncidentDetails(final Exception e) {
+
+        final StringWriter result = new StringWriter();
+        try (final PrintWriter writer = new PrintWriter(result)) {
+            e.printStackTrace(writer);
+        }
+        return result.toString();
+
+    }
+
+    private static String getInternalKey(final String processDefinitionKey, final String topic) {
+
+        return processDefinitionKey + "#" + topic;
+
+    }
+
+    private <T extends RemoteSyncProcessingRegistration<?>> T register(final T registration) {
+
+        if (registration.getProcessDefinitionKey().indexOf('*') != -1) {
+            throw new UnsupportedOperationException("Patterns of process definition keys are not supported by "
+                    + "remote workers");
+        }
+
+        registrations.put(getInternalKey(registration.getProcessDefinitionKey(), registration.getTopic()),
+                registration);
+        return registration;
+
+    }
+
+    @Override
+    public ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerSyncProcessor processor) {
+
+        return register(new RemoteSyncProcessingRegistration<>(processDefinitionKey, topic, processor));
+
+    }
+
+    @Override
+    public ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerContextProcessor processor) {
+
+        return register(new RemoteSyncProcessingRegistration<>(processDefinitionKey, topic, processor));
+
+    }
+
+    @Override
+    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskProcessor(String processDefinitionKey,
+            String topic, ExternalTaskHandlerAsyncRequestProcessor requestProcessor,
+            ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+
+        return register(new RemoteAsyncProcessingRegistration<>(processDefinitionKey, topic, requestProcessor,
+                responseProcessor));
+
+    }
+
+    @Override
+    public ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> registerExternalTaskBatchProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerBatchProcessor processor) {
+
+        return register(new RemoteBatchProcessingRegistration(processDefinitionKey, topic, processor));
+
+    }
+
+    /**
+     * Not supported by remote workers: responses of asynchronous batch requests
+     * are correlated by the embedded engine's timers.
+     */
+    @Override
+    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskBatchProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerAsyncBatchRequestProcessor requestProcessor,
+            ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+
+        throw new UnsupportedOperationException("Asynchronous batch processors are not supported by remote workers");
+
+    }
+
+    @Override
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    @Override
+    public void setDefaultLockTimeout(long lockTimeout) {
+        this.defaultLockTimeout = lockTimeout;
+    }
+
+    /**
+     * Number of tasks processed in parallel. Has to be set before
+     * {@link #start()}.
+     */
+    @Override
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The maximum number of tasks in flight has to be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void setShutdownGracePeriod(long shutdownGracePeriod) {
+        this.shutdownGracePeriod = shutdownGracePeriod;
+    }
+
+    /**
+     * Tasks of all registrations are fetched by one request anyway.
+     */
+    @Override
+    public void setPartitionedFetching(boolean partitionedFetching) {
+        // nothing to partition remotely
+    }
+
+    /**
+     * Remote workers do not sweep: fetching long-polls all tasks available.
+     */
+    @Override
+    public void setSingletonSweep(boolean singletonSweep) {
+        // nothing to do remotely
+    }
+
+    @Override
+    public void setStartupRecovery(boolean startupRecovery) {
+        this.startupRecovery = startupRecovery;
+    }
+
+    /**
+     * Remote processors never hold a database connection: each report is a REST
+     * call processed in a transaction of its own.
+     */
+    @Override
+    public void setTransactionalProcessing(boolean transactionalProcessing) {
+        // nothing to do remotely
+    }
+
+    @Override
+    public void setOptimisticLockingRetries(int retries) {
+        this.optimisticLockingRetries = retries;
+    }
+
+    /**
+     * Not supported: completions are reported to the engine's REST API whose
+     * transactions this handler cannot track.
+     */
+    @Override
+    public void setProcessInstanceLanes(int lanes) {
+        if (lanes > 0) {
+            throw new UnsupportedOperationException("Process instance lanes are not supported by remote workers");
+        }
+    }
+
+    /**
+     * @param asyncResponseTimeout Milliseconds the engine holds a fetch request
+     *                             if no task is available (long polling)
+     */
+    public void setAsyncResponseTimeout(long asyncResponseTimeout) {
+        this.asyncResponseTimeout = asyncResponseTimeout;
+    }
+
+    /**
+     * @param fetchErrorBackoff Milliseconds to wait before fetching again if the
+     *                          engine is not available
+     */
+    public void setFetchErrorBackoff(long fetchErrorBackoff) {
+        this.fetchErrorBackoff = fetchErrorBackoff;
+    }
+
+    /**
+     * @param connectTimeout Milliseconds to wait for connecting to the engine
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        client.setConnectTimeout(connectTimeout);
+    }
+
+}
@@ -0,0 +1,183 @@
+package org.camunda.bpm.externaltask.remote;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerContextProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskPayloadStore;
+import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registration of {@link RemoteExternalTaskHandler}. Circuit breakers,
+ * claim-check, changed variables only, batch gathering and tenant scheduling
+ * rely on the embedded engine: they are optional and ignored by remote workers.
+ */
+public class RemoteSyncProcessingRegistration<T extends ExternalTaskSyncProcessingRegistration<?>>
+        implements ExternalTaskSyncProcessingRegistration<T> {
+
+    private static Logger logger = LoggerFactory.getLogger(RemoteSyncProcessingRegistration.class);
+
+    private final String processDefinitionKey;
+
+    private final String topic;
+
+    private final ExternalTaskHandlerProcessor processor;
+
+    private Long lockTimeout;
+
+    private List<String> variablesToFetch;
+
+    private Integer maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    RemoteSyncProcessingRegistration(final String processDefinitionKey, final String topic,
+            final ExternalTaskHandlerProcessor processor) {
+        this.processDefinitionKey = processDefinitionKey;
+        this.topic = topic;
+        this.processor = processor;
+    }
+
+    String getProcessDefinitionKey() {
+        return processDefinitionKey;
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    ExternalTaskHandlerProcessor getProcessor() {
+        return processor;
+    }
+
+    boolean isBatchProcessor() {
+        return processor instanceof ExternalTaskHandlerBatchProcessor;
+    }
+
+    /**
+     * Nothing to do: the next long poll fetches the tasks waiting for this
+     * registration.
+     */
+    @Override
+    public void activate() {
+    }
+
+    public Long getLockTimeout() {
+        return lockTimeout;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T lockTimeout(Long lockTimeout) {
+        this.lockTimeout = lockTimeout;
+        return (T) this;
+    }
+
+    public List<String> getVariablesToFetch() {
+        return variablesToFetch;
+    }
+
+    /*
+     * Processors using a context load variables lazily, so nothing has to be
+     * fetched unless defined explicitly.
+     */
+    List<String> getVariablesToFetchOnLock() {
+        if ((variablesToFetch == null)
+                && ((processor instanceof ExternalTaskHandlerContextProcessor)
+                        || isBatchProcessor())) {
+            return new LinkedList<>();
+        }
+        return variablesToFetch;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T variablesToFetch(List<String> variables) {
+        this.variablesToFetch = variables;
+        return (T) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T variablesToFetch(String... variables) {
+        this.variablesToFetch = new LinkedList<>();
+        Arrays.stream(variables).forEach(variablesToFetch::add);
+        return (T) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T fetchNoVariables() {
+        this.variablesToFetch = new LinkedList<>();
+        return (T) this;
+    }
+
+    @Override
+    public T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod) {
+        return ignored("Circuit breakers");
+    }
+
+    @Override
+    public T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod, Long slowCallThreshold) {
+        return ignored("Circuit breakers");
+    }
+
+    @Override
+    public T changedVariablesOnly() {
+        return ignored("Changed variables only");
+    }
+
+    @Override
+    public T claimCheck(ExternalTaskPayloadStore store, int threshold) {
+        return ignored("Claim-check");
+    }
+
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T maxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The maximum number of tasks in flight has to be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        return (T) this;
+    }
+
+    /**
+     * @return Number of tasks locked but not yet processed
+     */
+    AtomicInteger getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public T tenant(String tenantId, int weight) {
+        return ignored("Tenant scheduling");
+    }
+
+    @Override
+    public T tenants(String... tenantIds) {
+        return ignored("Tenant scheduling");
+    }
+
+    @Override
+    public T maxInFlightPerTenant(int maxInFlightPerTenant) {
+        return ignored("Tenant scheduling");
+    }
+
+    @SuppressWarnings("unchecked")
+    T ignored(final String option) {
+        logger.warn("{} of '{}#{}' ignored: not supported by remote workers", option, processDefinitionKey, topic);
+        return (T) this;
+    }
+
+}
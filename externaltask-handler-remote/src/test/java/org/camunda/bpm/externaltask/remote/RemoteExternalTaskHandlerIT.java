@@ -0,0 +1,233 @@
+package org.camunda.bpm.externaltask.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.camunda.bpm.externaltask.spi.RetryableException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the remote handler against a stub of Camunda's REST API which offers
+ * one task and records the requests reporting the task's result.
+ */
+public class RemoteExternalTaskHandlerIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    private static String TASK = "[{\"id\":\"task-1\",\"topicName\":\"" + TESTPROCESS_TESTTOPIC + "\","
+            + "\"processDefinitionKey\":\"" + TESTPROCESS_DEFINITION_KEY + "\",\"processInstanceId\":\"pi-1\","
+            + "\"businessKey\":\"Remote\",\"activityId\":\"TestService\",\"executionId\":\"pi-1\","
+            + "\"retries\":null,\"workerId\":\"remote\","
+            + "\"variables\":{\"input\":{\"type\":\"String\",\"value\":\"hello\",\"valueInfo\":{}}}}]";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BlockingQueue<Map.Entry<String, JsonNode>> reported = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean taskAvailable = new AtomicBoolean(true);
+
+    private volatile String lockedBeforeRestart = "[]";
+
+    private HttpServer server;
+
+    private RemoteExternalTaskHandler externalTaskHandler;
+
+    @Before
+    public void startStub() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/engine-rest/external-task", this::handle);
+        server.start();
+
+        externalTaskHandler = new RemoteExternalTaskHandler("http://localhost:"
+                + server.getAddress().getPort() + "/engine-rest");
+        externalTaskHandler.setWorkerId("remote");
+        externalTaskHandler.setAsyncResponseTimeout(200);
+        externalTaskHandler.setFetchErrorBackoff(100);
+
+    }
+
+    @After
+    public void stopStub() {
+
+        externalTaskHandler.shutdown();
+        server.stop(0);
+
+    }
+
+    @Test
+    public void testExternalTaskHandling() throws Exception {
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            Assert.assertEquals("business key", "Remote", businessKey);
+                            Assert.assertEquals("input", "hello", variables.get("input"));
+                            final Map<String, Object> result = new HashMap<>();
+                            result.put("result", 42);
+                            return result;
+                        });
+        externalTaskHandler.start();
+
+        final Map.Entry<String, JsonNode> report = reported.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("task reported", report);
+        Assert.assertEquals("operation", "/task-1/complete", report.getKey());
+        Assert.assertEquals("worker id", "remote", report.getValue().get("workerId").asText());
+        Assert.assertEquals("result type", "Integer",
+                report.getValue().get("variables").get("result").get("type").asText());
+        Assert.assertEquals("result", 42, report.getValue().get("variables").get("result").get("value").asInt());
+
+    }
+
+    @Test
+    public void testExternalTaskHandlingRetry() throws Exception {
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            throw new RetryableException("temporary failure", 3, retries, 1000l);
+                        });
+        externalTaskHandler.start();
+
+        final Map.Entry<String, JsonNode> report = reported.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("task reported", report);
+        Assert.assertEquals("operation", "/task-1/failure", report.getKey());
+        Assert.assertEquals("error message", "temporary failure", report.getValue().get("errorMessage").asText());
+        Assert.assertEquals("retries", 3, report.getValue().get("retries").asInt());
+        Assert.assertEquals("retry timeout", 1000, report.getValue().get("retryTimeout").asLong());
+
+    }
+
+    @Test
+    public void testStartupRecovery() throws Exception {
+
+        lockedBeforeRestart = "[{\"id\":\"task-0\",\"workerId\":\"remote\"}]";
+        taskAvailable.set(false);
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> null);
+        externalTaskHandler.setStartupRecovery(true);
+        externalTaskHandler.start();
+
+        final Map.Entry<String, JsonNode> report = reported.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("task reported", report);
+        Assert.assertEquals("operation", "/task-0/unlock", report.getKey());
+
+    }
+
+    @Test
+    public void testStartupRecoveryKeepsTasksWaitingForAsyncResponse() throws Exception {
+
+        lockedBeforeRestart = "[{\"id\":\"task-0\",\"workerId\":\"remote\",\"topicName\":\""
+                + TESTPROCESS_TESTTOPIC + "\",\"processDefinitionKey\":\"" + TESTPROCESS_DEFINITION_KEY + "\"},"
+                + "{\"id\":\"task-9\",\"workerId\":\"remote\",\"topicName\":\"OtherTopic\","
+                + "\"processDefinitionKey\":\"" + TESTPROCESS_DEFINITION_KEY + "\"}]";
+        taskAvailable.set(false);
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (correlationId, processInstanceId, businessKey, activityId, executionId, variables,
+                                retries) -> null,
+                        (processInstanceId, businessKey, activityId, executionId, retries, correlationId, input,
+                                variablesToBeSet) -> null);
+        externalTaskHandler.setStartupRecovery(true);
+        externalTaskHandler.start();
+
+        final Map.Entry<String, JsonNode> report = reported.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("task reported", report);
+        Assert.assertEquals("operation", "/task-9/unlock", report.getKey());
+        Assert.assertNull("task waiting for a response unlocked", reported.poll(500, TimeUnit.MILLISECONDS));
+
+    }
+
+    @Test
+    public void testNoStartupRecoveryByDefault() throws Exception {
+
+        lockedBeforeRestart = "[{\"id\":\"task-0\",\"workerId\":\"remote\"}]";
+        taskAvailable.set(false);
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> null);
+        externalTaskHandler.start();
+
+        Assert.assertNull("task unlocked", reported.poll(500, TimeUnit.MILLISECONDS));
+
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+
+        final String path = exchange.getRequestURI().getPath().substring("/engine-rest/external-task".length());
+        final byte[] request = readFully(exchange.getRequestBody());
+        final JsonNode body = request.length == 0 ? null : objectMapper.readTree(request);
+
+        final String response;
+        if ("GET".equals(exchange.getRequestMethod())) {
+            Assert.assertEquals("query", "locked=true&workerId=remote", exchange.getRequestURI().getQuery());
+            response = lockedBeforeRestart;
+        } else if ("/fetchAndLock".equals(path)) {
+            Assert.assertEquals("topic", TESTPROCESS_TESTTOPIC, body.get("topics").get(0).get("topicName").asText());
+            if (taskAvailable.getAndSet(false)) {
+                response = TASK;
+            } else {
+                try {
+                    Thread.sleep(body.get("asyncResponseTimeout").asLong());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response = "[]";
+            }
+        } else {
+            reported.add(new AbstractMap.SimpleEntry<>(path, body));
+            response = null;
+        }
+
+        if (response == null) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            final byte[] content = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        }
+        exchange.close();
+
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.camunda.bpm.externaltask.spi;
+
+/**
+ * The configuration of a batch processor's registration.
+ *
+ * @see ExternalTaskHandler#registerExternalTaskBatchProcessor(String, String, ExternalTaskHandlerBatchProcessor)
+ */
+public interface ExternalTaskBatchProcessingRegistration<T extends ExternalTaskBatchProcessingRegistration<?>>
+        extends ExternalTaskSyncProcessingRegistration<T> {
+
+    /**
+     * Limit the number of tasks passed to the batch processor at once. Tasks of
+     * one fetch exceeding this size are split into several batches processed in
+     * parallel. By default all tasks of one fetch form a batch.
+     *
+     * @param batchSize The maximum number of tasks per batch
+     * @return the current registration for fluent API
+     */
+    T batchSize(int batchSize);
+
+    /**
+     * Do not fetch the tasks of the batch processor immediately on task creation
+     * but gather tasks created within the given period to form bigger batches.
+     * <p>
+     * Optional.
+     *
+     * @param batchGatheringPeriod Milliseconds to wait for further tasks
+     * @return the current registration for fluent API
+     */
+    T batchGatheringPeriod(long batchGatheringPeriod);
+
+}
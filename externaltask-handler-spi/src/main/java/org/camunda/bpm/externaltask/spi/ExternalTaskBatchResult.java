@@ -0,0 +1,116 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.camunda.bpm.engine.delegate.BpmnError;
+
+/**
+ * The outcome of processing a single external task as part of a batch.
+ * 
+ * @see ExternalTaskHandlerBatchProcessor
+ * @see ExternalTaskHandlerAsyncBatchRequestProcessor
+ */
+public class ExternalTaskBatchResult {
+
+    public enum Type {
+        SUCCESS, BPMN_ERROR, FAILURE, REQUESTED
+    }
+
+    private final Type type;
+
+    private final Map<String, Object> variables;
+
+    private final BpmnError bpmnError;
+
+    private final Exception failure;
+
+    private final Date responseTimeout;
+
+    private ExternalTaskBatchResult(final Type type, final Map<String, Object> variables,
+            final BpmnError bpmnError, final Exception failure, final Date responseTimeout) {
+
+        this.type = type;
+        this.variables = variables;
+        this.bpmnError = bpmnError;
+        this.failure = failure;
+        this.responseTimeout = responseTimeout;
+
+    }
+
+    /**
+     * The task was processed successfully and will be completed.
+     * 
+     * @param variables The variables to be set (null for none)
+     * @return The result
+     */
+    public static ExternalTaskBatchResult success(final Map<String, Object> variables) {
+
+        return new ExternalTaskBatchResult(Type.SUCCESS, variables, null, null, null);
+
+    }
+
+    /**
+     * The task's error has to be processed by the workflow.
+     * 
+     * @param bpmnError The BPMN error (use {@link BpmnErrorWithVariables} to set
+     *                  variables)
+     * @return The result
+     */
+    public static ExternalTaskBatchResult bpmnError(final BpmnError bpmnError) {
+
+        return new ExternalTaskBatchResult(Type.BPMN_ERROR, null, bpmnError, null, null);
+
+    }
+
+    /**
+     * Processing the task failed. A {@link RetryableException} causes a retry,
+     * any other exception causes a Camunda incident.
+     * 
+     * @param failure The reason
+     * @return The result
+     */
+    public static ExternalTaskBatchResult failure(final Exception failure) {
+
+        return new ExternalTaskBatchResult(Type.FAILURE, null, null, failure, null);
+
+    }
+
+    /**
+     * The task's request was sent and the response has to be passed to
+     * {@link ExternalTaskHandler#handleAsyncInput(String, Object)} using the
+     * task's id as the correlation id. Only valid for asynchronous batches.
+     * 
+     * @param responseTimeout Overrides
+     *                        {@link ExternalTaskAsyncProcessingRegistration#responseTimeout(Long)}
+     *                        for this task (null to use the registration's
+     *                        timeout)
+     * @return The result
+     */
+    public static ExternalTaskBatchResult requested(final Date responseTimeout) {
+
+        return new ExternalTaskBatchResult(Type.REQUESTED, null, null, null, responseTimeout);
+
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    public BpmnError getBpmnError() {
+        return bpmnError;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public Date getResponseTimeout() {
+        return responseTimeout;
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The context of an external task to be processed. Process variables are
+ * loaded once they are accessed for the first time and are cached afterwards.
+ * 
+ * @see ExternalTaskHandlerContextProcessor
+ */
+public interface ExternalTaskContext {
+
+    /**
+     * @return The task's id which is also used as the correlation id for
+     *         asynchronous processing
+     */
+    String getExternalTaskId();
+
+    String getProcessDefinitionKey();
+
+    String getTopic();
+
+    String getProcessInstanceId();
+
+    String getBusinessKey();
+
+    String getActivityId();
+
+    String getActivityInstanceId();
+
+    String getExecutionId();
+
+    String getTenantId();
+
+    String getWorkerId();
+
+    /**
+     * @return How many attempts left (null if first attempt)
+     */
+    Integer getRetries();
+
+    Date getLockExpirationTime();
+
+    long getPriority();
+
+    /**
+     * Load a process variable if not yet loaded.
+     * 
+     * @param <T>  The variable's type
+     * @param name The variable's name
+     * @return The variable's value or null if not set
+     */
+    <T> T getVariable(String name);
+
+    /**
+     * Load several process variables at once. Variables already loaded are taken
+     * from the cache.
+     * 
+     * @param names The names of the variables to be loaded
+     * @return The variables set (variables not set are not part of the map)
+     */
+    Map<String, Object> getVariables(String... names);
+
+    /**
+     * Read a payload without loading it into memory as a whole. If the
+     * registration uses claim-check processing the payload is read from the
+     * payload store, otherwise the content of the byte[] or String variable is
+     * streamed.
+     * 
+     * @param name The variable's name
+     * @return The payload or null if the variable is not set or neither of type
+     *         byte[] nor String
+     * @throws IOException If the payload cannot be read
+     * @see ExternalTaskSyncProcessingRegistration#claimCheck(ExternalTaskPayloadStore, int)
+     */
+    InputStream getPayload(String name) throws IOException;
+
+    /**
+     * Write a payload which is set as a byte[] variable on completion. If the
+     * registration uses claim-check processing the payload is written to the
+     * payload store and only the reference is stored as a process variable. The
+     * stream has to be closed by the processor.
+     * 
+     * @param name The variable's name
+     * @return The stream to write the payload
+     * @throws IOException If the payload cannot be written
+     */
+    OutputStream setPayload(String name) throws IOException;
+
+}
@@ -83,8 +83,17 @@ import java.util.Map;
  * </p>
  * <ul>
  * <li>ExternalTaskHandler{@link #registerExternalTaskProcessor(String, String, ExternalTaskHandlerSyncProcessor)}
+ * <li>ExternalTaskHandler{@link #registerExternalTaskProcessor(String, String, ExternalTaskHandlerContextProcessor)}
  * <li>ExternalTaskHandler{@link #registerExternalTaskProcessor(String, String, ExternalTaskHandlerAsyncRequestProcessor, ExternalTaskHandlerAsyncResponseProcessor)}
+ * <li>ExternalTaskHandler{@link #registerExternalTaskBatchProcessor(String, String, ExternalTaskHandlerBatchProcessor)}
+ * <li>ExternalTaskHandler{@link #registerExternalTaskBatchProcessor(String, String, ExternalTaskHandlerAsyncBatchRequestProcessor, ExternalTaskHandlerAsyncResponseProcessor)}
  * </ul>
+ * <p>
+ * The process definition key given on registration may contain '*' as a
+ * wildcard (e.g. <i>"*"</i> for all definitions or <i>"order-*"</i>): Tasks of a
+ * topic of all definitions matching are fetched at once. Registrations of a
+ * definition's exact key take precedence.
+ * </p>
  * 
  * @author Stephan Pelikan
  */
@@ -107,6 +116,26 @@ public interface ExternalTaskHandler {
      */
     ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
             String processDefinitionKey, String topic, ExternalTaskHandlerSyncProcessor processor);
+
+    /**
+     * Register processor for a certain process definition and a specific topic.
+     * <ul>
+     * <li>Process variables are loaded on first access using the given context.
+     * Variables defined by
+     * {@link ExternalTaskSyncProcessingRegistration#variablesToFetch(String...)}
+     * are fetched in advance.</li>
+     * <li>The default lock timeout will be uses (1 minute or Spring property
+     * &quot;application.external-task-handler.lock-timeout&quot;)</li>
+     * </ul>
+     * 
+     * @param processDefinitionKey
+     * @param topic
+     * @param processor
+     * 
+     * @see ExternalTaskHandlerContextProcessor#apply(ExternalTaskContext)
+     */
+    ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerContextProcessor processor);
     
     /**
      * Register processor for a certain process definition and a specific topic.
@@ -384,6 +413,53 @@ public interface ExternalTaskHandler {
 //            ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor, String firstVariableToFetch,
 //            String... variablesToFetch);
 
+    /**
+     * Register a batch processor for a certain process definition and a specific
+     * topic.
+     * <ul>
+     * <li>All tasks locked by one fetch are passed at once (see
+     * {@link ExternalTaskBatchProcessingRegistration#batchSize(int)} and
+     * {@link ExternalTaskBatchProcessingRegistration#batchGatheringPeriod(long)}).</li>
+     * <li>Process variables are loaded on first access using the given contexts.
+     * Variables defined by
+     * {@link ExternalTaskSyncProcessingRegistration#variablesToFetch(String...)}
+     * are fetched in advance.</li>
+     * <li>The default lock timeout will be uses (1 minute or Spring property
+     * &quot;application.external-task-handler.lock-timeout&quot;)</li>
+     * </ul>
+     * 
+     * @param processDefinitionKey
+     * @param topic
+     * @param processor
+     * 
+     * @see ExternalTaskHandlerBatchProcessor#apply(java.util.List)
+     */
+    ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> registerExternalTaskBatchProcessor(
+            String processDefinitionKey, String topic, ExternalTaskHandlerBatchProcessor processor);
+
+    /**
+     * Register processors for asynchronous batch processing for a certain process
+     * definition and a specific topic. Requests are sent in batches, responses
+     * are correlated for each task separately.
+     * 
+     * @param <I>                  The type of the input given by an asynchronous
+     *                             processor
+     * @param <R>                  The type of the response of processing the
+     *                             asynchronous input
+     * @param processDefinitionKey
+     * @param topic
+     * @param requestProcessor
+     * @param responseProcessor
+     * 
+     * @see ExternalTaskHandlerAsyncBatchRequestProcessor#apply(java.util.List)
+     * @see ExternalTaskHandlerAsyncResponseProcessor#apply(String, String, String,
+     *      Integer, String, Object, Map)
+     */
+    <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskBatchProcessor(String processDefinitionKey,
+            String topic,
+            ExternalTaskHandlerAsyncBatchRequestProcessor requestProcessor,
+            ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor);
+
     /**
      * Feed asynchronous input to the external task handler which will call the
      * response handler registered before.
@@ -420,4 +496,92 @@ public interface ExternalTaskHandler {
      */
     void setDefaultLockTimeout(long lockTimeout);
     
+    /**
+     * @param maxInFlight The maximum number of tasks locked but not yet processed
+     *                    (queued or running) across all registrations. Fetches
+     *                    are sized to the free capacity, so no task is locked
+     *                    which cannot be processed before its lock expires. Should
+     *                    not exceed the capacity of the executor used.
+     */
+    void setMaxInFlight(int maxInFlight);
+    
+    /**
+     * @param shutdownGracePeriod Milliseconds to wait for running processors on
+     *                            shutdown. Tasks fetched but not yet started are
+     *                            unlocked immediately.
+     */
+    void setShutdownGracePeriod(long shutdownGracePeriod);
+    
+    /**
+     * The sweep picking up tasks lost (e.g. due to a crash) runs on one node of a
+     * cluster only: the node holding a lease stored in the database. If that node
+     * fails, another node takes over once the lease expires. Ignored if fetching
+     * is partitioned, because each node sweeps its own partitions then.
+     * 
+     * @param singletonSweep Whether the sweep runs on one node (default) or on
+     *                       every node
+     */
+    void setSingletonSweep(boolean singletonSweep);
+    
+    /**
+     * On startup tasks still locked by this node's worker id (e.g. fetched
+     * before a crash) are unlocked and fetched again immediately instead of
+     * waiting for their locks to expire. Tasks of asynchronous processors are
+     * kept locked since their response may still arrive. This requires each node
+     * to use a worker id of its own which is stable across restarts.
+     * 
+     * @param startupRecovery Whether to unlock those tasks on startup or not
+     *                        (default)
+     */
+    void setStartupRecovery(boolean startupRecovery);
+    
+    /**
+     * By default processors run in a transaction, so a processor's call of a
+     * remote system holds a database connection for its whole duration. The
+     * completion or BPMN error is reported in a transaction of its own, which
+     * needs a second connection while the processor's transaction is open. If
+     * disabled processors run without a transaction and each report (completion,
+     * BPMN error or failure) uses a short transaction of its own. The number of
+     * tasks processed concurrently is then limited by threads instead of
+     * database connections.
+     * 
+     * @param transactionalProcessing Whether processors run in a transaction
+     *                                (default) or not
+     */
+    void setTransactionalProcessing(boolean transactionalProcessing);
+    
+    /**
+     * Completions and BPMN errors failing due to an optimistic locking conflict
+     * (e.g. a sibling task completed concurrently) are retried after a randomized
+     * back-off. Each attempt runs in a transaction of its own, so the processor
+     * is not called again - whether it runs in a transaction or not.
+     * 
+     * @param retries The maximum number of retries (default 3) or 0 to raise an
+     *                incident on the first conflict
+     */
+    void setOptimisticLockingRetries(int retries);
+    
+    /**
+     * Process tasks of the same process instance one after the other: Tasks are
+     * assigned to one of the given number of lanes by their process instance id.
+     * Tasks of a lane are processed sequentially, tasks of different lanes in
+     * parallel. This avoids optimistic locking conflicts of completions of tasks
+     * created by parallel gateways. Batch processors are not affected.
+     * 
+     * @param lanes The number of lanes (should not be less than the executor's
+     *              threads) or 0 to process all tasks in parallel (default)
+     */
+    void setProcessInstanceLanes(int lanes);
+    
+    /**
+     * Partition external tasks among the nodes of a cluster: Each node holds a
+     * lease (renewed while fetching) and the sweep for lost tasks only fetches
+     * tasks whose process instance belongs to the current node's partitions. Task
+     * events only fetch the tasks of the process instance which caused the
+     * event. This avoids nodes competing for the same tasks.
+     * 
+     * @param partitionedFetching Whether to fetch partitioned or not
+     */
+    void setPartitionedFetching(boolean partitionedFetching);
+    
 }
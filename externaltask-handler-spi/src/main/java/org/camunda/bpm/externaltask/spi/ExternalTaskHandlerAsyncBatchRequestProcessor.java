@@ -0,0 +1,28 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Used as a method signature for sending the requests of several external
+ * tasks at once. Each task's response is correlated separately by
+ * {@link ExternalTaskHandler#handleAsyncInput(String, Object)} using the
+ * task's id as the correlation id.
+ */
+@FunctionalInterface
+public interface ExternalTaskHandlerAsyncBatchRequestProcessor extends ExternalTaskHandlerProcessor {
+
+    /**
+     * @param tasks The contexts of the tasks to be processed
+     * @return The result of each task by the task's id (see
+     *         {@link ExternalTaskContext#getExternalTaskId()}), typically
+     *         {@link ExternalTaskBatchResult#requested(java.util.Date)}. Tasks
+     *         not part of the map will cause a Camunda incident.
+     * @throws RetryableException An error which should cause a retry of all tasks
+     * @throws Exception          Any other error which will cause a Camunda
+     *                            incident for all tasks
+     * @see ExternalTaskBatchResult
+     */
+    Map<String, ExternalTaskBatchResult> apply(List<ExternalTaskContext> tasks) throws RetryableException, Exception;
+
+}
@@ -0,0 +1,28 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Used as a method signature for processing several external tasks at once,
+ * e.g. to use bulk APIs of downstream systems. The tasks passed are those of
+ * one fetch (see
+ * {@link ExternalTaskBatchProcessingRegistration#batchSize(int)} and
+ * {@link ExternalTaskBatchProcessingRegistration#batchGatheringPeriod(long)}).
+ */
+@FunctionalInterface
+public interface ExternalTaskHandlerBatchProcessor extends ExternalTaskHandlerProcessor {
+
+    /**
+     * @param tasks The contexts of the tasks to be processed
+     * @return The result of each task by the task's id (see
+     *         {@link ExternalTaskContext#getExternalTaskId()}). Tasks not part of
+     *         the map will cause a Camunda incident.
+     * @throws RetryableException An error which should cause a retry of all tasks
+     * @throws Exception          Any other error which will cause a Camunda
+     *                            incident for all tasks
+     * @see ExternalTaskBatchResult
+     */
+    Map<String, ExternalTaskBatchResult> apply(List<ExternalTaskContext> tasks) throws RetryableException, Exception;
+
+}
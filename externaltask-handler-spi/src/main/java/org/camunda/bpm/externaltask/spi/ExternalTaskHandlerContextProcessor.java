@@ -0,0 +1,29 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.util.Map;
+
+import org.camunda.bpm.engine.delegate.BpmnError;
+
+/**
+ * Used as a method signature for processing external tasks. Unlike
+ * {@link ExternalTaskHandlerSyncProcessor} process variables are not fetched
+ * in advance but loaded on first access using the given context.
+ */
+@FunctionalInterface
+public interface ExternalTaskHandlerContextProcessor extends ExternalTaskHandlerProcessor {
+
+    /**
+     * @param context The task's context used to access metadata and variables
+     * @return The variables as a result of successful processing (null for none)
+     * @throws BpmnError          If a error has to be treated as BPMN error and
+     *                            therefore processed by the workflow
+     * @throws RetryableException Any error which should cause a retry.
+     * @throws Exception          Any other error which will cause a Camunda
+     *                            incident
+     * @see BpmnError
+     * @see BpmnErrorWithVariables
+     * @see RetryableException
+     */
+    Map<String, Object> apply(ExternalTaskContext context) throws BpmnError, RetryableException, Exception;
+
+}
@@ -0,0 +1,53 @@
+package org.camunda.bpm.externaltask.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A blob store used for claim-check processing: Large payloads are not stored
+ * as process variables but in this store. The process variable only holds a
+ * reference to the payload.
+ * <p>
+ * Retention: The handler deletes a payload once the completion of a task
+ * overwrites its reference variable and deletes the payloads written for a
+ * completion which is rolled back. Payloads still referenced when the process
+ * instance ends, references replaced by other means (e.g. the engine's API or
+ * other delegates) and payloads whose deletion failed are not deleted by the
+ * handler. Implementations have to take care of them, e.g. by removing
+ * payloads older than the longest lifetime of a process instance.
+ * 
+ * @see ExternalTaskSyncProcessingRegistration#claimCheck(ExternalTaskPayloadStore, int)
+ */
+public interface ExternalTaskPayloadStore {
+
+    /**
+     * @return A new and unique reference used to store a payload. It has to
+     *         consist of letters, digits and the characters '.', '_', '~', '/'
+     *         and '-', start with a letter or digit and be at most 255
+     *         characters long.
+     */
+    String newReference();
+
+    /**
+     * @param reference The payload's reference (see {@link #newReference()})
+     * @return A stream to write the payload. The payload has to be available once
+     *         the stream is closed.
+     * @throws IOException If the payload cannot be written
+     */
+    OutputStream openOutputStream(String reference) throws IOException;
+
+    /**
+     * @param reference The payload's reference
+     * @return A stream to read the payload
+     * @throws IOException If the payload does not exist or cannot be read
+     */
+    InputStream openInputStream(String reference) throws IOException;
+
+    /**
+     * @param reference The reference of the payload which is not used any more
+     * @throws IOException If the payload cannot be deleted
+     */
+    void delete(String reference) throws IOException;
+
+}
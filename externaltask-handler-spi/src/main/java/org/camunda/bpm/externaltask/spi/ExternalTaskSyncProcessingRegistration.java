@@ -4,8 +4,22 @@ import java.util.List;
 
 import org.camunda.feel.syntaxtree.If;
 
+/**
+ * The configuration of a registration. Options documented as optional rely on
+ * the embedded engine: handlers not supporting them (e.g. remote workers)
+ * ignore them and log a warning.
+ */
 public interface ExternalTaskSyncProcessingRegistration<T extends ExternalTaskSyncProcessingRegistration<?>> {
 
+    /**
+     * Signal that the configuration of this registration is complete. Tasks
+     * already waiting for a registration made after the application is ready
+     * are fetched immediately then, otherwise they are picked up by the next
+     * recovery sweep. Registrations made before are fetched once the
+     * application is ready anyway.
+     */
+    void activate();
+
     /**
      * Use this lock timeout for external tasks.
      * 
@@ -42,4 +56,119 @@ public interface ExternalTaskSyncProcessingRegistration<T extends ExternalTaskSy
      */
     T fetchNoVariables();
 
+    /**
+     * Protect a downstream system by a circuit breaker. The outcome of the last
+     * processor calls (RetryableException and any other exception count as
+     * failure, BPMN errors do not) is recorded. Once the failure rate reaches the
+     * given threshold the breaker opens: no tasks are fetched for this
+     * registration and tasks already fetched but not yet started are unlocked.
+     * After the open period a single task is processed as a probe. If the probe
+     * succeeds the breaker closes again.
+     * <p>
+     * Optional.
+     *
+     * @param failureRateThreshold Percentage (1-100) of failed calls opening the
+     *                             breaker
+     * @param windowSize           Number of most recent calls considered
+     * @param openPeriod           Milliseconds the breaker stays open before a
+     *                             probe is processed
+     * @return the current registration for fluent API
+     */
+    T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod);
+
+    /**
+     * Like {@link #circuitBreaker(int, int, long)} but additionally calls taking
+     * longer than the given threshold are counted as failed.
+     * <p>
+     * Optional.
+     *
+     * @param failureRateThreshold Percentage (1-100) of failed calls opening the
+     *                             breaker
+     * @param windowSize           Number of most recent calls considered
+     * @param openPeriod           Milliseconds the breaker stays open before a
+     *                             probe is processed
+     * @param slowCallThreshold    Milliseconds after which a successful call is
+     *                             counted as failed
+     * @return the current registration for fluent API
+     */
+    T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod, Long slowCallThreshold);
+
+    /**
+     * On completion write only variables which were added or changed. The
+     * serialized form of each returned value is compared to the value the
+     * variable had before: for synchronous processors to the values fetched,
+     * otherwise to the current values loaded on completion. This avoids needless
+     * updates (and history entries) of large JSON or object variables returned
+     * unchanged.
+     * <p>
+     * Optional.
+     *
+     * @return the current registration for fluent API
+     */
+    T changedVariablesOnly();
+
+    /**
+     * Store large payloads outside of Camunda's database. On completion byte[]
+     * and String variables larger than the given threshold are written to the
+     * payload store and only a reference is stored as a process variable.
+     * Fetched references are resolved transparently, processors using
+     * {@link ExternalTaskContext} may stream payloads instead (see
+     * {@link ExternalTaskContext#getPayload(String)} and
+     * {@link ExternalTaskContext#setPayload(String)}).
+     * <p>
+     * Optional.
+     * 
+     * @param store     The store used for payloads
+     * @param threshold Size in bytes above which a payload is offloaded
+     * @return the current registration for fluent API
+     */
+    T claimCheck(ExternalTaskPayloadStore store, int threshold);
+
+    /**
+     * Limit the number of tasks of this registration locked but not yet
+     * processed (queued or running). Fetches are sized to the free capacity.
+     * 
+     * @param maxInFlight The maximum number of tasks in flight
+     * @return the current registration for fluent API
+     * @see ExternalTaskHandler#setMaxInFlight(int)
+     */
+    T maxInFlight(int maxInFlight);
+
+    /**
+     * Fetch tasks of the given tenant. Once tenants are configured only tasks of
+     * those tenants are fetched and the capacity of each fetch is shared between
+     * them according to their weights, so one tenant's backlog cannot starve
+     * the others.
+     * <p>
+     * Optional.
+     * 
+     * @param tenantId The tenant's id or null for tasks without tenant
+     * @param weight   The tenant's share relative to the other tenants
+     * @return the current registration for fluent API
+     */
+    T tenant(String tenantId, int weight);
+
+    /**
+     * Fetch tasks of the given tenants round-robin (equal weights).
+     * <p>
+     * Optional.
+     * 
+     * @param tenantIds The tenants' ids (null for tasks without tenant)
+     * @return the current registration for fluent API
+     * @see #tenant(String, int)
+     */
+    T tenants(String... tenantIds);
+
+    /**
+     * Limit the number of tasks of each tenant locked but not yet processed.
+     * Requires tenants to be configured.
+     * <p>
+     * Optional.
+     * 
+     * @param maxInFlightPerTenant The maximum number of tasks in flight per tenant
+     * @return the current registration for fluent API
+     * @see #tenant(String, int)
+     */
+    T maxInFlightPerTenant(int maxInFlightPerTenant);
+
 }
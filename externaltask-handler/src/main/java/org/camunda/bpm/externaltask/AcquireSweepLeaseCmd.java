@@ -0,0 +1,71 @@
+package org.camunda.bpm.externaltask;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+
+/**
+ * Acquires or renews the lease of the node running the recovery sweep. The
+ * lease is stored in Camunda's table ACT_GE_PROPERTY as
+ * <i>expiresAt:nodeName</i>. If nodes compete for an expired lease, only one
+ * of them succeeds: the others fail on the property's optimistic locking (or
+ * its primary key if the lease did not exist yet).
+ */
+public class AcquireSweepLeaseCmd implements Command<Boolean> {
+
+    static final String SWEEP_LEASE = "externaltask.sweep";
+
+    private final String nodeName;
+
+    private final long leaseTimeout;
+
+    public AcquireSweepLeaseCmd(final String nodeName, final long leaseTimeout) {
+
+        this.nodeName = nodeName;
+        this.leaseTimeout = leaseTimeout;
+
+    }
+
+    @Override
+    public Boolean execute(final CommandContext commandContext) {
+
+        final long now = System.currentTimeMillis();
+        final String value = (now + leaseTimeout) + ":" + nodeName;
+
+        final PropertyEntity lease = commandContext.getPropertyManager().findPropertyById(SWEEP_LEASE);
+        if (lease == null) {
+            commandContext.getDbEntityManager().insert(new PropertyEntity(SWEEP_LEASE, value));
+            return Boolean.TRUE;
+        }
+
+        if (!nodeName.equals(getHolder(lease))
+                && (getExpiresAt(lease) > now)) {
+            return Boolean.FALSE;
+        }
+
+        lease.setValue(value);
+        return Boolean.TRUE;
+
+    }
+
+    static String getHolder(final PropertyEntity lease) {
+
+        final String value = lease.getValue();
+        final int separator = value == null ? -1 : value.indexOf(':');
+        return separator == -1 ? null : value.substring(separator + 1);
+
+    }
+
+    private static long getExpiresAt(final PropertyEntity lease) {
+
+        final String value = lease.getValue();
+        final int separator = value == null ? -1 : value.indexOf(':');
+        try {
+            return Long.parseLong(value.substring(0, separator));
+        } catch (RuntimeException e) {
+            return 0; // unreadable: treat as expired
+        }
+
+    }
+
+}
@@ -0,0 +1,283 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A count based circuit breaker: The outcome of the last <i>windowSize</i>
+ * processor calls is recorded. If the rate of failed (or slow) calls reaches
+ * the threshold the breaker opens. After the open period a single probe is
+ * permitted (half-open) which closes the breaker on success or opens it again
+ * on failure. The probe is reserved by the fetch locking it, so concurrent
+ * fetches do not lock further tasks which would have to be unlocked again.
+ * <p>
+ * Each call processed has to acquire a {@link Permission} and reports its
+ * outcome using that permission. Outcomes of calls permitted before the last
+ * state transition are ignored, so in half-open state only the probe decides.
+ * The state listener is called after the breaker's lock was released.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * The permission to process a call, tagged with the state it was granted in.
+     */
+    static final class Permission {
+
+        private final long generation;
+
+        private Permission(final long generation) {
+            this.generation = generation;
+        }
+
+    }
+
+    private final String name;
+
+    private final int failureRateThreshold;
+
+    private final long openPeriod;
+
+    private final Long slowCallThreshold;
+
+    private final BiConsumer<String, State> stateListener;
+
+    private final boolean[] window;
+
+    private int position;
+
+    private int recordedCalls;
+
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+
+    /*
+     * Incremented on each state transition to tell outdated permissions.
+     */
+    private long generation;
+
+    private long openedAt;
+
+    private boolean probeInFlight;
+
+    private long probeReservedAt = -1;
+
+    CircuitBreaker(final String name, final int failureRateThreshold, final int windowSize,
+            final long openPeriod, final Long slowCallThreshold,
+            final BiConsumer<String, State> stateListener) {
+
+        if ((failureRateThreshold < 1) || (failureRateThreshold > 100)) {
+            throw new IllegalArgumentException("The failure rate threshold has to be a percentage between 1 and 100");
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size has to be at least 1");
+        }
+
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.openPeriod = openPeriod;
+        this.slowCallThreshold = slowCallThreshold;
+        this.stateListener = stateListener;
+
+    }
+
+    public synchronized State getState() {
+
+        return state;
+
+    }
+
+    long getOpenPeriod() {
+
+        return openPeriod;
+
+    }
+
+    /**
+     * @param maxTasks The number of tasks which would be fetched without a circuit breaker
+     * @return The number of tasks which may be fetched at the moment
+     */
+    int getFetchLimit(final int maxTasks) {
+
+        final State transition;
+        final int result;
+        synchronized (this) {
+            transition = checkOpenPeriodExpired();
+            switch (state) {
+            case OPEN:
+                result = 0;
+                break;
+            case HALF_OPEN:
+                if (probeInFlight || isProbeReserved()) {
+                    result = 0;
+                } else {
+                    probeReservedAt = System.currentTimeMillis();
+                    result = 1;
+                }
+                break;
+            default:
+                result = maxTasks;
+            }
+        }
+        notifyStateListener(transition);
+        return result;
+
+    }
+
+    /**
+     * To be called after each fetch limited by {@link #getFetchLimit(int)}.
+     * 
+     * @param locked The number of tasks locked
+     */
+    synchronized void onFetched(final int locked) {
+
+        if ((state == State.HALF_OPEN)
+                && (locked == 0)) {
+            probeReservedAt = -1; // no task to probe, let the next fetch try
+        }
+
+    }
+
+    /*
+     * A reservation expires after the open period in case the probe task was
+     * lost (e.g. rejected by the executor) before being processed.
+     */
+    private boolean isProbeReserved() {
+
+        return (probeReservedAt != -1)
+                && (System.currentTimeMillis() - probeReservedAt < openPeriod);
+
+    }
+
+    /**
+     * @return The permission to process a task fetched before or
+     *         <code>null</code> if it must not be processed now. In half-open
+     *         state only a single probe is permitted.
+     */
+    Permission tryAcquirePermission() {
+
+        final State transition;
+        final Permission result;
+        synchronized (this) {
+            transition = checkOpenPeriodExpired();
+            switch (state) {
+            case OPEN:
+                result = null;
+                break;
+            case HALF_OPEN:
+                if (probeInFlight) {
+                    result = null;
+                } else {
+                    probeInFlight = true;
+                    probeReservedAt = -1;
+                    result = new Permission(generation);
+                }
+                break;
+            default:
+                result = new Permission(generation);
+            }
+        }
+        notifyStateListener(transition);
+        return result;
+
+    }
+
+    void onSuccess(final Permission permission, final long duration) {
+
+        onResult(permission, (slowCallThreshold != null) && (duration > slowCallThreshold));
+
+    }
+
+    void onFailure(final Permission permission) {
+
+        onResult(permission, true);
+
+    }
+
+    private void onResult(final Permission permission, final boolean failed) {
+
+        final State transition;
+        synchronized (this) {
+            transition = recordResult(permission, failed);
+        }
+        notifyStateListener(transition);
+
+    }
+
+    private State recordResult(final Permission permission, final boolean failed) {
+
+        if (permission.generation != generation) {
+            return null; // outcome of a call permitted before the last transition
+        }
+
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            return transitionTo(failed ? State.OPEN : State.CLOSED);
+        }
+
+        if (recordedCalls == window.length) {
+            if (window[position]) {
+                --failedCalls;
+            }
+        } else {
+            ++recordedCalls;
+        }
+        window[position] = failed;
+        if (failed) {
+            ++failedCalls;
+        }
+        position = (position + 1) % window.length;
+
+        if ((recordedCalls == window.length)
+                && (failedCalls * 100 >= failureRateThreshold * window.length)) {
+            return transitionTo(State.OPEN);
+        }
+        return null;
+
+    }
+
+    private State checkOpenPeriodExpired() {
+
+        if ((state == State.OPEN)
+                && (System.currentTimeMillis() - openedAt >= openPeriod)) {
+            return transitionTo(State.HALF_OPEN);
+        }
+        return null;
+
+    }
+
+    /**
+     * @return The new state to be passed to the listener once the lock is released
+     */
+    private State transitionTo(final State newState) {
+
+        state = newState;
+        ++generation;
+        if (newState == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (newState == State.HALF_OPEN) {
+            probeInFlight = false;
+            probeReservedAt = -1;
+        } else {
+            recordedCalls = 0;
+            failedCalls = 0;
+            position = 0;
+        }
+        return newState;
+
+    }
+
+    private void notifyStateListener(final State transition) {
+
+        if ((transition != null)
+                && (stateListener != null)) {
+            stateListener.accept(name, transition);
+        }
+
+    }
+
+}
@@ -0,0 +1,289 @@
+package org.camunda.bpm.externaltask;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.camunda.bpm.engine.variable.value.BytesValue;
+import org.camunda.bpm.engine.variable.value.StringValue;
+import org.camunda.bpm.externaltask.spi.ExternalTaskPayloadStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replaces large byte[] and String variables by references to payloads stored
+ * in an {@link ExternalTaskPayloadStore} and resolves those references.
+ * <p>
+ * A reference is a String variable of the form
+ * <i>claim-check:bytes:&lt;reference&gt;</i> or
+ * <i>claim-check:string:&lt;reference&gt;</i> (UTF-8 encoded) whereas the
+ * store's reference has the format described by
+ * {@link ExternalTaskPayloadStore#newReference()}. Other Strings starting with
+ * <i>claim-check:</i> are ordinary values.
+ */
+public class ClaimCheck {
+
+    private static Logger logger = LoggerFactory.getLogger(ClaimCheck.class);
+
+    static final String REFERENCE_PREFIX = "claim-check:";
+
+    static final String BYTES = "bytes:";
+
+    static final String STRING = "string:";
+
+    private static final Pattern STORE_REFERENCE = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._~/-]{0,254}");
+
+    private static final Pattern REFERENCE = Pattern.compile(Pattern.quote(REFERENCE_PREFIX)
+            + "(" + Pattern.quote(BYTES) + "|" + Pattern.quote(STRING) + ")"
+            + "(" + STORE_REFERENCE.pattern() + ")");
+
+    private final ExternalTaskPayloadStore store;
+
+    private final int threshold;
+
+    ClaimCheck(final ExternalTaskPayloadStore store, final int threshold) {
+
+        if (store == null) {
+            throw new IllegalArgumentException("No payload store given");
+        }
+
+        this.store = store;
+        this.threshold = threshold;
+
+    }
+
+    static boolean isReference(final Object value) {
+
+        return (value instanceof String)
+                && ((String) value).startsWith(REFERENCE_PREFIX)
+                && REFERENCE.matcher((String) value).matches();
+
+    }
+
+    /**
+     * @return A reference variable's value for a new payload of type byte[]
+     */
+    String newBytesReference() {
+
+        return REFERENCE_PREFIX + BYTES + newStoreReference();
+
+    }
+
+    private String newStoreReference() {
+
+        final String result = store.newReference();
+        if ((result == null)
+                || !STORE_REFERENCE.matcher(result).matches()) {
+            throw new IllegalStateException("Payload store returned invalid reference '" + result + "'");
+        }
+        return result;
+
+    }
+
+    OutputStream openOutputStream(final String referenceValue) throws IOException {
+
+        return store.openOutputStream(getStoreReference(referenceValue));
+
+    }
+
+    /**
+     * @return The payload's stream if the value is a reference, otherwise the
+     *         value's content as a stream (null if not byte[] or String)
+     */
+    InputStream openInputStream(final Object value) throws IOException {
+
+        if (isReference(value)) {
+            return store.openInputStream(getStoreReference((String) value));
+        }
+        return openInlineInputStream(value);
+
+    }
+
+    /**
+     * @return The value's content as a stream (null if not byte[] or String)
+     */
+    static InputStream openInlineInputStream(final Object value) {
+
+        if (value instanceof byte[]) {
+            return new ByteArrayInputStream((byte[]) value);
+        }
+        if (value instanceof String) {
+            return new ByteArrayInputStream(((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+
+    }
+
+    /**
+     * @return The payload's content (byte[] or String) if the value is a
+     *         reference, otherwise the value itself
+     */
+    Object resolve(final Object value) throws IOException {
+
+        if (!isReference(value)) {
+            return value;
+        }
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream in = openInputStream(value)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        }
+
+        if (((String) value).startsWith(REFERENCE_PREFIX + STRING)) {
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return content.toByteArray();
+
+    }
+
+    Map<String, Object> resolveAll(final Map<String, Object> variables) throws IOException {
+
+        if ((variables == null)
+                || variables.values().stream().noneMatch(ClaimCheck::isReference)) {
+            return variables;
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            result.put(variable.getKey(), resolve(variable.getValue()));
+        }
+        return result;
+
+    }
+
+    /**
+     * @return The variables given whereas byte[] and String values exceeding the
+     *         threshold are replaced by references
+     */
+    Map<String, Object> offload(final Map<String, Object> variables) throws IOException {
+
+        if ((variables == null)
+                || variables.isEmpty()) {
+            return variables;
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            result.put(variable.getKey(), offload(variable.getValue()));
+        }
+        return result;
+
+    }
+
+    private Object offload(final Object value) throws IOException {
+
+        final byte[] content;
+        final String type;
+        if (value instanceof byte[]) {
+            content = (byte[]) value;
+            type = BYTES;
+        } else if (value instanceof BytesValue) {
+            content = ((BytesValue) value).getValue();
+            type = BYTES;
+        } else if ((value instanceof String)
+                && !isReference(value)) {
+            content = ((String) value).getBytes(StandardCharsets.UTF_8);
+            type = STRING;
+        } else if ((value instanceof StringValue)
+                && (((StringValue) value).getValue() != null)
+                && !isReference(((StringValue) value).getValue())) {
+            content = ((StringValue) value).getValue().getBytes(StandardCharsets.UTF_8);
+            type = STRING;
+        } else {
+            return value;
+        }
+
+        if ((content == null)
+                || (content.length <= threshold)) {
+            return value;
+        }
+
+        final String referenceValue = REFERENCE_PREFIX + type + newStoreReference();
+        try (OutputStream out = openOutputStream(referenceValue)) {
+            out.write(content);
+        }
+        return referenceValue;
+
+    }
+
+    /**
+     * Delete payloads of references which were overwritten by the variables
+     * written.
+     * 
+     * @param before  The variables' values before
+     * @param written The variables written
+     */
+    void deleteReplaced(final Map<String, Object> before, final Map<String, Object> written) {
+
+        if ((before == null)
+                || (written == null)) {
+            return;
+        }
+
+        written.forEach((name, value) -> {
+            final Object old = before.get(name);
+            if (isReference(old)
+                    && !old.equals(value)) {
+                delete(name, (String) old);
+            }
+        });
+
+    }
+
+    /**
+     * Delete payloads of references which are new in the variables written, e.g.
+     * because writing them was rolled back.
+     * 
+     * @param before  The variables' values before (may be null)
+     * @param written The variables written
+     */
+    void deleteWritten(final Map<String, Object> before, final Map<String, Object> written) {
+
+        if (written == null) {
+            return;
+        }
+
+        final Set<Object> existing = before == null ? new HashSet<>() : new HashSet<>(before.values());
+        written.forEach((name, value) -> {
+            if (isReference(value)
+                    && !existing.contains(value)) {
+                delete(name, (String) value);
+            }
+        });
+
+    }
+
+    private void delete(final String name, final String referenceValue) {
+
+        try {
+            store.delete(getStoreReference(referenceValue));
+        } catch (Exception e) {
+            logger.warn("Could not delete payload '{}' of variable '{}'", referenceValue, name, e);
+        }
+
+    }
+
+    private static String getStoreReference(final String referenceValue) {
+
+        final Matcher reference = REFERENCE.matcher(referenceValue);
+        if (!reference.matches()) {
+            throw new IllegalArgumentException("Invalid claim-check reference '" + referenceValue + "'");
+        }
+        return reference.group(2);
+
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.camunda.bpm.engine.impl.interceptor.CommandExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Membership of the nodes processing external tasks. Each node holds a lease
+ * which is renewed periodically. Process instances are hashed into a fixed
+ * number of partitions and partitions are distributed round-robin among the
+ * nodes having a valid lease. If a node joins or leaves the partitions are
+ * reassigned at the next renewal. Nodes are identified by their node id, not
+ * their worker id which may be shared by several nodes.
+ */
+public class ClusterMembership {
+
+    private static Logger logger = LoggerFactory.getLogger(ClusterMembership.class);
+
+    static final String NODE_LEASE_PREFIX = "externaltask.node.";
+
+    public static final long DEFAULT_LEASE_TIMEOUT = 180000; // 3 minutes
+
+    public static final int DEFAULT_PARTITIONS = 256;
+
+    private final long leaseTimeout;
+
+    private final int partitions;
+
+    private volatile List<String> members = Collections.emptyList();
+
+    private volatile long renewedAt;
+
+    public ClusterMembership(final long leaseTimeout, final int partitions) {
+
+        this.leaseTimeout = leaseTimeout;
+        this.partitions = partitions;
+
+    }
+
+    public List<String> getMembers() {
+
+        return members;
+
+    }
+
+    /**
+     * Renew the lease if a third of the lease timeout is over.
+     */
+    void renewIfDue(final CommandExecutor commandExecutor, final String nodeId) {
+
+        if (System.currentTimeMillis() - renewedAt < leaseTimeout / 3) {
+            return;
+        }
+
+        synchronized (this) {
+            if (System.currentTimeMillis() - renewedAt < leaseTimeout / 3) {
+                return;
+            }
+
+            final List<String> currentMembers = commandExecutor.execute(
+                    new RenewClusterLeaseCmd(NODE_LEASE_PREFIX, nodeId, leaseTimeout));
+            if (!currentMembers.equals(members)) {
+                logger.info("Cluster membership changed to {} - partitions reassigned", currentMembers);
+            }
+            members = currentMembers;
+            renewedAt = System.currentTimeMillis();
+
+            deleteExpiredLeases(commandExecutor);
+        }
+
+    }
+
+    /*
+     * Leases expired for a whole lease timeout belong to nodes gone for good.
+     * Nodes may delete them concurrently, so failures are ignored.
+     */
+    private void deleteExpiredLeases(final CommandExecutor commandExecutor) {
+
+        try {
+            final int deleted = commandExecutor.execute(new DeleteExpiredClusterLeasesCmd(NODE_LEASE_PREFIX,
+                    System.currentTimeMillis() - leaseTimeout));
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired leases of nodes having left", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Could not delete expired leases: {}", e.getMessage());
+        }
+
+    }
+
+    /**
+     * Give up the lease e.g. on shutdown.
+     */
+    synchronized void leave(final CommandExecutor commandExecutor, final String nodeId) {
+
+        commandExecutor.execute(new DeleteClusterLeaseCmd(NODE_LEASE_PREFIX + nodeId));
+        members = Collections.emptyList();
+        renewedAt = 0;
+
+    }
+
+    boolean isResponsibleFor(final String nodeId, final String processInstanceId) {
+
+        final List<String> currentMembers = members;
+        final int index = currentMembers.indexOf(nodeId);
+        if (index == -1) {
+            return true; // not joined yet: behave like a single node
+        }
+
+        final int partition = Math.floorMod(processInstanceId.hashCode(), partitions);
+        return partition % currentMembers.size() == index;
+
+    }
+
+}
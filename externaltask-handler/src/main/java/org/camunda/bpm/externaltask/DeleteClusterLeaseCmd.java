@@ -0,0 +1,32 @@
+package org.camunda.bpm.externaltask;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+
+/**
+ * Removes the lease of the current node so other nodes take over its
+ * partitions immediately.
+ */
+public class DeleteClusterLeaseCmd implements Command<Void> {
+
+    private final String leaseName;
+
+    public DeleteClusterLeaseCmd(final String leaseName) {
+
+        this.leaseName = leaseName;
+
+    }
+
+    @Override
+    public Void execute(final CommandContext commandContext) {
+
+        final PropertyEntity lease = commandContext.getPropertyManager().findPropertyById(leaseName);
+        if (lease != null) {
+            commandContext.getDbEntityManager().delete(lease);
+        }
+        return null;
+
+    }
+
+}
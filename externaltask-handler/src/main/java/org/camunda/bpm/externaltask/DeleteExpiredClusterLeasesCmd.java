@@ -0,0 +1,60 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.List;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+
+/**
+ * Removes leases of nodes which did not renew them for a while (e.g. nodes
+ * crashed or restarted under another name), so ACT_GE_PROPERTY does not grow
+ * with each node ever started.
+ */
+public class DeleteExpiredClusterLeasesCmd implements Command<Integer> {
+
+    private final String prefix;
+
+    private final long expiredBefore;
+
+    /**
+     * @param expiredBefore Leases expired before this point in time are deleted
+     */
+    public DeleteExpiredClusterLeasesCmd(final String prefix, final long expiredBefore) {
+
+        this.prefix = prefix;
+        this.expiredBefore = expiredBefore;
+
+    }
+
+    @Override
+    public Integer execute(final CommandContext commandContext) {
+
+        @SuppressWarnings("unchecked")
+        final List<PropertyEntity> properties = commandContext
+                .getDbEntityManager()
+                .selectList("selectProperties");
+
+        int deleted = 0;
+        for (PropertyEntity property : properties) {
+            if (property.getName().startsWith(prefix)
+                    && isExpired(property)) {
+                commandContext.getDbEntityManager().delete(property);
+                ++deleted;
+            }
+        }
+        return deleted;
+
+    }
+
+    private boolean isExpired(final PropertyEntity property) {
+
+        try {
+            return Long.parseLong(property.getValue()) < expiredBefore;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Date;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.ExternalTaskEntity;
+import org.camunda.bpm.engine.impl.util.ClockUtil;
+
+/**
+ * Extends the lock of an external task still locked by the given worker.
+ * Returns the new lock expiration time or null if the task does not exist any
+ * more, is locked by another worker or its lock expired already, instead of
+ * failing like {@link org.camunda.bpm.engine.ExternalTaskService#extendLock}.
+ */
+public class ExtendExternalTaskLockCmd implements Command<Date> {
+
+    private final String externalTaskId;
+
+    private final String workerId;
+
+    private final long lockDuration;
+
+    public ExtendExternalTaskLockCmd(final String externalTaskId, final String workerId, final long lockDuration) {
+
+        this.externalTaskId = externalTaskId;
+        this.workerId = workerId;
+        this.lockDuration = lockDuration;
+
+    }
+
+    @Override
+    public Date execute(final CommandContext commandContext) {
+
+        final ExternalTaskEntity externalTask = commandContext
+                .getExternalTaskManager()
+                .findExternalTaskById(externalTaskId);
+        if ((externalTask == null)
+                || !workerId.equals(externalTask.getWorkerId())
+                || (externalTask.getLockExpirationTime() == null)
+                || externalTask.getLockExpirationTime().before(ClockUtil.getCurrentTime())) {
+            return null;
+        }
+        externalTask.extendLock(lockDuration);
+        return externalTask.getLockExpirationTime();
+
+    }
+
+}
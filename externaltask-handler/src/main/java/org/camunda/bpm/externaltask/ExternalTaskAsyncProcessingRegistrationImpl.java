@@ -1,8 +1,11 @@
 package org.camunda.bpm.externaltask;
 
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 import org.camunda.bpm.externaltask.spi.ExternalTaskAsyncProcessingRegistration;
-import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncRequestProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncResponseProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
 
 public class ExternalTaskAsyncProcessingRegistrationImpl<R, I>
         extends ExternalTaskSyncProcessingRegistrationImpl<ExternalTaskAsyncProcessingRegistration>
@@ -15,10 +18,13 @@ public class ExternalTaskAsyncProcessingRegistrationImpl<R, I>
     private String responseTimeoutExpiredMessage;
 
     ExternalTaskAsyncProcessingRegistrationImpl(
-            final ExternalTaskHandlerAsyncRequestProcessor processor,
-            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+            final String key,
+            final ExternalTaskHandlerProcessor processor,
+            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor,
+            final BiConsumer<String, CircuitBreaker.State> circuitBreakerStateListener,
+            final Consumer<String> activationListener) {
 
-        super(processor);
+        super(key, processor, circuitBreakerStateListener, activationListener);
         this.responseProcessor = responseProcessor;
 
     }
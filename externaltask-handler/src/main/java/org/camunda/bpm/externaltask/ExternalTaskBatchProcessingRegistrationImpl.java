@@ -0,0 +1,35 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
+
+public class ExternalTaskBatchProcessingRegistrationImpl
+        extends ExternalTaskSyncProcessingRegistrationImpl<ExternalTaskBatchProcessingRegistration<?>>
+        implements ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> {
+
+    ExternalTaskBatchProcessingRegistrationImpl(
+            final String key,
+            final ExternalTaskHandlerProcessor processor,
+            final BiConsumer<String, CircuitBreaker.State> circuitBreakerStateListener,
+            final Consumer<String> activationListener) {
+
+        super(key, processor, circuitBreakerStateListener, activationListener);
+
+    }
+
+    @Override
+    public ExternalTaskBatchProcessingRegistrationImpl batchSize(int batchSize) {
+        setBatchSize(batchSize);
+        return this;
+    }
+
+    @Override
+    public ExternalTaskBatchProcessingRegistrationImpl batchGatheringPeriod(long batchGatheringPeriod) {
+        setBatchGatheringPeriod(batchGatheringPeriod);
+        return this;
+    }
+
+}
@@ -0,0 +1,227 @@
+package org.camunda.bpm.externaltask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.externaltask.spi.ExternalTaskContext;
+
+public class ExternalTaskContextImpl implements ExternalTaskContext {
+
+    private final LockedExternalTask task;
+
+    private final Supplier<RuntimeService> runtimeService;
+
+    /*
+     * Cache of variables loaded so far. Null values are stored as well to
+     * avoid loading variables not set again and again.
+     */
+    private final Map<String, Object> variables = new HashMap<>();
+
+    /*
+     * Payloads of claim-check references read so far.
+     */
+    private final Map<String, Object> resolved = new HashMap<>();
+
+    /*
+     * Payloads written using #setPayload(String) which have to be set on
+     * completion: either the reference or (no claim-check configured) a buffer.
+     */
+    private final Map<String, Object> payloads = new HashMap<>();
+
+    private final ClaimCheck claimCheck;
+
+    ExternalTaskContextImpl(final LockedExternalTask task, final Supplier<RuntimeService> runtimeService,
+            final ClaimCheck claimCheck) {
+
+        this.task = task;
+        this.runtimeService = runtimeService;
+        this.claimCheck = claimCheck;
+        // variables fetched in advance (see ExternalTaskSyncProcessingRegistration#variablesToFetch)
+        if (task.getVariables() != null) {
+            variables.putAll(task.getVariables());
+        }
+
+    }
+
+    @Override
+    public String getExternalTaskId() {
+        return task.getId();
+    }
+
+    @Override
+    public String getProcessDefinitionKey() {
+        return task.getProcessDefinitionKey();
+    }
+
+    @Override
+    public String getTopic() {
+        return task.getTopicName();
+    }
+
+    @Override
+    public String getProcessInstanceId() {
+        return task.getProcessInstanceId();
+    }
+
+    @Override
+    public String getBusinessKey() {
+        return task.getBusinessKey();
+    }
+
+    @Override
+    public String getActivityId() {
+        return task.getActivityId();
+    }
+
+    @Override
+    public String getActivityInstanceId() {
+        return task.getActivityInstanceId();
+    }
+
+    @Override
+    public String getExecutionId() {
+        return task.getExecutionId();
+    }
+
+    @Override
+    public String getTenantId() {
+        return task.getTenantId();
+    }
+
+    @Override
+    public String getWorkerId() {
+        return task.getWorkerId();
+    }
+
+    @Override
+    public Integer getRetries() {
+        return task.getRetries();
+    }
+
+    @Override
+    public Date getLockExpirationTime() {
+        return task.getLockExpirationTime();
+    }
+
+    @Override
+    public long getPriority() {
+        return task.getPriority();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getVariable(final String name) {
+
+        return (T) resolve(name, load(name));
+
+    }
+
+    private Object load(final String name) {
+
+        if (!variables.containsKey(name)) {
+            variables.put(name, runtimeService.get().getVariable(task.getExecutionId(), name));
+        }
+        return variables.get(name);
+
+    }
+
+    private Object resolve(final String name, final Object value) {
+
+        if ((claimCheck == null)
+                || !ClaimCheck.isReference(value)) {
+            return value;
+        }
+        return resolved.computeIfAbsent(name, n -> {
+            try {
+                return claimCheck.resolve(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read payload of variable '" + n + "'", e);
+            }
+        });
+
+    }
+
+    @Override
+    public Map<String, Object> getVariables(final String... names) {
+
+        final List<String> missing = Arrays
+                .stream(names)
+                .filter(name -> !variables.containsKey(name))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            final Map<String, Object> loaded = runtimeService.get().getVariables(task.getExecutionId(), missing);
+            missing.forEach(name -> variables.put(name, loaded.get(name)));
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        Arrays
+                .stream(names)
+                .filter(name -> variables.get(name) != null)
+                .forEach(name -> result.put(name, resolve(name, variables.get(name))));
+        return result;
+
+    }
+
+    @Override
+    public InputStream getPayload(final String name) throws IOException {
+
+        final Object value = load(name);
+        if (claimCheck == null) {
+            return ClaimCheck.openInlineInputStream(value);
+        }
+        return claimCheck.openInputStream(value);
+
+    }
+
+    @Override
+    public OutputStream setPayload(final String name) throws IOException {
+
+        if (claimCheck == null) {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            payloads.put(name, buffer);
+            return buffer;
+        }
+
+        final String reference = claimCheck.newBytesReference();
+        final OutputStream out = claimCheck.openOutputStream(reference);
+        payloads.put(name, reference);
+        return out;
+
+    }
+
+    /**
+     * @return The variables to be set for payloads written
+     */
+    Map<String, Object> getPayloadVariables() {
+
+        final Map<String, Object> result = new HashMap<>();
+        payloads.forEach((name, payload) -> result.put(name, payload instanceof ByteArrayOutputStream
+                ? ((ByteArrayOutputStream) payload).toByteArray()
+                : payload));
+        return result;
+
+    }
+
+    /**
+     * @return The variables loaded so far as stored (claim-check references not
+     *         resolved)
+     */
+    Map<String, Object> getLoadedVariables() {
+
+        return variables;
+
+    }
+
+}
@@ -1,33 +1,59 @@
 package org.camunda.bpm.externaltask;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.OptimisticLockingException;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.delegate.BpmnError;
 import org.camunda.bpm.engine.externaltask.ExternalTask;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQuery;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQueryTopicBuilder;
 import org.camunda.bpm.engine.externaltask.LockedExternalTask;
 import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
 import org.camunda.bpm.engine.impl.interceptor.CommandContext;
 import org.camunda.bpm.engine.impl.interceptor.CommandExecutor;
 import org.camunda.bpm.engine.impl.jobexecutor.JobHandler;
+import org.camunda.bpm.engine.impl.metrics.MetricsRegistry;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.externaltask.spi.BpmnErrorWithResult;
 import org.camunda.bpm.externaltask.spi.BpmnErrorWithResultAndVariables;
 import org.camunda.bpm.externaltask.spi.BpmnErrorWithVariables;
 import org.camunda.bpm.externaltask.spi.ExternalTaskAsyncProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchProcessingRegistration;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchResult;
+import org.camunda.bpm.externaltask.spi.ExternalTaskContext;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncBatchRequestProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerContextProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncRequestProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncResponseProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerSyncProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
@@ -49,6 +75,16 @@ public abstract class ExternalTaskHandlerImpl
 
     static final String ASYNC_TIMEOUT_HANDLER_TYPE = ExternalTaskHandlerImpl.class.getName();
 
+    private static final String NO_TENANT = "";
+
+    public static final String METRIC_CIRCUIT_BREAKER_OPENED = "externaltask-handler-circuitbreaker-opened";
+
+    public static final String METRIC_CIRCUIT_BREAKER_HALF_OPENED = "externaltask-handler-circuitbreaker-half-opened";
+
+    public static final String METRIC_CIRCUIT_BREAKER_CLOSED = "externaltask-handler-circuitbreaker-closed";
+
+    public static final String METRIC_CIRCUIT_BREAKER_REJECTED = "externaltask-handler-circuitbreaker-rejected";
+
     protected abstract long getDefaultLockTimeout();
 
     protected abstract ExternalTaskService getExternalTaskService();
@@ -59,158 +95,1478 @@ public abstract class ExternalTaskHandlerImpl
 
     protected abstract String getWorkerId();
 
+    /*
+     * Nodes of a cluster may share a worker id, so leases are held by the
+     * worker id and a suffix unique to this handler instance.
+     */
+    private final String nodeSuffix = UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * @return The id of this node used for the sweep lease and the cluster
+     *         membership, unique even if nodes share a worker id
+     */
+    protected String getNodeId() {
+
+        return getWorkerId() + "#" + nodeSuffix;
+
+    }
+
     protected abstract void doAfterTransaction(Runnable action);
     
     protected abstract void processAsynchronously(Runnable action);
     
     protected abstract void scheduleFetchAndLockExternalTasks(long timeout, String key);
     
-    protected Map<String, ExternalTaskSyncProcessingRegistrationImpl<?>> registrations = new HashMap<>();
+    /**
+     * Like {@link #doAfterTransaction(Runnable)} but regardless of whether the
+     * transaction was committed or rolled back. Adapters should override this
+     * because the default only runs on commit.
+     */
+    protected void doAfterTransactionCompletion(Runnable action) {
+        
+        doAfterTransaction(action);
+        
+    }
+    
+    /**
+     * Like {@link #processAsynchronously(Runnable)} but without a surrounding
+     * transaction, so each call of the engine runs in a transaction of its own.
+     * Adapters should override this because the default uses a transaction.
+     */
+    protected void processAsynchronouslyWithoutTransaction(Runnable action) {
+        
+        processAsynchronously(action);
+        
+    }
+    
+    /**
+     * Whether the current thread runs in a transaction Camunda's commands join.
+     * Adapters should override this because the default assumes a transaction
+     * if processing is transactional.
+     */
+    protected boolean isTransactionActive() {
+        
+        return transactionalProcessing;
+        
+    }
+    
+    protected Map<String, ExternalTaskSyncProcessingRegistrationImpl<?>> registrations = new ConcurrentHashMap<>();
+
+    protected ClusterMembership clusterMembership;
+
+    /**
+     * Process instances of tasks gathered for batch processing by registration.
+     */
+    protected Map<String, Set<String>> gatheredBatches = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of external tasks locked by one fetch. If more tasks are
+     * available the next page is fetched while the current one is processed.
+     */
+    protected int fetchPageSize = 100;
+
+    private volatile boolean applicationReady;
+
+    /*
+     * Notified about external tasks created (regardless of registrations), e.g.
+     * to wake up long-polling requests of remote workers.
+     */
+    private final List<BiConsumer<String, String>> taskCreatedListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Milliseconds to wait for running processors on shutdown.
+     */
+    protected long shutdownGracePeriod = 10000;
+
+    private volatile boolean shuttingDown;
+
+    /*
+     * Tasks locked but not yet started (task id -> registration key). On shutdown
+     * they are unlocked.
+     */
+    private final Map<String, String> queuedExternalTasks = new ConcurrentHashMap<>();
+
+    private final AtomicInteger runningProcessors = new AtomicInteger();
+
+    /**
+     * Maximum number of tasks locked but not yet processed (queued or running)
+     * across all registrations.
+     */
+    protected volatile int maxInFlight = Integer.MAX_VALUE;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /*
+     * Registrations which could not fetch all tasks available due to missing
+     * capacity. They are fetched again once capacity is released.
+     */
+    private final Set<String> capacityExhausted = ConcurrentHashMap.newKeySet();
+
+    /*
+     * Registrations using a pattern of process definition keys. Registrations of
+     * a definition's exact key take precedence.
+     */
+    private final ProcessDefinitionPatterns definitionPatterns =
+            new ProcessDefinitionPatterns(this::loadDeployedProcessDefinitionKeys);
+
+    private final AtomicBoolean deploymentListenerRegistered = new AtomicBoolean();
+
+    /**
+     * Whether the recovery sweep runs on one node of the cluster only.
+     */
+    protected boolean singletonSweep = true;
+
+    /**
+     * Milliseconds the sweep lease is valid. Another node takes over the sweep
+     * if the node holding the lease did not renew it meanwhile.
+     */
+    protected long sweepLeaseTimeout = 180000;
+
+    private volatile boolean sweepLeaseHeld;
+
+    /**
+     * Whether tasks still locked by this node's worker id are unlocked once the
+     * application is ready. Tasks waiting for an asynchronous response are kept.
+     */
+    protected boolean startupRecovery;
+
+    private final ExternalTaskHandlerManagement management = new ExternalTaskHandlerManagement(this);
+
+    /**
+     * Whether processors run in a transaction covering the report of their
+     * result or without a transaction.
+     */
+    protected boolean transactionalProcessing = true;
+
+    /**
+     * Maximum number of retries of a completion or BPMN error failing due to an
+     * optimistic locking conflict.
+     */
+    protected int optimisticLockingRetries = 3;
+
+    /**
+     * Milliseconds to wait before the first retry of a conflicting completion,
+     * doubled for each further retry and randomized to spread competing
+     * completions.
+     */
+    protected long optimisticLockingRetryBackoff = 50;
+
+    /*
+     * If set tasks of the same process instance are processed one after the
+     * other.
+     */
+    private ProcessInstanceLanes processInstanceLanes;
+
+    /**
+     * Number of unlocked external tasks inspected to find those of the current
+     * node's partitions.
+     */
+    protected int partitionCandidates = 1000;
+
+    @Override
+    public void setSingletonSweep(final boolean singletonSweep) {
+
+        this.singletonSweep = singletonSweep;
+
+    }
+
+    @Override
+    public void setStartupRecovery(final boolean startupRecovery) {
+
+        this.startupRecovery = startupRecovery;
+
+    }
+
+    @Override
+    public void setTransactionalProcessing(final boolean transactionalProcessing) {
+
+        this.transactionalProcessing = transactionalProcessing;
+
+    }
+
+    @Override
+    public void setOptimisticLockingRetries(final int retries) {
+
+        this.optimisticLockingRetries = retries;
+
+    }
+
+    @Override
+    public void setProcessInstanceLanes(final int lanes) {
+
+        processInstanceLanes = lanes > 0
+                ? new ProcessInstanceLanes(lanes)
+                : null;
+
+    }
+
+    @Override
+    public void setPartitionedFetching(final boolean partitionedFetching) {
+
+        clusterMembership = partitionedFetching
+                ? new ClusterMembership(ClusterMembership.DEFAULT_LEASE_TIMEOUT, ClusterMembership.DEFAULT_PARTITIONS)
+                : null;
+
+    }
 
     @Override
     public ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
             final String processDefinitionKey, final String topic,
             final ExternalTaskHandlerSyncProcessor processor) {
 
+        final String key = getInternalKey(processDefinitionKey, topic);
+
+        final ExternalTaskSyncProcessingRegistrationImpl<ExternalTaskSyncProcessingRegistration<?>> registration
+                = new ExternalTaskSyncProcessingRegistrationImpl<>(key, processor, this::onCircuitBreakerStateChanged,
+                        this::onActivated);
+        registration.lockTimeout(getDefaultLockTimeout());
+
+        registrations.put(key, registration);
+        onRegistered(key);
+
+        return registration;
+
+    }
+
+    @Override
+    public ExternalTaskSyncProcessingRegistration<ExternalTaskSyncProcessingRegistration<?>> registerExternalTaskProcessor(
+            final String processDefinitionKey, final String topic,
+            final ExternalTaskHandlerContextProcessor processor) {
+
+        final String key = getInternalKey(processDefinitionKey, topic);
+
         final ExternalTaskSyncProcessingRegistrationImpl<ExternalTaskSyncProcessingRegistration<?>> registration
-                = new ExternalTaskSyncProcessingRegistrationImpl<>(processor);
+                = new ExternalTaskSyncProcessingRegistrationImpl<>(key, processor, this::onCircuitBreakerStateChanged,
+                        this::onActivated);
+        registration.lockTimeout(getDefaultLockTimeout());
+
+        registrations.put(key, registration);
+        onRegistered(key);
+
+        return registration;
+
+    }
+
+    @Override
+    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskProcessor(
+            final String processDefinitionKey,
+            final String topic,
+            final ExternalTaskHandlerAsyncRequestProcessor requestProcessor,
+            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+
+        final String key = getInternalKey(processDefinitionKey, topic);
+
+        final ExternalTaskAsyncProcessingRegistrationImpl<R, I> registration
+                = new ExternalTaskAsyncProcessingRegistrationImpl<>(key, requestProcessor, responseProcessor,
+                        this::onCircuitBreakerStateChanged, this::onActivated);
+        registration.lockTimeout(getDefaultLockTimeout());
+
+        registrations.put(key, registration);
+        onRegistered(key);
+
+        return registration;
+
+    }
+
+    @Override
+    public ExternalTaskBatchProcessingRegistration<ExternalTaskBatchProcessingRegistration<?>> registerExternalTaskBatchProcessor(
+            final String processDefinitionKey, final String topic,
+            final ExternalTaskHandlerBatchProcessor processor) {
+
+        final String key = getInternalKey(processDefinitionKey, topic);
+
+        final ExternalTaskBatchProcessingRegistrationImpl registration
+                = new ExternalTaskBatchProcessingRegistrationImpl(key, processor, this::onCircuitBreakerStateChanged,
+                        this::onActivated);
         registration.lockTimeout(getDefaultLockTimeout());
 
+        registrations.put(key, registration);
+        onRegistered(key);
+
+        return registration;
+
+    }
+
+    @Override
+    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskBatchProcessor(
+            final String processDefinitionKey,
+            final String topic,
+            final ExternalTaskHandlerAsyncBatchRequestProcessor requestProcessor,
+            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+
         final String key = getInternalKey(processDefinitionKey, topic);
 
+        final ExternalTaskAsyncProcessingRegistrationImpl<R, I> registration
+                = new ExternalTaskAsyncProcessingRegistrationImpl<>(key, requestProcessor, responseProcessor,
+                        this::onCircuitBreakerStateChanged, this::onActivated);
+        registration.lockTimeout(getDefaultLockTimeout());
+
         registrations.put(key, registration);
+        onRegistered(key);
 
         return registration;
 
     }
 
-    @Override
-    public <R, I> ExternalTaskAsyncProcessingRegistration registerExternalTaskProcessor(
-            final String processDefinitionKey,
-            final String topic,
-            final ExternalTaskHandlerAsyncRequestProcessor requestProcessor,
-            final ExternalTaskHandlerAsyncResponseProcessor<R, I> responseProcessor) {
+    /**
+     * Listen for external tasks created. The listener is called once the
+     * transaction creating the task is committed and therefore has to return
+     * quickly.
+     * 
+     * @param listener Consumes the process definition key and the topic of the
+     *                 task created
+     */
+    public void addTaskCreatedListener(final BiConsumer<String, String> listener) {
+
+        taskCreatedListeners.add(listener);
+
+    }
+
+    public void removeTaskCreatedListener(final BiConsumer<String, String> listener) {
+
+        taskCreatedListeners.remove(listener);
+
+    }
+
+    /**
+     * To be called once the application is ready (e.g. Spring context refreshed
+     * or EJB container started). Tasks already waiting for registrations made so
+     * far are fetched immediately instead of waiting for the next sweep.
+     */
+    protected void onApplicationReady() {
+
+        if (applicationReady) {
+            return;
+        }
+        applicationReady = true;
+        management.register();
+
+        if (startupRecovery) {
+            unlockExternalTasksOfPreviousRun();
+        }
+
+        registrations.keySet().forEach(key ->
+                processAsynchronously(() ->
+                        fetchAndLockExternalTasks(key)));
+
+    }
+
+    /*
+     * Tasks still locked by this node's worker id were fetched before a crash or
+     * a shutdown not finished in time. Unlocking them lets the fetch following
+     * pick them up instead of waiting for their locks to expire. Tasks of
+     * asynchronous registrations or having a pending response timeout are
+     * waiting for a response and must not be requested again.
+     */
+    private void unlockExternalTasksOfPreviousRun() {
+
+        final String workerId = getWorkerId();
+        try {
+            final Set<String> pendingAsyncResponses = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequired()
+                    .execute(new SelectPendingAsyncResponsesCmd());
+            final List<String> externalTaskIds = getExternalTaskService()
+                    .createExternalTaskQuery()
+                    .workerId(workerId)
+                    .locked()
+                    .list()
+                    .stream()
+                    .filter(externalTask -> !queuedExternalTasks.containsKey(externalTask.getId()))
+                    .filter(externalTask -> !pendingAsyncResponses.contains(externalTask.getId()))
+                    .filter(externalTask -> !isAsyncRegistration(findRegistrationKey(
+                            externalTask.getProcessDefinitionKey(), externalTask.getTopicName())))
+                    .map(ExternalTask::getId)
+                    .collect(Collectors.toList());
+            if (externalTaskIds.isEmpty()) {
+                return;
+            }
+            final int unlocked = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequiresNew()
+                    .execute(new UnlockExternalTasksCmd(externalTaskIds, workerId));
+            logger.info("Unlocked {} external tasks locked by worker '{}' before the restart", unlocked, workerId);
+        } catch (RuntimeException e) {
+            logger.warn("Could not unlock external tasks locked before the restart. They will be processed once "
+                    + "their locks expire: {}", e.getMessage());
+        }
+
+    }
+
+    private boolean isAsyncRegistration(final String key) {
+
+        return (key != null)
+                && (registrations.get(key) instanceof ExternalTaskAsyncProcessingRegistrationImpl);
+
+    }
+
+    private void onRegistered(final String key) {
+
+        final String processDefinitionKey = getProcessDefinitionKeyFromInternalKey(key);
+        if (ProcessDefinitionPatterns.isPattern(processDefinitionKey)) {
+            definitionPatterns.add(key, getTopicFromInternalKey(key), processDefinitionKey);
+        }
+
+    }
+
+    /*
+     * Registrations made before the application is ready are drained by
+     * onApplicationReady, later ones once their configuration is complete.
+     */
+    private void onActivated(final String key) {
+
+        if (!applicationReady) {
+            return;
+        }
+
+        processAsynchronously(() ->
+                fetchAndLockExternalTasks(key));
+
+    }
+
+    /**
+     * Listen for Camunda events "create a task" and check if configured external
+     * task topic is registered. If is registered then fetch and lock the external
+     * task and call the registered method.
+     * 
+     * @param execution Camunda's delegate execution
+     */
+    protected void onTaskEvent(final String processDefinitionKey, final FlowElement bpmnElement) {
+
+        onTaskEvent(processDefinitionKey, null, bpmnElement);
+
+    }
+
+    /**
+     * Used if several engines run in one JVM: registrations are scoped to the
+     * engine of this handler, so events of other engines are ignored.
+     *
+     * @param processEngineName The name of the engine which created the task
+     * @see #onTaskEvent(String, FlowElement)
+     */
+    protected void onTaskEvent(final String processEngineName, final String processDefinitionKey,
+            final String processInstanceId, final FlowElement bpmnElement) {
+
+        if ((processEngineName != null)
+                && !processEngineName.equals(getProcessEngineName())) {
+            return; // handled by the other engine's handler
+        }
+
+        onTaskEvent(processDefinitionKey, processInstanceId, bpmnElement);
+
+    }
+
+    /**
+     * @return The name of the engine this handler's registrations belong to
+     */
+    public String getProcessEngineName() {
+
+        return getProcessEngineConfiguration().getProcessEngineName();
+
+    }
+
+    /**
+     * @return Statistics and runtime tuning of this handler, also registered as
+     *         MBean once the application is ready
+     */
+    public ExternalTaskHandlerManagement getManagement() {
+
+        return management;
+
+    }
+
+    /**
+     * @see #onTaskEvent(String, FlowElement)
+     */
+    protected void onTaskEvent(final String processDefinitionKey, final String processInstanceId,
+            final FlowElement bpmnElement) {
+
+        final String topic = getTopic(bpmnElement);
+        if (topic == null) {
+            return; // an activity which has not an external task implementation
+        }
+
+        if (!taskCreatedListeners.isEmpty()) {
+            doAfterTransaction(() ->
+                    taskCreatedListeners.forEach(listener ->
+                            listener.accept(processDefinitionKey, topic)));
+        }
+
+        definitionPatterns.onProcessDefinitionUsed(processDefinitionKey);
+        final String key = findRegistrationKey(processDefinitionKey, topic);
+        if (key == null) {
+            return; // a topic not yet registered
+        }
+        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
+
+        if (registration.isBatchProcessor()
+                && (registration.getBatchGatheringPeriod() > 0)) {
+            gatherBatch(key, processInstanceId, registration.getBatchGatheringPeriod());
+            return;
+        }
+
+        /*
+         * Fetch and lock needs to be done in a separate transaction. Additionally at
+         * the moment of task creation the External Task is not yet visible to other
+         * threads and we need wait for the current transaction to complete.
+         */
+        doAfterTransaction(() ->
+                processAsynchronously(() ->
+                        fetchAndLockExternalTasks(key, processInstanceId)));
+
+    }
+    
+    /**
+     * Pickup external tasks which might be "lost" due to system crashes - to be
+     * called periodically. Unless fetching is partitioned, the sweep runs only
+     * on the node holding the sweep lease.
+     */
+    protected void sweepExternalTasks() {
+        
+        // picks up definitions deployed by other nodes
+        definitionPatterns.invalidate();
+        if (singletonSweep
+                && (clusterMembership == null)
+                && !acquireSweepLease()) {
+            return;
+        }
+        registrations.keySet()
+                .forEach(this::fetchAndLockExternalTasks);
+        
+    }
+    
+    private boolean acquireSweepLease() {
+        
+        boolean acquired;
+        try {
+            acquired = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequiresNew()
+                    .execute(new AcquireSweepLeaseCmd(getNodeId(), sweepLeaseTimeout));
+        } catch (RuntimeException e) {
+            // another node acquired the lease concurrently
+            logger.debug("Could not acquire sweep lease: {}", e.getMessage());
+            acquired = false;
+        }
+        if (acquired != sweepLeaseHeld) {
+            logger.info(acquired
+                    ? "Took over the sweep for lost external tasks"
+                    : "Sweep for lost external tasks is run by another node");
+            sweepLeaseHeld = acquired;
+        }
+        return acquired;
+        
+    }
+    
+    /*
+     * Fetch and lock any external tasks available - usually only the current one
+     * if called in the context of a task event processing.
+     */
+    protected void fetchAndLockExternalTasks(final String key) {
+        
+        final Set<String> gatheredProcessInstanceIds = gatheredBatches.remove(key);
+        if ((clusterMembership == null)
+                || (gatheredProcessInstanceIds == null)
+                || gatheredProcessInstanceIds.isEmpty()) {
+            fetchAndLockExternalTasks(key, null);
+            return;
+        }
+        
+        // tasks gathered might belong to other node's partitions
+        final List<LockedExternalTask> externalTasks = new LinkedList<>();
+        gatheredProcessInstanceIds.forEach(processInstanceId -> {
+            final List<LockedExternalTask> locked = lockExternalTasks(key, processInstanceId);
+            if (locked != null) {
+                externalTasks.addAll(locked);
+            }
+        });
+        processExternalTasks(key, externalTasks);
+        
+    }
+    
+    /*
+     * Tasks of batch processors are not fetched on each task event but once
+     * after the gathering period for all tasks created meanwhile.
+     */
+    private void gatherBatch(final String key, final String processInstanceId, final long batchGatheringPeriod) {
+        
+        final AtomicBoolean firstOfBatch = new AtomicBoolean();
+        gatheredBatches.compute(key, (k, processInstanceIds) -> {
+            final Set<String> result;
+            if (processInstanceIds == null) {
+                firstOfBatch.set(true);
+                result = ConcurrentHashMap.newKeySet();
+            } else {
+                result = processInstanceIds;
+            }
+            if (processInstanceId != null) {
+                result.add(processInstanceId);
+            }
+            return result;
+        });
+        
+        if (firstOfBatch.get()) {
+            doAfterTransaction(() ->
+                    scheduleFetchAndLockExternalTasks(batchGatheringPeriod, key));
+        }
+        
+    }
+    
+    /*
+     * In partitioned mode a task event only fetches tasks of the process instance
+     * which caused the event (no other node is aware of it) and the sweep only
+     * fetches tasks of the current node's partitions. Otherwise the process
+     * instance is ignored and any external tasks available are fetched.
+     */
+    protected void fetchAndLockExternalTasks(final String key, final String processInstanceId) {
+        
+        final List<LockedExternalTask> externalTasks = lockExternalTasks(key, processInstanceId);
+        if (externalTasks != null) {
+            registrations.get(key).getStatistics().recordFetch(externalTasks.size());
+        }
+        processExternalTasks(key, externalTasks);
+        
+        /*
+         * A full page indicates a backlog: Fetch the next page in parallel to
+         * processing the current one instead of locking all tasks at once.
+         */
+        if ((externalTasks != null)
+                && (externalTasks.size() >= getFetchPageSize(registrations.get(key)))) {
+            doAfterTransaction(() ->
+                    processAsynchronously(() ->
+                            fetchAndLockExternalTasks(key, processInstanceId)));
+        }
+        
+    }
+    
+    private List<LockedExternalTask> lockExternalTasks(final String key, final String processInstanceId) {
+        
+        final String topic = getTopicFromInternalKey(key);
+        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
+        
+        if (shuttingDown
+                || registration.isPaused()) {
+            return null;
+        }
+        
+        final Collection<String> processDefinitionKeys = getProcessDefinitionKeys(key);
+        if (processDefinitionKeys.isEmpty()) {
+            return null; // no definition deployed matching the pattern
+        }
+        
+        final CircuitBreaker circuitBreaker = registration.getCircuitBreaker();
+        final int pageSize = getFetchPageSize(registration);
+        final int maxTasks = circuitBreaker == null
+                ? pageSize
+                : circuitBreaker.getFetchLimit(pageSize);
+        if (maxTasks == 0) {
+            return null; // circuit breaker is open or a probe is in progress
+        }
+        
+        List<LockedExternalTask> externalTasks = null;
+        try {
+            externalTasks = lockExternalTasksWithinCapacity(key, processInstanceId, registration,
+                    processDefinitionKeys, topic, maxTasks);
+            return externalTasks;
+        } finally {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFetched(externalTasks == null ? 0 : externalTasks.size());
+            }
+        }
+        
+    }
+    
+    private List<LockedExternalTask> lockExternalTasksWithinCapacity(final String key, final String processInstanceId,
+            final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final Collection<String> processDefinitionKeys, final String topic, final int maxTasks) {
+        
+        // never lock more tasks than can be processed
+        final int reserved = reserveCapacity(registration, maxTasks);
+        if (reserved == 0) {
+            capacityExhausted.add(key);
+            return null;
+        }
+        
+        List<LockedExternalTask> externalTasks = null;
+        try {
+            if (registration.getTenantScheduler() != null) {
+                externalTasks = fetchAndLockExternalTasksOfTenants(
+                        processDefinitionKeys, topic, processInstanceId, registration, reserved);
+            } else {
+                externalTasks = fetchAndLockExternalTasks(
+                        processDefinitionKeys, topic, processInstanceId, registration, reserved, null);
+            }
+        } finally {
+            final int locked = externalTasks == null ? 0 : externalTasks.size();
+            if ((reserved < maxTasks)
+                    && (locked == reserved)) {
+                capacityExhausted.add(key); // there might be more tasks
+            }
+            releaseCapacity(key, reserved - locked);
+        }
+        return externalTasks;
+        
+    }
+    
+    /**
+     * @param tenantId Restrict to the given tenant (an empty string for tasks
+     *                 without tenant) or null for any tenant
+     */
+    private List<LockedExternalTask> fetchAndLockExternalTasks(final Collection<String> processDefinitionKeys,
+            final String topic, final String processInstanceId,
+            final ExternalTaskSyncProcessingRegistrationImpl<?> registration, final int maxTasks,
+            final String tenantId) {
+        
+        if (clusterMembership != null) {
+            return fetchAndLockPartitionedExternalTasks(
+                    processDefinitionKeys, topic, processInstanceId, registration, maxTasks, tenantId);
+        }
+        
+        final ExternalTaskQueryTopicBuilder builder = getExternalTaskService()
+                .fetchAndLock(maxTasks, getWorkerId())
+                .topic(topic, registration.getLockTimeout())
+                .variables(registration.getVariablesToFetchOnLock());
+        if (processDefinitionKeys.size() == 1) {
+            builder.processDefinitionKey(processDefinitionKeys.iterator().next());
+        } else {
+            builder.processDefinitionKeyIn(processDefinitionKeys.toArray(new String[processDefinitionKeys.size()]));
+        }
+        if (NO_TENANT.equals(tenantId)) {
+            builder.withoutTenantId();
+        } else if (tenantId != null) {
+            builder.tenantIdIn(tenantId);
+        }
+        return builder.execute();
+        
+    }
+    
+    /*
+     * The capacity is shared between tenants by weight. Capacity left because
+     * a tenant had less tasks than its share is given to the tenants which
+     * filled their share in another pass, so no capacity is wasted.
+     */
+    private List<LockedExternalTask> fetchAndLockExternalTasksOfTenants(final Collection<String> processDefinitionKeys,
+            final String topic, final String processInstanceId,
+            final ExternalTaskSyncProcessingRegistrationImpl<?> registration, final int maxTasks) {
+        
+        final TenantScheduler tenantScheduler = registration.getTenantScheduler();
+        final List<LockedExternalTask> result = new LinkedList<>();
+        List<String> candidates = null;
+        int remaining = maxTasks;
+        while (remaining > 0) {
+            final Map<String, Integer> plan = tenantScheduler.plan(remaining, candidates);
+            if (plan.values().stream().mapToInt(Integer::intValue).sum() < remaining) {
+                // limited by tenants' caps: fetch again once their tasks are processed
+                capacityExhausted.add(registration.getKey());
+            }
+            if (plan.isEmpty()) {
+                break;
+            }
+            candidates = new LinkedList<>();
+            for (Map.Entry<String, Integer> quota : plan.entrySet()) {
+                final List<LockedExternalTask> locked = fetchAndLockExternalTasks(processDefinitionKeys, topic,
+                        processInstanceId, registration, quota.getValue(),
+                        quota.getKey() == null ? NO_TENANT : quota.getKey());
+                if (locked == null) {
+                    continue;
+                }
+                locked.forEach(task -> tenantScheduler.locked(task.getId(), quota.getKey()));
+                result.addAll(locked);
+                remaining -= locked.size();
+                if (locked.size() == quota.getValue()) {
+                    candidates.add(quota.getKey()); // there might be more tasks
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+        
+    }
+    
+    private int reserveCapacity(final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final int requested) {
+        
+        synchronized (inFlight) {
+            int free = maxInFlight - inFlight.get();
+            if (registration.getMaxInFlight() != null) {
+                free = Math.min(free, registration.getMaxInFlight() - registration.getInFlight().get());
+            }
+            final int reserved = Math.max(0, Math.min(requested, free));
+            inFlight.addAndGet(reserved);
+            registration.getInFlight().addAndGet(reserved);
+            return reserved;
+        }
+        
+    }
+    
+    private void releaseCapacity(final String key, final int released) {
+        
+        if (released <= 0) {
+            return;
+        }
+        
+        synchronized (inFlight) {
+            inFlight.addAndGet(-released);
+            registrations.get(key).getInFlight().addAndGet(-released);
+        }
+        
+        if (shuttingDown) {
+            return;
+        }
+        capacityExhausted.forEach(exhaustedKey -> {
+            if (capacityExhausted.remove(exhaustedKey)) {
+                try {
+                    processAsynchronously(() ->
+                            fetchAndLockExternalTasks(exhaustedKey));
+                } catch (RuntimeException e) {
+                    capacityExhausted.add(exhaustedKey);
+                }
+            }
+        });
+        
+    }
+    
+    private void releaseTenantCapacity(final String key, final List<String> externalTaskIds) {
+        
+        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
+        if ((registration == null)
+                || (registration.getTenantScheduler() == null)) {
+            return;
+        }
+        externalTaskIds.forEach(registration.getTenantScheduler()::released);
+        
+    }
+    
+    /*
+     * A batch should not be split into several pages.
+     */
+    int getFetchPageSize(final ExternalTaskSyncProcessingRegistrationImpl<?> registration) {
+        
+        final int pageSize = registration.getFetchPageSize() == null
+                ? fetchPageSize
+                : registration.getFetchPageSize();
+        if (registration.isBatchProcessor()
+                && (registration.getBatchSize() != null)) {
+            return Math.max(pageSize, registration.getBatchSize());
+        }
+        return pageSize;
+        
+    }
+    
+    int getInFlightTasks() {
+        
+        return inFlight.get();
+        
+    }
+    
+    int countQueuedExternalTasks(final String key) {
+        
+        return (int) queuedExternalTasks
+                .values()
+                .stream()
+                .filter(key::equals)
+                .count();
+        
+    }
+    
+    void resumeFetching(final String key) {
+        
+        processAsynchronously(() ->
+                fetchAndLockExternalTasks(key));
+        
+    }
+    
+    private void processExternalTasks(final String key, final List<LockedExternalTask> externalTasks) {
+        
+        if ((externalTasks == null) || externalTasks.isEmpty()) {
+            return;
+        }
+        
+        externalTasks.forEach(task -> queuedExternalTasks.put(task.getId(), key));
+        
+        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
+        if (registration.isBatchProcessor()) {
+            final int batchSize = registration.getBatchSize() == null
+                    ? externalTasks.size()
+                    : registration.getBatchSize();
+            final List<List<LockedExternalTask>> batches = new LinkedList<>();
+            for (int i = 0; i < externalTasks.size(); i += batchSize) {
+                batches.add(externalTasks.subList(i, Math.min(i + batchSize, externalTasks.size())));
+            }
+            doAfterTransaction(() ->
+                    batches.forEach(batch ->
+                            submit(key, batch, () ->
+                                    runRegisteredBatchProcessor(registration, batch))));
+            return;
+        }
+        
+        /*
+         * Processing each task needs to be done in a separate transaction because
+         * completing the external task might be faster than committing the transaction
+         * of "fetchAndLock". Additionally at the moment of task locking this status
+         * is not yet visible to other threads and we need wait for the current
+         * transaction to complete. 
+         */
+        doAfterTransaction(() ->
+                externalTasks.forEach(task -> {
+                    if (processInstanceLanes == null) {
+                        submit(key, Collections.singletonList(task), () ->
+                                runRegisteredProcessor(key, task));
+                    } else {
+                        submitInLane(key, task);
+                    }
+                }));
+
+    }
+    
+    /*
+     * If the tasks cannot be processed (e.g. the executor's queue is full) they
+     * are unlocked immediately instead of waiting for the lock to expire.
+     */
+    private boolean submit(final String key, final List<LockedExternalTask> tasks, final Runnable processor) {
+        
+        try {
+            if (transactionalProcessing) {
+                processAsynchronously(processor);
+            } else {
+                processAsynchronouslyWithoutTransaction(processor);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not submit {} external tasks of '{}' for processing, will unlock them: {}",
+                    tasks.size(), key, e.getMessage());
+            unlockQueuedExternalTasks(tasks
+                    .stream()
+                    .map(LockedExternalTask::getId)
+                    .collect(Collectors.toList()));
+            return false;
+        }
+        
+    }
+    
+    /*
+     * The next task of a lane is submitted once the transaction of the previous
+     * one is completed, so its completion is visible to the next one. If the
+     * submission is rejected the lane continues with the next task. A lane busy
+     * for longer than the lock timeout is taken over, because its task was
+     * discarded or its lock expired anyway.
+     */
+    private void submitInLane(final String key, final LockedExternalTask task) {
+        
+        final ProcessInstanceLanes.Lane lane = processInstanceLanes.getLane(task.getProcessInstanceId());
+        final Runnable submission = () -> {
+            boolean submitted = false;
+            try {
+                final LockedExternalTask current = extendLockIfWaited(key, task);
+                if (current != null) {
+                    submitted = submit(key, Collections.singletonList(current), () -> {
+                        try {
+                            runRegisteredProcessor(key, current);
+                        } finally {
+                            doAfterTransactionCompletion(() -> runNextInLane(lane));
+                        }
+                    });
+                }
+            } finally {
+                if (!submitted) {
+                    runNextInLane(lane);
+                }
+            }
+        };
+        if (lane.enqueue(submission, registrations.get(key).getLockTimeout())) {
+            submission.run();
+        }
+        
+    }
+    
+    /*
+     * Tasks waiting in a lane for more than half of their lock timeout get their
+     * lock extended, so they are not fetched by other workers meanwhile.
+     * 
+     * @return The task to be processed or null if its lock was lost
+     */
+    private LockedExternalTask extendLockIfWaited(final String key, final LockedExternalTask task) {
+        
+        final long lockTimeout = registrations.get(key).getLockTimeout();
+        if (task.getLockExpirationTime().getTime() - System.currentTimeMillis() > lockTimeout / 2) {
+            return task;
+        }
+        
+        Date lockExpirationTime = null;
+        try {
+            // runs after completion of the previous task's transaction
+            lockExpirationTime = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequiresNew()
+                    .execute(new ExtendExternalTaskLockCmd(task.getId(), getWorkerId(), lockTimeout));
+        } catch (Exception e) {
+            logger.warn("Could not extend lock of external task '{}' waiting in its lane", task.getId(), e);
+        }
+        if (lockExpirationTime != null) {
+            return new RelockedExternalTask(task, lockExpirationTime);
+        }
+        
+        logger.debug("Lock of external task '{}' expired while waiting in its lane, skipping it", task.getId());
+        if (queuedExternalTasks.remove(task.getId()) != null) {
+            releaseTenantCapacity(key, Collections.singletonList(task.getId()));
+            releaseCapacity(key, 1);
+        }
+        return null;
+        
+    }
+    
+    private static void runNextInLane(final ProcessInstanceLanes.Lane lane) {
+        
+        final Runnable next = lane.next();
+        if (next != null) {
+            next.run();
+        }
+        
+    }
+    
+    private void unlockQueuedExternalTasks(final Collection<String> externalTaskIds) {
+        
+        final Map<String, Integer> releasedByKey = new HashMap<>();
+        final Map<String, List<String>> unlockedByKey = new HashMap<>();
+        final List<String> unlock = new LinkedList<>();
+        externalTaskIds.forEach(externalTaskId -> {
+            final String key = queuedExternalTasks.remove(externalTaskId);
+            if (key != null) {
+                unlock.add(externalTaskId);
+                releasedByKey.merge(key, 1, Integer::sum);
+                unlockedByKey.computeIfAbsent(key, k -> new LinkedList<>()).add(externalTaskId);
+            }
+        });
+        if (unlock.isEmpty()) {
+            return;
+        }
+        
+        try {
+            // called after commit (rejected submissions, circuit breaker opened), so
+            // the unlock must not join the transaction completed already
+            final int unlocked = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequiresNew()
+                    .execute(new UnlockExternalTasksCmd(unlock, getWorkerId()));
+            logger.debug("Unlocked {} external tasks not processed", unlocked);
+        } catch (Exception e) {
+            logger.warn("Could not unlock external tasks not processed. They will be processed once "
+                    + "their lock timed out.", e);
+        } finally {
+            unlockedByKey.forEach(this::releaseTenantCapacity);
+            releasedByKey.forEach(this::releaseCapacity);
+        }
+        
+    }
+
+    /*
+     * Camunda's fetch and lock cannot be restricted to partitions. Therefore
+     * unlocked candidates are queried and only those of the current node's
+     * partitions are locked. Nodes lock disjoint sets of tasks which avoids
+     * optimistic locking conflicts between them.
+     */
+    private List<LockedExternalTask> fetchAndLockPartitionedExternalTasks(final Collection<String> processDefinitionKeys,
+            final String topic, final String processInstanceId,
+            final ExternalTaskSyncProcessingRegistrationImpl<?> registration, final int maxTasks,
+            final String tenantId) {
+
+        final String workerId = getWorkerId();
+        final String nodeId = getNodeId();
+        clusterMembership.renewIfDue(
+                getProcessEngineConfiguration().getCommandExecutorTxRequiresNew(),
+                nodeId);
+
+        final List<ExternalTask> candidates;
+        if (processInstanceId != null) {
+            final ExternalTaskQuery query = getExternalTaskService()
+                    .createExternalTaskQuery()
+                    .topicName(topic)
+                    .processInstanceId(processInstanceId)
+                    .notLocked()
+                    .active()
+                    .withRetriesLeft();
+            if ((tenantId != null)
+                    && !NO_TENANT.equals(tenantId)) {
+                query.tenantIdIn(tenantId);
+            }
+            candidates = query.list(); // only the few tasks of one process instance
+        } else {
+            candidates = getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequired()
+                    .execute(new SelectPartitionCandidatesCmd(topic, processDefinitionKeys,
+                            NO_TENANT.equals(tenantId) ? null : tenantId, NO_TENANT.equals(tenantId),
+                            partitionCandidates));
+        }
+
+        final List<String> externalTaskIds = candidates
+                .stream()
+                .filter(task -> processDefinitionKeys.contains(task.getProcessDefinitionKey()))
+                .filter(task -> !NO_TENANT.equals(tenantId) || (task.getTenantId() == null))
+                .filter(task -> (processInstanceId != null)
+                        || clusterMembership.isResponsibleFor(nodeId, task.getProcessInstanceId()))
+                .limit(maxTasks)
+                .map(ExternalTask::getId)
+                .collect(Collectors.toList());
+        if (externalTaskIds.isEmpty()) {
+            return null;
+        }
+
+        return getProcessEngineConfiguration()
+                .getCommandExecutorTxRequired()
+                .execute(new LockExternalTasksCmd(externalTaskIds, workerId,
+                        registration.getLockTimeout(), registration.getVariablesToFetchOnLock()));
+
+    }
+
+    private void runRegisteredProcessor(final String key, final LockedExternalTask task) {
+
+        if (!startProcessing(Collections.singletonList(task)).isEmpty()) {
+            final long started = System.currentTimeMillis();
+            try {
+                processExternalTask(key, task);
+            } finally {
+                registrations.get(key).getStatistics().recordProcessing(System.currentTimeMillis() - started);
+                finishProcessing(key, Collections.singletonList(task));
+            }
+        }
+
+    }
+
+    private void runRegisteredBatchProcessor(final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final List<LockedExternalTask> tasks) {
+
+        final List<LockedExternalTask> batch = startProcessing(tasks);
+        if (!batch.isEmpty()) {
+            final long started = System.currentTimeMillis();
+            try {
+                processBatch(registration, batch);
+            } finally {
+                registration.getStatistics().recordProcessing(System.currentTimeMillis() - started);
+                finishProcessing(registration.getKey(), batch);
+            }
+        }
+
+    }
+
+    /**
+     * @return The tasks which may be processed: not unlocked meanwhile (e.g. by a
+     *         shutdown). Each call returning tasks has to be followed by
+     *         {@link #finishProcessing(String, List)}.
+     */
+    private List<LockedExternalTask> startProcessing(final List<LockedExternalTask> tasks) {
+
+        if (shuttingDown) {
+            // fetched after the shutdown unlocked the queued tasks
+            unlockQueuedExternalTasks(tasks
+                    .stream()
+                    .map(LockedExternalTask::getId)
+                    .collect(Collectors.toList()));
+            return Collections.emptyList();
+        }
 
-        final ExternalTaskAsyncProcessingRegistrationImpl<R, I> registration
-                = new ExternalTaskAsyncProcessingRegistrationImpl<>(requestProcessor, responseProcessor);
-        registration.lockTimeout(getDefaultLockTimeout());
+        runningProcessors.incrementAndGet();
 
-        final String key = getInternalKey(processDefinitionKey, topic);
+        final List<LockedExternalTask> result = tasks
+                .stream()
+                .filter(task -> queuedExternalTasks.remove(task.getId()) != null)
+                .collect(Collectors.toList());
 
-        registrations.put(key, registration);
+        if (result.isEmpty()) {
+            synchronized (runningProcessors) {
+                runningProcessors.decrementAndGet();
+                runningProcessors.notifyAll();
+            }
+        }
+        return result;
 
-        return registration;
+    }
+
+    private void finishProcessing(final String key, final List<LockedExternalTask> processed) {
+
+        synchronized (runningProcessors) {
+            runningProcessors.decrementAndGet();
+            runningProcessors.notifyAll();
+        }
+        releaseTenantCapacity(key, processed
+                .stream()
+                .map(LockedExternalTask::getId)
+                .collect(Collectors.toList()));
+        releaseCapacity(key, processed.size());
 
     }
 
     /**
-     * Listen for Camunda events "create a task" and check if configured external
-     * task topic is registered. If is registered then fetch and lock the external
-     * task and call the registered method.
-     * 
-     * @param execution Camunda's delegate execution
+     * Stop fetching external tasks, unlock all tasks fetched but not yet started
+     * and wait for running processors to complete (at most the shutdown grace
+     * period) - to be called on shutdown of the application. Tasks unlocked can
+     * be processed by other nodes immediately instead of waiting for the lock
+     * timeout to expire.
      */
-    protected void onTaskEvent(final String processDefinitionKey, final FlowElement bpmnElement) {
+    public void shutdown() {
 
-        final String topic = getTopic(bpmnElement);
-        if (topic == null) {
-            return; // an activity which has not an external task implementation
+        shuttingDown = true;
+        management.unregister();
+
+        unlockQueuedExternalTasks(new LinkedList<>(queuedExternalTasks.keySet()));
+
+        final long deadline = System.currentTimeMillis() + shutdownGracePeriod;
+        synchronized (runningProcessors) {
+            long remaining;
+            while ((runningProcessors.get() > 0)
+                    && ((remaining = deadline - System.currentTimeMillis()) > 0)) {
+                try {
+                    runningProcessors.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (runningProcessors.get() > 0) {
+            logger.warn("{} external task processors still running after shutdown grace period of {}ms",
+                    runningProcessors.get(), shutdownGracePeriod);
         }
 
-        final String key = getInternalKey(processDefinitionKey, topic);
-        if (!registrations.containsKey(key)) {
-            return; // a topic not yet registered
+        if (sweepLeaseHeld) {
+            try {
+                getProcessEngineConfiguration()
+                        .getCommandExecutorTxRequiresNew()
+                        .execute(new ReleaseSweepLeaseCmd(getNodeId()));
+                sweepLeaseHeld = false;
+            } catch (Exception e) {
+                logger.warn("Could not release sweep lease", e);
+            }
         }
 
-        /*
-         * Fetch and lock needs to be done in a separate transaction. Additionally at
-         * the moment of task creation the External Task is not yet visible to other
-         * threads and we need wait for the current transaction to complete.
-         */
-        doAfterTransaction(() ->
-                processAsynchronously(() ->
-                        fetchAndLockExternalTasks(key)));
+        if (clusterMembership != null) {
+            try {
+                clusterMembership.leave(
+                        getProcessEngineConfiguration().getCommandExecutorTxRequiresNew(),
+                        getNodeId());
+            } catch (Exception e) {
+                logger.warn("Could not leave cluster", e);
+            }
+        }
 
     }
-    
-    /*
-     * Fetch and lock any external tasks available - usually only the current one
-     * if called in the context of a task event processing.
-     */
-    protected void fetchAndLockExternalTasks(final String key) {
-        
-        final String topic = getTopicFromInternalKey(key);
-        final String processDefinitionKey = getProcessDefinitionKeyFromInternalKey(key);
+
+    @Override
+    public void setMaxInFlight(final int maxInFlight) {
+
+        this.maxInFlight = maxInFlight;
+
+    }
+
+    @Override
+    public void setShutdownGracePeriod(final long shutdownGracePeriod) {
+
+        this.shutdownGracePeriod = shutdownGracePeriod;
+
+    }
+
+    private void processExternalTask(final String key, final LockedExternalTask task) {
+
+        final String externalTaskId = task.getId();
+        final String businessKey = task.getBusinessKey();
+        final String processInstanceId = task.getProcessInstanceId();
+        final String activityId = task.getActivityId();
+        final String executionId = task.getExecutionId();
+        final Map<String, Object> variables = task.getVariables();
+        final Integer retries = task.getRetries();
+
         final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
-        
-        final List<LockedExternalTask> externalTasks = getExternalTaskService()
-                .fetchAndLock(Integer.MAX_VALUE, getWorkerId())
-                .topic(topic, registration.getLockTimeout())
-                .processDefinitionKey(processDefinitionKey)
-                .variables(registration.getVariablesToFetch())
-                .execute();
-        
-        if ((externalTasks == null) || externalTasks.isEmpty()) {
+
+        final CircuitBreaker circuitBreaker = registration.getCircuitBreaker();
+        final CircuitBreaker.Permission permission = circuitBreaker == null
+                ? null
+                : circuitBreaker.tryAcquirePermission();
+        if ((circuitBreaker != null)
+                && (permission == null)) {
+            // give the task back to be processed once the circuit breaker closes
+            getExternalTaskService().unlock(externalTaskId);
+            markOccurrence(METRIC_CIRCUIT_BREAKER_REJECTED);
             return;
         }
         
-        /*
-         * Processing each task needs to be done in a separate transaction because
-         * completing the external task might be faster than committing the transaction
-         * of "fetchAndLock". Additionally at the moment of task locking this status
-         * is not yet visible to other threads and we need wait for the current
-         * transaction to complete. 
-         */
-        doAfterTransaction(() ->
-                externalTasks.forEach(task ->
-                        processAsynchronously(() -> 
-                                runRegisteredProcessor(
-                                        task.getProcessDefinitionKey(),
-                                        task.getTopicName(),
-                                        task.getId(),
-                                        task.getBusinessKey(),
-                                        task.getProcessInstanceId(),
-                                        task.getActivityId(),
-                                        task.getExecutionId(),
-                                        task.getLockExpirationTime(),
-                                        task.getVariables(),
-                                        task.getRetries()))));
-
-    }
-
-    private void runRegisteredProcessor(final String processDefinitionKey, final String topic,
-            final String externalTaskId, final String businessKey, final String processInstanceId,
-            final String activityId, final String executionId,
-            final Date lockExpirationTime, final Map<String, Object> variables, final Integer retries) {
-
-        final String key = getInternalKey(processDefinitionKey, topic);
-        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
+        final long started = System.currentTimeMillis();
+        boolean processorSucceeded = false;
 
         final String workerId = getWorkerId();
+        final ClaimCheck claimCheck = registration.getClaimCheck();
         try {
             final ExternalTaskHandlerProcessor processor = registration.getProcessor();
             if (processor instanceof ExternalTaskHandlerSyncProcessor) {
+                final Map<String, Object> processorVariables = claimCheck == null
+                        ? variables
+                        : claimCheck.resolveAll(variables);
+                // processors may modify the fetched values in place, so the snapshot
+                // has to be taken before the processor is called
+                final Map<String, String> snapshot = registration.isChangedVariablesOnly()
+                        ? hashVariables(processorVariables)
+                        : null;
                 final Map<String, Object> variablesToBeSet = ((ExternalTaskHandlerSyncProcessor) processor)
-                        .apply(processInstanceId, businessKey, activityId, executionId, variables, retries);
-                getExternalTaskService().complete(externalTaskId, workerId, variablesToBeSet);
+                        .apply(processInstanceId, businessKey, activityId, executionId, processorVariables, retries);
+                processorSucceeded = onProcessorSucceeded(circuitBreaker, permission, started);
+                completeExternalTask(registration, externalTaskId, executionId, variablesToBeSet, snapshot, variables);
+            } else if (processor instanceof ExternalTaskHandlerContextProcessor) {
+                final ExternalTaskContextImpl context = new ExternalTaskContextImpl(task, this::getRuntimeService,
+                        claimCheck);
+                final Map<String, Object> result = ((ExternalTaskHandlerContextProcessor) processor)
+                        .apply(context);
+                processorSucceeded = onProcessorSucceeded(circuitBreaker, permission, started);
+                final Map<String, Object> variablesToBeSet = new HashMap<>();
+                if (result != null) {
+                    variablesToBeSet.putAll(result);
+                }
+                variablesToBeSet.putAll(context.getPayloadVariables());
+                completeExternalTask(registration, externalTaskId, executionId, variablesToBeSet, null,
+                        context.getLoadedVariables());
             } else {
                 final Date responseTimeout = ((ExternalTaskHandlerAsyncRequestProcessor) processor)
-                        .apply(externalTaskId, processInstanceId, businessKey, activityId, executionId, variables, retries);
+                        .apply(externalTaskId, processInstanceId, businessKey, activityId, executionId,
+                                claimCheck == null ? variables : claimCheck.resolveAll(variables), retries);
+                processorSucceeded = onProcessorSucceeded(circuitBreaker, permission, started);
                 
-                setAsyncResponseTimeout(externalTaskId, lockExpirationTime, responseTimeout,
+                setAsyncResponseTimeout(externalTaskId, task.getLockExpirationTime(), responseTimeout,
                         (ExternalTaskAsyncProcessingRegistrationImpl<?, ?>) registration);
             }
         } catch (BpmnErrorWithVariables e) {
-            getExternalTaskService().handleBpmnError(externalTaskId, workerId, e.getErrorCode(), e.getMessage(), e.getVariables());
+            onProcessorSucceeded(circuitBreaker, permission, started);
+            reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                    .handleBpmnError(externalTaskId, workerId, e.getErrorCode(), e.getMessage(), e.getVariables()));
         } catch (BpmnError e) {
-            getExternalTaskService().handleBpmnError(externalTaskId, workerId, e.getErrorCode(), e.getMessage());
+            onProcessorSucceeded(circuitBreaker, permission, started);
+            reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                    .handleBpmnError(externalTaskId, workerId, e.getErrorCode(), e.getMessage()));
         } catch (RetryableException e) {
+            onProcessorFailed(circuitBreaker, permission);
             getExternalTaskService().handleFailure(externalTaskId, workerId,
                     e.getMessage(), buildIncidentDetails(e), e.getRetries(), e.getRetryTimeout());
             if (e.getRetries() > 0) {
                 doAfterTransaction(() ->
                         scheduleFetchAndLockExternalTasks(e.getRetryTimeout(), key));
             }
+        } catch (Exception e) {
+            // conflicts of reports are retried in transactions of their own
+            if (!processorSucceeded
+                    && isConflictOfSurroundingTransaction(e)) {
+                rollBackOnConflict(key, Collections.singletonList(externalTaskId), (OptimisticLockingException) e);
+            }
+            if (!processorSucceeded) {
+                onProcessorFailed(circuitBreaker, permission);
+            }
+            getExternalTaskService().handleFailure(externalTaskId, workerId,
+                    e.getMessage(), buildIncidentDetails(e), 0, 0);
+        }
+
+    }
+
+    private void processBatch(final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final List<LockedExternalTask> tasks) {
+
+        final CircuitBreaker circuitBreaker = registration.getCircuitBreaker();
+        final CircuitBreaker.Permission permission = circuitBreaker == null
+                ? null
+                : circuitBreaker.tryAcquirePermission();
+        if ((circuitBreaker != null)
+                && (permission == null)) {
+            // give the tasks back to be processed once the circuit breaker closes
+            tasks.forEach(task -> getExternalTaskService().unlock(task.getId()));
+            markOccurrence(METRIC_CIRCUIT_BREAKER_REJECTED);
+            return;
+        }
+
+        final Map<String, ExternalTaskContextImpl> contexts = new LinkedHashMap<>();
+        tasks.forEach(task -> contexts.put(task.getId(),
+                new ExternalTaskContextImpl(task, this::getRuntimeService, registration.getClaimCheck())));
+
+        final long started = System.currentTimeMillis();
+        final Map<String, ExternalTaskBatchResult> results;
+        try {
+            final ExternalTaskHandlerProcessor processor = registration.getProcessor();
+            final List<ExternalTaskContext> batch = new LinkedList<>(contexts.values());
+            if (processor instanceof ExternalTaskHandlerBatchProcessor) {
+                results = ((ExternalTaskHandlerBatchProcessor) processor).apply(batch);
+            } else {
+                results = ((ExternalTaskHandlerAsyncBatchRequestProcessor) processor).apply(batch);
+            }
+            onProcessorSucceeded(circuitBreaker, permission, started);
+        } catch (BpmnError e) {
+            // a BPMN error of the whole batch applies to each task
+            onProcessorSucceeded(circuitBreaker, permission, started);
+            tasks.forEach(task -> handleBatchResult(registration, task, contexts.get(task.getId()),
+                    ExternalTaskBatchResult.bpmnError(e)));
+            return;
+        } catch (Exception e) {
+            if (isConflictOfSurroundingTransaction(e)) {
+                rollBackOnConflict(registration.getKey(), tasks
+                        .stream()
+                        .map(LockedExternalTask::getId)
+                        .collect(Collectors.toList()), (OptimisticLockingException) e);
+            }
+            // an error of the whole batch applies to each task
+            onProcessorFailed(circuitBreaker, permission);
+            tasks.forEach(task -> handleBatchResult(registration, task, contexts.get(task.getId()),
+                    ExternalTaskBatchResult.failure(e)));
+            return;
+        }
+
+        tasks.forEach(task -> {
+            final ExternalTaskBatchResult result = results == null
+                    ? null
+                    : results.get(task.getId());
+            handleBatchResult(registration, task, contexts.get(task.getId()), result != null
+                    ? result
+                    : ExternalTaskBatchResult.failure(
+                            new IllegalStateException("The batch processor returned no result for this task")));
+        });
+
+    }
+
+    private void handleBatchResult(final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final LockedExternalTask task, final ExternalTaskContextImpl context,
+            final ExternalTaskBatchResult result) {
+
+        final String externalTaskId = task.getId();
+        final String workerId = getWorkerId();
+        try {
+            switch (result.getType()) {
+            case SUCCESS:
+                final Map<String, Object> variablesToBeSet = new HashMap<>();
+                if (result.getVariables() != null) {
+                    variablesToBeSet.putAll(result.getVariables());
+                }
+                variablesToBeSet.putAll(context.getPayloadVariables());
+                completeExternalTask(registration, externalTaskId, task.getExecutionId(), variablesToBeSet, null,
+                        context.getLoadedVariables());
+                break;
+            case BPMN_ERROR:
+                final BpmnError bpmnError = result.getBpmnError();
+                if (bpmnError instanceof BpmnErrorWithVariables) {
+                    reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                            .handleBpmnError(externalTaskId, workerId, bpmnError.getErrorCode(),
+                                    bpmnError.getMessage(), ((BpmnErrorWithVariables) bpmnError).getVariables()));
+                } else {
+                    reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                            .handleBpmnError(externalTaskId, workerId, bpmnError.getErrorCode(),
+                                    bpmnError.getMessage()));
+                }
+                break;
+            case REQUESTED:
+                if (!(registration instanceof ExternalTaskAsyncProcessingRegistrationImpl)) {
+                    throw new IllegalStateException(
+                            "A result of type REQUESTED is only valid for asynchronous batch processors");
+                }
+                setAsyncResponseTimeout(externalTaskId, task.getLockExpirationTime(), result.getResponseTimeout(),
+                        (ExternalTaskAsyncProcessingRegistrationImpl<?, ?>) registration);
+                break;
+            default:
+                throw result.getFailure();
+            }
+        } catch (RetryableException e) {
+            getExternalTaskService().handleFailure(externalTaskId, workerId,
+                    e.getMessage(), buildIncidentDetails(e), e.getRetries(), e.getRetryTimeout());
+            if (e.getRetries() > 0) {
+                doAfterTransaction(() ->
+                        scheduleFetchAndLockExternalTasks(e.getRetryTimeout(), registration.getKey()));
+            }
         } catch (Exception e) {
             getExternalTaskService().handleFailure(externalTaskId, workerId,
                     e.getMessage(), buildIncidentDetails(e), 0, 0);
@@ -218,6 +1574,291 @@ public abstract class ExternalTaskHandlerImpl
 
     }
 
+    /**
+     * Complete the task whereas unchanged variables are skipped (if configured)
+     * and large payloads are offloaded (if claim-check is configured).
+     * 
+     * @param snapshot        Hashes of the variables before processing (null to
+     *                        load current values)
+     * @param storedVariables The variables as stored before processing, used to
+     *                        delete payloads of references replaced (may be
+     *                        null or incomplete: missing values are loaded)
+     */
+    private void completeExternalTask(final ExternalTaskSyncProcessingRegistrationImpl<?> registration,
+            final String externalTaskId, final String executionId, final Map<String, Object> variablesToBeSet,
+            final Map<String, String> snapshot, final Map<String, Object> storedVariables) throws IOException {
+
+        final Map<String, Object> changedVariables = removeUnchangedVariables(
+                registration, executionId, variablesToBeSet, snapshot);
+
+        final ClaimCheck claimCheck = registration.getClaimCheck();
+        if (claimCheck == null) {
+            reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                    .complete(externalTaskId, getWorkerId(), changedVariables));
+            return;
+        }
+
+        final Map<String, Object> currentVariables = loadMissingVariables(executionId, storedVariables,
+                changedVariables);
+        final Map<String, Object> variablesToBeWritten = claimCheck.offload(changedVariables);
+        try {
+            reportRetryingOnConflict(externalTaskId, () -> getExternalTaskService()
+                    .complete(externalTaskId, getWorkerId(), variablesToBeWritten));
+        } catch (RuntimeException e) {
+            // the completion was rolled back, so the payloads written are orphans
+            claimCheck.deleteWritten(currentVariables, variablesToBeWritten);
+            throw e;
+        }
+        // the completion is committed, so the payloads replaced are not referenced any more
+        claimCheck.deleteReplaced(currentVariables, variablesToBeWritten);
+
+    }
+
+    /**
+     * Processors may write variables which were not fetched (e.g. payloads of a
+     * context processor or variables not in "variablesToFetch"). Their current
+     * values are needed to know the references replaced, so they are loaded
+     * before the completion removes the execution.
+     * 
+     * @return The variables stored completed by the current values of the
+     *         variables to be set which are missing
+     */
+    private Map<String, Object> loadMissingVariables(final String executionId,
+            final Map<String, Object> storedVariables, final Map<String, Object> variablesToBeSet) {
+
+        if ((variablesToBeSet == null)
+                || variablesToBeSet.isEmpty()) {
+            return storedVariables;
+        }
+
+        final List<String> missing = variablesToBeSet
+                .keySet()
+                .stream()
+                .filter(name -> (storedVariables == null) || !storedVariables.containsKey(name))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return storedVariables;
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        if (storedVariables != null) {
+            result.putAll(storedVariables);
+        }
+        result.putAll(getRuntimeService().getVariables(executionId, missing));
+        return result;
+
+    }
+
+    /**
+     * Report the result of a processor (completion or BPMN error) and retry on
+     * optimistic locking conflicts. Each attempt runs in a transaction of its
+     * own, because a conflict marks the transaction it occurred in rollback-only.
+     * So a conflict neither rolls back the processor's transaction nor causes
+     * the processor to be called again.
+     * 
+     * @throws OptimisticLockingException If the conflict persists after all
+     *                                    retries
+     */
+    private void reportRetryingOnConflict(final String externalTaskId, final Runnable report) {
+
+        final ReportExternalTaskCmd reportCmd = new ReportExternalTaskCmd(report);
+
+        OptimisticLockingException conflict;
+        try {
+            getProcessEngineConfiguration()
+                    .getCommandExecutorTxRequiresNew()
+                    .execute(reportCmd);
+            return;
+        } catch (OptimisticLockingException e) {
+            conflict = e;
+        }
+
+        for (int retry = 1; retry <= optimisticLockingRetries; ++retry) {
+            final long backoff = optimisticLockingRetryBackoff << (retry - 1);
+            logger.debug("Optimistic locking conflict reporting external task '{}', retry {} in {}ms",
+                    externalTaskId, retry, backoff);
+            try {
+                Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                getProcessEngineConfiguration()
+                        .getCommandExecutorTxRequiresNew()
+                        .execute(reportCmd);
+                return;
+            } catch (OptimisticLockingException e) {
+                conflict = e;
+            }
+        }
+        throw conflict;
+
+    }
+
+    private boolean isConflictOfSurroundingTransaction(final Exception e) {
+
+        return (e instanceof OptimisticLockingException)
+                && isTransactionActive();
+
+    }
+
+    /*
+     * Neither a retry nor reporting a failure can succeed in a transaction marked
+     * rollback-only by a conflict of the processor's own calls of the engine. The
+     * transaction is rolled back by throwing the conflict and the tasks are
+     * unlocked afterwards to be processed again.
+     */
+    private void rollBackOnConflict(final String key, final List<String> externalTaskIds,
+            final OptimisticLockingException conflict) {
+
+        logger.info("Optimistic locking conflict reporting external tasks {} of '{}', rolling back to process "
+                + "them again", externalTaskIds, key);
+        doAfterTransactionCompletion(() -> {
+            try {
+                getProcessEngineConfiguration()
+                        .getCommandExecutorTxRequiresNew()
+                        .execute(new UnlockExternalTasksCmd(externalTaskIds, getWorkerId()));
+            } catch (RuntimeException e) {
+                logger.warn("Could not unlock external tasks {} after a conflict. They will be processed once "
+                        + "their lock timed out.", externalTaskIds, e);
+                return;
+            }
+            scheduleFetchAndLockExternalTasks(optimisticLockingRetryBackoff, key);
+        });
+        throw conflict;
+
+    }
+
+    private Map<String, String> hashVariables(final Map<String, Object> variables) {
+
+        return getProcessEngineConfiguration()
+                .getCommandExecutorTxRequired()
+                .execute(new HashVariablesCmd(variables));
+
+    }
+
+    /**
+     * Drops variables whose serialized form equals the snapshot given. If no
+     * snapshot is given then the current values of the variables are loaded.
+     * Variables not part of the snapshot are considered as added.
+     */
+    private Map<String, Object> removeUnchangedVariables(
+            final ExternalTaskSyncProcessingRegistrationImpl<?> registration, final String executionId,
+            final Map<String, Object> variablesToBeSet, final Map<String, String> snapshot) {
+
+        if (!registration.isChangedVariablesOnly()
+                || (variablesToBeSet == null)
+                || variablesToBeSet.isEmpty()) {
+            return variablesToBeSet;
+        }
+
+        try {
+            final Map<String, String> before;
+            if (snapshot != null) {
+                before = snapshot;
+            } else {
+                final Map<String, Object> current = getRuntimeService()
+                        .getVariablesTyped(executionId, variablesToBeSet.keySet(), true);
+                before = hashVariables(registration.getClaimCheck() == null
+                        ? current
+                        : registration.getClaimCheck().resolveAll(current));
+            }
+            final Map<String, String> after = hashVariables(variablesToBeSet);
+
+            final Map<String, Object> result = new HashMap<>();
+            variablesToBeSet.forEach((name, value) -> {
+                if (!before.containsKey(name)
+                        || !before.get(name).equals(after.get(name))) {
+                    result.put(name, value);
+                }
+            });
+            logger.debug("Writing {} of {} variables of execution '{}'", result.size(),
+                    variablesToBeSet.size(), executionId);
+            return result;
+        } catch (Exception e) {
+            logger.debug("Could not determine changed variables of execution '{}', will write all",
+                    executionId, e);
+            return variablesToBeSet;
+        }
+
+    }
+
+    private static boolean onProcessorSucceeded(final CircuitBreaker circuitBreaker,
+            final CircuitBreaker.Permission permission, final long started) {
+
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess(permission, System.currentTimeMillis() - started);
+        }
+        return true;
+
+    }
+
+    private static void onProcessorFailed(final CircuitBreaker circuitBreaker,
+            final CircuitBreaker.Permission permission) {
+
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure(permission);
+        }
+
+    }
+
+    private void onCircuitBreakerStateChanged(final String key, final CircuitBreaker.State state) {
+
+        switch (state) {
+        case OPEN:
+            logger.warn("Circuit breaker of '{}' opened! Fetching external tasks is paused.", key);
+            markOccurrence(METRIC_CIRCUIT_BREAKER_OPENED);
+            // give back the tasks waiting in the queue at once instead of one by one
+            doAfterTransaction(() ->
+                    unlockQueuedExternalTasks(queuedExternalTasks
+                            .entrySet()
+                            .stream()
+                            .filter(entry -> key.equals(entry.getValue()))
+                            .map(Map.Entry::getKey)
+                            .collect(Collectors.toList())));
+            // wake up for the probe once the open period is over
+            final long openPeriod = registrations.get(key).getCircuitBreaker().getOpenPeriod();
+            doAfterTransaction(() ->
+                    scheduleFetchAndLockExternalTasks(openPeriod, key));
+            break;
+        case HALF_OPEN:
+            logger.info("Circuit breaker of '{}' is half-open. Will probe a single external task.", key);
+            markOccurrence(METRIC_CIRCUIT_BREAKER_HALF_OPENED);
+            break;
+        default:
+            logger.info("Circuit breaker of '{}' closed. Fetching external tasks is resumed.", key);
+            markOccurrence(METRIC_CIRCUIT_BREAKER_CLOSED);
+            // pick up tasks unlocked or not fetched while the breaker was open
+            doAfterTransaction(() ->
+                    processAsynchronously(() ->
+                            fetchAndLockExternalTasks(key)));
+        }
+
+    }
+
+    /**
+     * Report to Camunda's metrics (see ACT_RU_METER_LOG) if metrics are enabled.
+     */
+    protected void markOccurrence(final String metric) {
+
+        final ProcessEngineConfigurationImpl processEngineConfiguration = getProcessEngineConfiguration();
+        if (!processEngineConfiguration.isMetricsEnabled()) {
+            return;
+        }
+
+        final MetricsRegistry metricsRegistry = processEngineConfiguration.getMetricsRegistry();
+        if (metricsRegistry.getMeterByName(metric) == null) {
+            synchronized (metricsRegistry) {
+                if (metricsRegistry.getMeterByName(metric) == null) {
+                    metricsRegistry.createMeter(metric);
+                }
+            }
+        }
+        metricsRegistry.markOccurrence(metric);
+
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <R, I> R handleAsyncInput(String correlationId, I input) throws Exception {
@@ -227,7 +1868,7 @@ public abstract class ExternalTaskHandlerImpl
                 .externalTaskId(correlationId)
                 .singleResult();
 
-        final String key = getInternalKey(externalTask.getProcessDefinitionKey(), externalTask.getTopicName());
+        final String key = findRegistrationKey(externalTask.getProcessDefinitionKey(), externalTask.getTopicName());
         final ExternalTaskSyncProcessingRegistrationImpl<?> registration = registrations.get(key);
         if (!(registration instanceof ExternalTaskAsyncProcessingRegistration)) {
             throw new Exception("Topic '"
@@ -273,7 +1914,8 @@ public abstract class ExternalTaskHandlerImpl
         }
 
         try {
-            getExternalTaskService().complete(correlationId, getWorkerId(), variablesToBeSet);
+            completeExternalTask(registration, correlationId, externalTask.getExecutionId(), variablesToBeSet,
+                    null, null);
         } catch (Exception e) {
             logger.warn("Could not complete external task '{}' of process '{}'! Will raise an incident.",
                     correlationId, externalTask.getProcessDefinitionKey());
@@ -305,6 +1947,70 @@ public abstract class ExternalTaskHandlerImpl
 
     }
     
+    /**
+     * @return The key of the registration of the given definition's key or of the
+     *         most specific pattern matching it - null if there is none
+     */
+    private String findRegistrationKey(final String processDefinitionKey, final String topic) {
+
+        final String key = getInternalKey(processDefinitionKey, topic);
+        if (registrations.containsKey(key)) {
+            return key;
+        }
+        return definitionPatterns.findKey(processDefinitionKey, topic);
+
+    }
+
+    /*
+     * Tasks of all definitions belonging to a pattern are fetched at once.
+     * Definitions having a registration of their own or matching a more specific
+     * pattern are excluded.
+     */
+    private Collection<String> getProcessDefinitionKeys(final String key) {
+
+        final String processDefinitionKey = getProcessDefinitionKeyFromInternalKey(key);
+        if (!definitionPatterns.contains(key)) {
+            return Collections.singletonList(processDefinitionKey);
+        }
+
+        final String topic = getTopicFromInternalKey(key);
+        return definitionPatterns.getProcessDefinitionKeys(key,
+                definitionKey -> registrations.containsKey(getInternalKey(definitionKey, topic)));
+
+    }
+
+    private Collection<String> loadDeployedProcessDefinitionKeys() {
+
+        registerDeploymentListener();
+        return getProcessEngineConfiguration()
+                .getRepositoryService()
+                .createProcessDefinitionQuery()
+                .latestVersion()
+                .list()
+                .stream()
+                .map(ProcessDefinition::getKey)
+                .collect(Collectors.toSet());
+
+    }
+
+    /*
+     * Drops the cached definition keys once a deployment is committed.
+     */
+    private void registerDeploymentListener() {
+
+        if (!deploymentListenerRegistered.compareAndSet(false, true)) {
+            return;
+        }
+        getProcessEngineConfiguration()
+                .getDeployers()
+                .add(deployment -> Context
+                        .getCommandContext()
+                        .getTransactionContext()
+                        .addTransactionListener(TransactionState.COMMITTED,
+                                commandContext -> definitionPatterns.invalidate()));
+
+    }
+
     private static String getTopicFromInternalKey(final String key) {
 
         return key.substring(key.indexOf('#') + 1);
@@ -415,7 +2121,7 @@ public abstract class ExternalTaskHandlerImpl
             return;
         }
         
-        final String key = getInternalKey(externalTask.getProcessDefinitionKey(), externalTask.getTopicName());
+        final String key = findRegistrationKey(externalTask.getProcessDefinitionKey(), externalTask.getTopicName());
         final ExternalTaskAsyncProcessingRegistrationImpl<?, ?> registration = (ExternalTaskAsyncProcessingRegistrationImpl<?, ?>) registrations
                 .get(key);
         
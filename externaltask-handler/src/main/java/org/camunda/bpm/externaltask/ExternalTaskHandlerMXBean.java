@@ -0,0 +1,44 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.List;
+
+/**
+ * Management interface of a handler registered in the platform's MBean server
+ * as <i>org.camunda.bpm.externaltask:type=ExternalTaskHandler,engine=...</i>.
+ * Changes take effect with the next fetch, no restart is required.
+ */
+public interface ExternalTaskHandlerMXBean {
+
+    List<RegistrationInfo> getRegistrations();
+
+    RegistrationInfo getRegistration(String processDefinitionKey, String topic);
+
+    /**
+     * @return Number of tasks locked but not yet processed across all
+     *         registrations
+     */
+    int getInFlight();
+
+    int getMaxInFlight();
+
+    void setMaxInFlight(int maxInFlight);
+
+    void changeLockTimeout(String processDefinitionKey, String topic, long lockTimeout);
+
+    void changeMaxInFlight(String processDefinitionKey, String topic, int maxInFlight);
+
+    void changeFetchPageSize(String processDefinitionKey, String topic, int fetchPageSize);
+
+    /**
+     * Stop fetching tasks of the registration. Tasks fetched already are
+     * processed.
+     */
+    void pause(String processDefinitionKey, String topic);
+
+    /**
+     * Continue fetching tasks of the registration, tasks waiting are fetched
+     * immediately.
+     */
+    void resume(String processDefinitionKey, String topic);
+
+}
@@ -0,0 +1,185 @@
+package org.camunda.bpm.externaltask;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.camunda.bpm.externaltask.CircuitBreaker.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runtime statistics and tuning of a handler, registered as MBean and used by
+ * other management endpoints (e.g. Spring Boot Actuator).
+ */
+public class ExternalTaskHandlerManagement implements ExternalTaskHandlerMXBean {
+
+    private static Logger logger = LoggerFactory.getLogger(ExternalTaskHandlerManagement.class);
+
+    public static final String OBJECT_NAME_PREFIX = "org.camunda.bpm.externaltask:type=ExternalTaskHandler,engine=";
+
+    private final ExternalTaskHandlerImpl handler;
+
+    private ObjectName objectName;
+
+    ExternalTaskHandlerManagement(final ExternalTaskHandlerImpl handler) {
+
+        this.handler = handler;
+
+    }
+
+    synchronized void register() {
+
+        if (objectName != null) {
+            return;
+        }
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME_PREFIX
+                    + ObjectName.quote(handler.getProcessEngineName()));
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name); // e.g. left by a redeployment
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Could not register management MBean", e);
+        }
+
+    }
+
+    synchronized void unregister() {
+
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException | RuntimeException e) {
+            logger.debug("Could not unregister management MBean", e);
+        }
+        objectName = null;
+
+    }
+
+    @Override
+    public List<RegistrationInfo> getRegistrations() {
+
+        return handler.registrations
+                .values()
+                .stream()
+                .map(this::toInfo)
+                .collect(Collectors.toList());
+
+    }
+
+    @Override
+    public RegistrationInfo getRegistration(final String processDefinitionKey, final String topic) {
+
+        return toInfo(findRegistration(processDefinitionKey, topic));
+
+    }
+
+    private RegistrationInfo toInfo(final ExternalTaskSyncProcessingRegistrationImpl<?> registration) {
+
+        final String key = registration.getKey();
+        final RegistrationStatistics statistics = registration.getStatistics();
+        final State circuitBreakerState = registration.getCircuitBreakerState();
+        final Long lockTimeout = registration.getLockTimeout();
+        final Integer maxInFlight = registration.getMaxInFlight();
+        return new RegistrationInfo(
+                key.substring(0, key.lastIndexOf('#')),
+                key.substring(key.lastIndexOf('#') + 1),
+                registration.isPaused(),
+                circuitBreakerState == null ? null : circuitBreakerState.name(),
+                lockTimeout == null ? 0 : lockTimeout,
+                maxInFlight == null ? 0 : maxInFlight,
+                handler.getFetchPageSize(registration),
+                registration.getInFlight().get(),
+                handler.countQueuedExternalTasks(key),
+                statistics.getLastFetchSize(),
+                statistics.getProcessed(),
+                statistics.getLatencyPercentile(0.5),
+                statistics.getLatencyPercentile(0.95),
+                statistics.getLatencyPercentile(0.99));
+
+    }
+
+    @Override
+    public int getInFlight() {
+
+        return handler.getInFlightTasks();
+
+    }
+
+    @Override
+    public int getMaxInFlight() {
+
+        return handler.maxInFlight;
+
+    }
+
+    @Override
+    public void setMaxInFlight(final int maxInFlight) {
+
+        handler.setMaxInFlight(maxInFlight);
+
+    }
+
+    @Override
+    public void changeLockTimeout(final String processDefinitionKey, final String topic, final long lockTimeout) {
+
+        findRegistration(processDefinitionKey, topic).lockTimeout(lockTimeout);
+
+    }
+
+    @Override
+    public void changeMaxInFlight(final String processDefinitionKey, final String topic, final int maxInFlight) {
+
+        findRegistration(processDefinitionKey, topic).maxInFlight(maxInFlight);
+
+    }
+
+    @Override
+    public void changeFetchPageSize(final String processDefinitionKey, final String topic, final int fetchPageSize) {
+
+        findRegistration(processDefinitionKey, topic).setFetchPageSize(fetchPageSize);
+
+    }
+
+    @Override
+    public void pause(final String processDefinitionKey, final String topic) {
+
+        findRegistration(processDefinitionKey, topic).setPaused(true);
+
+    }
+
+    @Override
+    public void resume(final String processDefinitionKey, final String topic) {
+
+        final ExternalTaskSyncProcessingRegistrationImpl<?> registration = findRegistration(processDefinitionKey, topic);
+        if (registration.isPaused()) {
+            registration.setPaused(false);
+            handler.resumeFetching(registration.getKey());
+        }
+
+    }
+
+    private ExternalTaskSyncProcessingRegistrationImpl<?> findRegistration(final String processDefinitionKey,
+            final String topic) {
+
+        final ExternalTaskSyncProcessingRegistrationImpl<?> result = handler.registrations
+                .get(processDefinitionKey + "#" + topic);
+        if (result == null) {
+            throw new IllegalArgumentException("No processor registered for topic '" + topic
+                    + "' of process definition '" + processDefinitionKey + "'");
+        }
+        return result;
+
+    }
+
+}
@@ -1,29 +1,79 @@
 package org.camunda.bpm.externaltask;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerAsyncBatchRequestProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerBatchProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerContextProcessor;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandlerProcessor;
+import org.camunda.bpm.externaltask.spi.ExternalTaskPayloadStore;
 import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
 
 public class ExternalTaskSyncProcessingRegistrationImpl<T extends ExternalTaskSyncProcessingRegistration<?>>
         implements ExternalTaskSyncProcessingRegistration<T> {
 
-    private Long lockTimeout;
+    private volatile Long lockTimeout;
 
     private ExternalTaskHandlerProcessor processor;
 
     private List<String> variablesToFetch;
 
-    ExternalTaskSyncProcessingRegistrationImpl(final ExternalTaskHandlerProcessor processor) {
+    private final String key;
+
+    private final BiConsumer<String, CircuitBreaker.State> circuitBreakerStateListener;
+
+    private final Consumer<String> activationListener;
+
+    private CircuitBreaker circuitBreaker;
+
+    private boolean changedVariablesOnly;
+
+    private ClaimCheck claimCheck;
+
+    private Integer batchSize;
+
+    private long batchGatheringPeriod;
+
+    private volatile Integer maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private TenantScheduler tenantScheduler;
+
+    private volatile Integer fetchPageSize;
+
+    private volatile boolean paused;
+
+    private final RegistrationStatistics statistics = new RegistrationStatistics();
+
+    ExternalTaskSyncProcessingRegistrationImpl(final String key, final ExternalTaskHandlerProcessor processor,
+            final BiConsumer<String, CircuitBreaker.State> circuitBreakerStateListener,
+            final Consumer<String> activationListener) {
+        this.key = key;
         this.processor = processor;
+        this.circuitBreakerStateListener = circuitBreakerStateListener;
+        this.activationListener = activationListener;
+    }
+
+    String getKey() {
+        return key;
     }
 
     ExternalTaskHandlerProcessor getProcessor() {
         return processor;
     }
 
+    @Override
+    public void activate() {
+        activationListener.accept(key);
+    }
+
     public Long getLockTimeout() {
         return lockTimeout;
     }
@@ -39,6 +89,24 @@ public class ExternalTaskSyncProcessingRegistrationImpl<T extends ExternalTaskSy
         return variablesToFetch;
     }
 
+    boolean isBatchProcessor() {
+        return (processor instanceof ExternalTaskHandlerBatchProcessor)
+                || (processor instanceof ExternalTaskHandlerAsyncBatchRequestProcessor);
+    }
+
+    /*
+     * Processors using a context load variables lazily, so nothing has to be
+     * fetched unless defined explicitly.
+     */
+    List<String> getVariablesToFetchOnLock() {
+        if ((variablesToFetch == null)
+                && ((processor instanceof ExternalTaskHandlerContextProcessor)
+                        || isBatchProcessor())) {
+            return Collections.emptyList();
+        }
+        return variablesToFetch;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public T variablesToFetch(List<String> variables) {
@@ -61,4 +129,149 @@ public class ExternalTaskSyncProcessingRegistrationImpl<T extends ExternalTaskSy
         return (T) this;
     }
 
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker == null ? null : circuitBreaker.getState();
+    }
+
+    @Override
+    public T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod) {
+        return circuitBreaker(failureRateThreshold, windowSize, openPeriod, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T circuitBreaker(int failureRateThreshold, int windowSize, long openPeriod, Long slowCallThreshold) {
+        this.circuitBreaker = new CircuitBreaker(key, failureRateThreshold, windowSize, openPeriod,
+                slowCallThreshold, circuitBreakerStateListener);
+        return (T) this;
+    }
+
+    public boolean isChangedVariablesOnly() {
+        return changedVariablesOnly;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T changedVariablesOnly() {
+        this.changedVariablesOnly = true;
+        return (T) this;
+    }
+
+    ClaimCheck getClaimCheck() {
+        return claimCheck;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T claimCheck(ExternalTaskPayloadStore store, int threshold) {
+        this.claimCheck = new ClaimCheck(store, threshold);
+        return (T) this;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size has to be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchGatheringPeriod() {
+        return batchGatheringPeriod;
+    }
+
+    void setBatchGatheringPeriod(long batchGatheringPeriod) {
+        this.batchGatheringPeriod = batchGatheringPeriod;
+    }
+
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T maxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The maximum number of tasks in flight has to be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        return (T) this;
+    }
+
+    /**
+     * @return Number of tasks locked but not yet processed
+     */
+    AtomicInteger getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The number of tasks locked by one fetch or null for the handler's
+     *         default
+     */
+    public Integer getFetchPageSize() {
+        return fetchPageSize;
+    }
+
+    public void setFetchPageSize(int fetchPageSize) {
+        if (fetchPageSize < 1) {
+            throw new IllegalArgumentException("The fetch page size has to be at least 1");
+        }
+        this.fetchPageSize = fetchPageSize;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public RegistrationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return The scheduler sharing fetches between tenants or null if tenants
+     *         are not configured
+     */
+    public TenantScheduler getTenantScheduler() {
+        return tenantScheduler;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T tenant(String tenantId, int weight) {
+        if (tenantScheduler == null) {
+            tenantScheduler = new TenantScheduler();
+        }
+        tenantScheduler.addTenant(tenantId, weight);
+        return (T) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T tenants(String... tenantIds) {
+        Arrays.stream(tenantIds).forEach(tenantId -> tenant(tenantId, 1));
+        return (T) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T maxInFlightPerTenant(int maxInFlightPerTenant) {
+        if (tenantScheduler == null) {
+            throw new IllegalStateException("Tenants have to be configured first");
+        }
+        tenantScheduler.setMaxInFlightPerTenant(maxInFlightPerTenant);
+        return (T) this;
+    }
+
 }
@@ -0,0 +1,65 @@
+package org.camunda.bpm.externaltask;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.camunda.bpm.externaltask.spi.ExternalTaskPayloadStore;
+
+/**
+ * Stores payloads as files of the given directory. In a cluster the directory
+ * has to be shared by all nodes.
+ */
+public class FileSystemPayloadStore implements ExternalTaskPayloadStore {
+
+    private final Path directory;
+
+    public FileSystemPayloadStore(final Path directory) {
+
+        this.directory = directory.toAbsolutePath().normalize();
+
+    }
+
+    @Override
+    public String newReference() {
+
+        return UUID.randomUUID().toString();
+
+    }
+
+    @Override
+    public OutputStream openOutputStream(final String reference) throws IOException {
+
+        Files.createDirectories(directory);
+        return Files.newOutputStream(resolve(reference));
+
+    }
+
+    @Override
+    public InputStream openInputStream(final String reference) throws IOException {
+
+        return Files.newInputStream(resolve(reference));
+
+    }
+
+    @Override
+    public void delete(final String reference) throws IOException {
+
+        Files.deleteIfExists(resolve(reference));
+
+    }
+
+    private Path resolve(final String reference) throws IOException {
+
+        final Path file = directory.resolve(reference).normalize();
+        if (!directory.equals(file.getParent())) {
+            throw new IOException("Invalid payload reference '" + reference + "'");
+        }
+        return file;
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package org.camunda.bpm.externaltask;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.variable.serializer.TypedValueSerializer;
+import org.camunda.bpm.engine.impl.variable.serializer.ValueFields;
+import org.camunda.bpm.engine.variable.VariableMap;
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+
+/**
+ * Builds a hash of each variable's serialized form - exactly the values which
+ * would be written to the database. Comparing those hashes shows whether a
+ * variable was changed, regardless of equals() implementations of the
+ * variables' classes.
+ */
+public class HashVariablesCmd implements Command<Map<String, String>> {
+
+    private final Map<String, Object> variables;
+
+    public HashVariablesCmd(final Map<String, Object> variables) {
+
+        this.variables = variables;
+
+    }
+
+    @Override
+    public Map<String, String> execute(final CommandContext commandContext) {
+
+        final ProcessEngineConfigurationImpl processEngineConfiguration = commandContext
+                .getProcessEngineConfiguration();
+
+        final Map<String, String> result = new HashMap<>();
+        variables.keySet().forEach(name -> {
+            final TypedValue value = getTypedValue(name);
+            @SuppressWarnings("unchecked")
+            final TypedValueSerializer<TypedValue> serializer = processEngineConfiguration
+                    .getVariableSerializers()
+                    .findSerializerForValue(value, processEngineConfiguration.getFallbackSerializerFactory());
+            final SerializedValueFields fields = new SerializedValueFields(name);
+            serializer.writeValue(value, fields);
+            result.put(name, fields.hash(serializer.getName()));
+        });
+        return result;
+
+    }
+
+    private TypedValue getTypedValue(final String name) {
+
+        if (variables instanceof VariableMap) {
+            return ((VariableMap) variables).getValueTyped(name);
+        }
+        final Object value = variables.get(name);
+        if (value instanceof TypedValue) {
+            return (TypedValue) value;
+        }
+        return value == null
+                ? Variables.untypedNullValue()
+                : Variables.untypedValue(value);
+
+    }
+
+    private static class SerializedValueFields implements ValueFields {
+
+        private final String name;
+
+        private String textValue;
+
+        private String textValue2;
+
+        private Long longValue;
+
+        private Double doubleValue;
+
+        private byte[] byteArrayValue;
+
+        SerializedValueFields(final String name) {
+            this.name = name;
+        }
+
+        String hash(final String serializerName) {
+
+            try {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                update(digest, serializerName);
+                update(digest, textValue);
+                update(digest, textValue2);
+                update(digest, longValue == null ? null : longValue.toString());
+                update(digest, doubleValue == null ? null : doubleValue.toString());
+                if (byteArrayValue != null) {
+                    digest.update(byteArrayValue);
+                }
+                return Base64.getEncoder().encodeToString(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("Could not build hash of variable '" + name + "'", e);
+            }
+
+        }
+
+        private static void update(final MessageDigest digest, final String value) {
+
+            // a separator makes sure "ab" + null differs from "a" + "b"
+            digest.update(value == null
+                    ? new byte[] { 0 }
+                    : (value + '\u0001').getBytes(StandardCharsets.UTF_8));
+
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getTextValue() {
+            return textValue;
+        }
+
+        @Override
+        public void setTextValue(String textValue) {
+            this.textValue = textValue;
+        }
+
+        @Override
+        public String getTextValue2() {
+            return textValue2;
+        }
+
+        @Override
+        public void setTextValue2(String textValue2) {
+            this.textValue2 = textValue2;
+        }
+
+        @Override
+        public Long getLongValue() {
+            return longValue;
+        }
+
+        @Override
+        public void setLongValue(Long longValue) {
+            this.longValue = longValue;
+        }
+
+        @Override
+        public Double getDoubleValue() {
+            return doubleValue;
+        }
+
+        @Override
+        public void setDoubleValue(Double doubleValue) {
+            this.doubleValue = doubleValue;
+        }
+
+        @Override
+        public byte[] getByteArrayValue() {
+            return byteArrayValue;
+        }
+
+        @Override
+        public void setByteArrayValue(byte[] bytes) {
+            this.byteArrayValue = bytes;
+        }
+
+    }
+
+}
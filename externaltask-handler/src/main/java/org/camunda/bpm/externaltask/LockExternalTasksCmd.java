@@ -0,0 +1,94 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.entitymanager.OptimisticLockingListener;
+import org.camunda.bpm.engine.impl.db.entitymanager.operation.DbEntityOperation;
+import org.camunda.bpm.engine.impl.db.entitymanager.operation.DbOperation;
+import org.camunda.bpm.engine.impl.externaltask.LockedExternalTaskImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.ExternalTaskEntity;
+
+/**
+ * Locks the given external tasks. Unlike Camunda's fetch and lock this allows
+ * to lock a set of tasks selected before (e.g. by partition). Tasks locked
+ * concurrently by other nodes are skipped.
+ * 
+ * @see org.camunda.bpm.engine.impl.cmd.FetchExternalTasksCmd
+ */
+public class LockExternalTasksCmd implements Command<List<LockedExternalTask>> {
+
+    private final List<String> externalTaskIds;
+
+    private final String workerId;
+
+    private final long lockDuration;
+
+    private final List<String> variablesToFetch;
+
+    public LockExternalTasksCmd(final List<String> externalTaskIds, final String workerId,
+            final long lockDuration, final List<String> variablesToFetch) {
+
+        this.externalTaskIds = externalTaskIds;
+        this.workerId = workerId;
+        this.lockDuration = lockDuration;
+        this.variablesToFetch = variablesToFetch;
+
+    }
+
+    @Override
+    public List<LockedExternalTask> execute(final CommandContext commandContext) {
+
+        final Date now = new Date();
+        final List<LockedExternalTask> result = new LinkedList<>();
+
+        externalTaskIds.forEach(externalTaskId -> {
+            final ExternalTaskEntity entity = commandContext
+                    .getExternalTaskManager()
+                    .findExternalTaskById(externalTaskId);
+            if ((entity == null)
+                    || entity.isSuspended()
+                    || !entity.areRetriesLeft()
+                    || ((entity.getLockExpirationTime() != null)
+                            && entity.getLockExpirationTime().after(now))) {
+                return; // completed or locked in the meantime
+            }
+            entity.lock(workerId, lockDuration);
+            result.add(LockedExternalTaskImpl.fromEntity(entity, variablesToFetch, false, false));
+        });
+
+        commandContext.getDbEntityManager().registerOptimisticLockingListener(new OptimisticLockingListener() {
+
+            @Override
+            public Class<? extends DbEntity> getEntityType() {
+                return ExternalTaskEntity.class;
+            }
+
+            @Override
+            public void failedOperation(final DbOperation operation) {
+                if (!(operation instanceof DbEntityOperation)) {
+                    return;
+                }
+                // locked by another node concurrently
+                final DbEntity entity = ((DbEntityOperation) operation).getEntity();
+                final Iterator<LockedExternalTask> tasks = result.iterator();
+                while (tasks.hasNext()) {
+                    if (tasks.next().getId().equals(entity.getId())) {
+                        tasks.remove();
+                    }
+                }
+            }
+
+        });
+
+        return result;
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Registrations whose process definition key contains '*' as a wildcard. A
+ * definition matched by several patterns of the same topic belongs to the
+ * most specific one: the one having the most literal characters, then the
+ * fewest wildcards, then the lexicographically smallest. So resolving a
+ * definition does not depend on the order of registration.
+ * <p>
+ * The keys of deployed definitions are cached until {@link #invalidate()} is
+ * called, e.g. once a deployment is committed.
+ * </p>
+ */
+class ProcessDefinitionPatterns {
+
+    private static final Comparator<Registration> MOST_SPECIFIC_FIRST = Comparator
+            .comparingInt((Registration registration) -> registration.literals)
+            .reversed()
+            .thenComparingInt(registration -> registration.wildcards)
+            .thenComparing(registration -> registration.pattern);
+
+    private static class Registration {
+
+        private final String key;
+
+        private final String topic;
+
+        private final String pattern;
+
+        private final Pattern regex;
+
+        private final int wildcards;
+
+        private final int literals;
+
+        Registration(final String key, final String topic, final String pattern) {
+
+            this.key = key;
+            this.topic = topic;
+            this.pattern = pattern;
+            this.regex = toRegex(pattern);
+            this.wildcards = (int) pattern.chars().filter(c -> c == '*').count();
+            this.literals = pattern.length() - wildcards;
+
+        }
+
+    }
+
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    private final Supplier<Collection<String>> deployedProcessDefinitionKeysLoader;
+
+    private volatile Set<String> deployedProcessDefinitionKeys;
+
+    /**
+     * @param deployedProcessDefinitionKeysLoader Loads the keys of the process
+     *                                            definitions deployed
+     */
+    ProcessDefinitionPatterns(final Supplier<Collection<String>> deployedProcessDefinitionKeysLoader) {
+
+        this.deployedProcessDefinitionKeysLoader = deployedProcessDefinitionKeysLoader;
+
+    }
+
+    static boolean isPattern(final String processDefinitionKey) {
+
+        return processDefinitionKey.indexOf('*') != -1;
+
+    }
+
+    /**
+     * @param key     The internal key of the registration
+     * @param topic   The registration's topic
+     * @param pattern The registration's process definition key
+     */
+    void add(final String key, final String topic, final String pattern) {
+
+        registrations.put(key, new Registration(key, topic, pattern));
+
+    }
+
+    boolean contains(final String key) {
+
+        return registrations.containsKey(key);
+
+    }
+
+    /**
+     * @return The key of the most specific pattern of the topic matching the
+     *         definition's key - null if there is none
+     */
+    String findKey(final String processDefinitionKey, final String topic) {
+
+        return registrations
+                .values()
+                .stream()
+                .filter(registration -> topic.equals(registration.topic))
+                .filter(registration -> registration.regex.matcher(processDefinitionKey).matches())
+                .min(MOST_SPECIFIC_FIRST)
+                .map(registration -> registration.key)
+                .orElse(null);
+
+    }
+
+    /**
+     * @param key                 The internal key of a pattern's registration
+     * @param registeredExactly   Whether a definition has a registration of its
+     *                            own key for the pattern's topic
+     * @return The keys of the deployed definitions belonging to the pattern:
+     *         matching it, not registered exactly and not belonging to a more
+     *         specific pattern
+     */
+    Collection<String> getProcessDefinitionKeys(final String key, final Predicate<String> registeredExactly) {
+
+        final Registration registration = registrations.get(key);
+        return getDeployedProcessDefinitionKeys()
+                .stream()
+                .filter(definitionKey -> registration.regex.matcher(definitionKey).matches())
+                .filter(registeredExactly.negate())
+                .filter(definitionKey -> key.equals(findKey(definitionKey, registration.topic)))
+                .sorted()
+                .collect(Collectors.toList());
+
+    }
+
+    /**
+     * Called for definitions creating tasks, so definitions deployed by other
+     * nodes are picked up as soon as their tasks are seen.
+     */
+    void onProcessDefinitionUsed(final String processDefinitionKey) {
+
+        final Set<String> cached = deployedProcessDefinitionKeys;
+        if ((cached != null)
+                && !cached.contains(processDefinitionKey)) {
+            invalidate();
+        }
+
+    }
+
+    synchronized void invalidate() {
+
+        deployedProcessDefinitionKeys = null;
+
+    }
+
+    private Set<String> getDeployedProcessDefinitionKeys() {
+
+        final Set<String> cached = deployedProcessDefinitionKeys;
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (this) {
+            if (deployedProcessDefinitionKeys == null) {
+                deployedProcessDefinitionKeys = new HashSet<>(deployedProcessDefinitionKeysLoader.get());
+            }
+            return deployedProcessDefinitionKeys;
+        }
+
+    }
+
+    /*
+     * '*' matches any sequence of characters, anything else literally.
+     */
+    private static Pattern toRegex(final String processDefinitionKey) {
+
+        final StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int wildcard;
+        while ((wildcard = processDefinitionKey.indexOf('*', start)) != -1) {
+            if (wildcard > start) {
+                regex.append(Pattern.quote(processDefinitionKey.substring(start, wildcard)));
+            }
+            regex.append(".*");
+            start = wildcard + 1;
+        }
+        if (start < processDefinitionKey.length()) {
+            regex.append(Pattern.quote(processDefinitionKey.substring(start)));
+        }
+        return Pattern.compile(regex.toString());
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * A fixed number of lanes tasks are assigned to by the hash of their process
+ * instance id. Tasks of one lane are processed one after the other, tasks of
+ * different lanes in parallel. This serializes completions of tasks of the same
+ * process instance (e.g. created by a parallel gateway) which otherwise
+ * conflict on the shared parent execution.
+ */
+class ProcessInstanceLanes {
+
+    static class Lane {
+
+        private final Queue<Runnable> waiting = new LinkedList<>();
+
+        private boolean busy;
+
+        private long busySince;
+
+        /**
+         * @param staleAfter Period after which a busy lane is considered stuck
+         *                   (e.g. its submission was discarded by the executor)
+         *                   and is taken over by this submission
+         * @return Whether the lane was idle and the caller has to run the
+         *         submission now, otherwise it is run by {@link #next()}
+         */
+        synchronized boolean enqueue(final Runnable submission, final long staleAfter) {
+
+            final long now = System.currentTimeMillis();
+            if (busy
+                    && (now - busySince < staleAfter)) {
+                waiting.add(submission);
+                return false;
+            }
+            busy = true;
+            busySince = now;
+            return true;
+
+        }
+
+        /**
+         * @return The next submission to be run or null if the lane is idle now
+         */
+        synchronized Runnable next() {
+
+            final Runnable result = waiting.poll();
+            if (result == null) {
+                busy = false;
+            } else {
+                busySince = System.currentTimeMillis();
+            }
+            return result;
+
+        }
+
+    }
+
+    private final Lane[] lanes;
+
+    ProcessInstanceLanes(final int count) {
+
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of lanes has to be at least 1");
+        }
+        lanes = new Lane[count];
+        for (int i = 0; i < count; ++i) {
+            lanes[i] = new Lane();
+        }
+
+    }
+
+    Lane getLane(final String processInstanceId) {
+
+        return lanes[Math.floorMod(processInstanceId.hashCode(), lanes.length)];
+
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.camunda.bpm.externaltask;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of a registration's settings and statistics.
+ */
+public class RegistrationInfo {
+
+    private final String processDefinitionKey;
+
+    private final String topic;
+
+    private final boolean paused;
+
+    private final String circuitBreakerState;
+
+    private final long lockTimeout;
+
+    private final int maxInFlight;
+
+    private final int fetchPageSize;
+
+    private final int inFlight;
+
+    private final int queued;
+
+    private final int lastFetchSize;
+
+    private final long processed;
+
+    private final long latencyP50;
+
+    private final long latencyP95;
+
+    private final long latencyP99;
+
+    @ConstructorProperties({ "processDefinitionKey", "topic", "paused", "circuitBreakerState", "lockTimeout",
+            "maxInFlight", "fetchPageSize", "inFlight", "queued", "lastFetchSize", "processed", "latencyP50",
+            "latencyP95", "latencyP99" })
+    public RegistrationInfo(final String processDefinitionKey, final String topic, final boolean paused,
+            final String circuitBreakerState, final long lockTimeout, final int maxInFlight, final int fetchPageSize,
+            final int inFlight, final int queued, final int lastFetchSize, final long processed,
+            final long latencyP50, final long latencyP95, final long latencyP99) {
+
+        this.processDefinitionKey = processDefinitionKey;
+        this.topic = topic;
+        this.paused = paused;
+        this.circuitBreakerState = circuitBreakerState;
+        this.lockTimeout = lockTimeout;
+        this.maxInFlight = maxInFlight;
+        this.fetchPageSize = fetchPageSize;
+        this.inFlight = inFlight;
+        this.queued = queued;
+        this.lastFetchSize = lastFetchSize;
+        this.processed = processed;
+        this.latencyP50 = latencyP50;
+        this.latencyP95 = latencyP95;
+        this.latencyP99 = latencyP99;
+
+    }
+
+    public String getProcessDefinitionKey() {
+        return processDefinitionKey;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return The state of the circuit breaker or null if none is configured
+     */
+    public String getCircuitBreakerState() {
+        return circuitBreakerState;
+    }
+
+    public long getLockTimeout() {
+        return lockTimeout;
+    }
+
+    /**
+     * @return The registration's limit or 0 if only the global limit applies
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getFetchPageSize() {
+        return fetchPageSize;
+    }
+
+    /**
+     * @return Number of tasks locked but not yet processed (queued or running)
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return Number of tasks locked but not yet started
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getLastFetchSize() {
+        return lastFetchSize;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return Median of the processing durations of recent tasks in milliseconds
+     */
+    public long getLatencyP50() {
+        return latencyP50;
+    }
+
+    public long getLatencyP95() {
+        return latencyP95;
+    }
+
+    public long getLatencyP99() {
+        return latencyP99;
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Arrays;
+
+/**
+ * Live statistics of a registration: the size of the last fetch and the
+ * processing durations of the most recent tasks (or batches).
+ */
+public class RegistrationStatistics {
+
+    static final int SAMPLES = 1024;
+
+    private final long[] durations = new long[SAMPLES];
+
+    private long processed;
+
+    private volatile int lastFetchSize;
+
+    void recordFetch(final int size) {
+
+        lastFetchSize = size;
+
+    }
+
+    synchronized void recordProcessing(final long duration) {
+
+        durations[(int) (processed % SAMPLES)] = duration;
+        ++processed;
+
+    }
+
+    public int getLastFetchSize() {
+        return lastFetchSize;
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @param percentile e.g. 0.95
+     * @return The processing duration in milliseconds not exceeded by the given
+     *         share of the recent tasks or 0 if no task was processed yet
+     */
+    public long getLatencyPercentile(final double percentile) {
+
+        final long[] samples;
+        synchronized (this) {
+            samples = Arrays.copyOf(durations, (int) Math.min(processed, SAMPLES));
+        }
+        if (samples.length == 0) {
+            return 0;
+        }
+        Arrays.sort(samples);
+        final int index = (int) Math.ceil(percentile * samples.length) - 1;
+        return samples[Math.max(0, Math.min(index, samples.length - 1))];
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package org.camunda.bpm.externaltask;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+
+/**
+ * Removes the sweep lease if held by the current node so another node takes
+ * over the sweep immediately.
+ */
+public class ReleaseSweepLeaseCmd implements Command<Void> {
+
+    private final String nodeName;
+
+    public ReleaseSweepLeaseCmd(final String nodeName) {
+
+        this.nodeName = nodeName;
+
+    }
+
+    @Override
+    public Void execute(final CommandContext commandContext) {
+
+        final PropertyEntity lease = commandContext
+                .getPropertyManager()
+                .findPropertyById(AcquireSweepLeaseCmd.SWEEP_LEASE);
+        if ((lease != null)
+                && nodeName.equals(AcquireSweepLeaseCmd.getHolder(lease))) {
+            commandContext.getDbEntityManager().delete(lease);
+        }
+        return null;
+
+    }
+
+}
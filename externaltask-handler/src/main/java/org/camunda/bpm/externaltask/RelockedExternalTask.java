@@ -0,0 +1,44 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Date;
+
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.impl.externaltask.LockedExternalTaskImpl;
+import org.camunda.bpm.engine.variable.VariableMap;
+import org.camunda.bpm.engine.variable.impl.VariableMapImpl;
+
+/**
+ * A locked external task whose lock was extended after fetching it, e.g.
+ * while it waited in its process instance's lane.
+ */
+class RelockedExternalTask extends LockedExternalTaskImpl {
+
+    RelockedExternalTask(final LockedExternalTask task, final Date lockExpirationTime) {
+
+        this.id = task.getId();
+        this.topicName = task.getTopicName();
+        this.workerId = task.getWorkerId();
+        this.lockExpirationTime = lockExpirationTime;
+        this.retries = task.getRetries();
+        this.errorMessage = task.getErrorMessage();
+        this.errorDetails = task.getErrorDetails();
+        this.processInstanceId = task.getProcessInstanceId();
+        this.executionId = task.getExecutionId();
+        this.activityId = task.getActivityId();
+        this.activityInstanceId = task.getActivityInstanceId();
+        this.processDefinitionId = task.getProcessDefinitionId();
+        this.processDefinitionKey = task.getProcessDefinitionKey();
+        this.processDefinitionVersionTag = task.getProcessDefinitionVersionTag();
+        this.tenantId = task.getTenantId();
+        this.priority = task.getPriority();
+        this.businessKey = task.getBusinessKey();
+        final VariableMap variables = task.getVariables();
+        if (variables instanceof VariableMapImpl) {
+            this.variables = (VariableMapImpl) variables;
+        } else if (variables != null) {
+            this.variables = new VariableMapImpl(variables);
+        }
+
+    }
+
+}
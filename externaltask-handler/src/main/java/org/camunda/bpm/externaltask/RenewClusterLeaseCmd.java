@@ -0,0 +1,72 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.PropertyEntity;
+
+/**
+ * Renews the lease of the current node and returns the names of all nodes
+ * having a valid lease. Leases are stored in Camunda's table ACT_GE_PROPERTY
+ * so no additional table is required.
+ */
+public class RenewClusterLeaseCmd implements Command<List<String>> {
+
+    private final String prefix;
+
+    private final String nodeName;
+
+    private final long leaseTimeout;
+
+    public RenewClusterLeaseCmd(final String prefix, final String nodeName, final long leaseTimeout) {
+
+        this.prefix = prefix;
+        this.nodeName = nodeName;
+        this.leaseTimeout = leaseTimeout;
+
+    }
+
+    @Override
+    public List<String> execute(final CommandContext commandContext) {
+
+        final long now = System.currentTimeMillis();
+        final String leaseName = prefix + nodeName;
+        final String expiresAt = Long.toString(now + leaseTimeout);
+
+        final PropertyEntity lease = commandContext.getPropertyManager().findPropertyById(leaseName);
+        if (lease == null) {
+            commandContext.getDbEntityManager().insert(new PropertyEntity(leaseName, expiresAt));
+        } else {
+            lease.setValue(expiresAt);
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<PropertyEntity> properties = commandContext
+                .getDbEntityManager()
+                .selectList("selectProperties");
+
+        return properties
+                .stream()
+                .filter(property -> property.getName().startsWith(prefix))
+                .filter(property -> property.getName().equals(leaseName)
+                        || isNotExpired(property, now))
+                .map(property -> property.getName().substring(prefix.length()))
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+
+    }
+
+    private static boolean isNotExpired(final PropertyEntity property, final long now) {
+
+        try {
+            return Long.parseLong(property.getValue()) > now;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+    }
+
+}
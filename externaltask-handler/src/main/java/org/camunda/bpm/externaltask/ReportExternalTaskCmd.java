@@ -0,0 +1,30 @@
+package org.camunda.bpm.externaltask;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * Reports the result of a processor (e.g. completes the task) by calls of the
+ * engine's services. Executed by the requires-new command executor those calls
+ * join a transaction of their own, so a conflict rolls back the report only and
+ * not the processor's transaction.
+ */
+public class ReportExternalTaskCmd implements Command<Void> {
+
+    private final Runnable report;
+
+    public ReportExternalTaskCmd(final Runnable report) {
+
+        this.report = report;
+
+    }
+
+    @Override
+    public Void execute(final CommandContext commandContext) {
+
+        report.run();
+        return null;
+
+    }
+
+}
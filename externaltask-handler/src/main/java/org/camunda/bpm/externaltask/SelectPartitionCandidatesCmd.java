@@ -0,0 +1,68 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.externaltask.ExternalTask;
+import org.camunda.bpm.engine.impl.externaltask.TopicFetchInstruction;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * Selects external tasks available for locking without locking them. Unlike
+ * {@link org.camunda.bpm.engine.externaltask.ExternalTaskQuery} the selection
+ * is restricted to the given process definition keys by the database, so a
+ * topic shared by many definitions cannot fill the candidates with tasks of
+ * other definitions.
+ */
+public class SelectPartitionCandidatesCmd implements Command<List<ExternalTask>> {
+
+    private final String topic;
+
+    private final Collection<String> processDefinitionKeys;
+
+    private final String tenantId;
+
+    private final boolean withoutTenantId;
+
+    private final int maxResults;
+
+    /**
+     * @param tenantId        Restrict to the given tenant or null for any tenant
+     * @param withoutTenantId Restrict to tasks without tenant
+     */
+    public SelectPartitionCandidatesCmd(final String topic, final Collection<String> processDefinitionKeys,
+            final String tenantId, final boolean withoutTenantId, final int maxResults) {
+
+        this.topic = topic;
+        this.processDefinitionKeys = processDefinitionKeys;
+        this.tenantId = tenantId;
+        this.withoutTenantId = withoutTenantId;
+        this.maxResults = maxResults;
+
+    }
+
+    @Override
+    public List<ExternalTask> execute(final CommandContext commandContext) {
+
+        final TopicFetchInstruction instruction = new TopicFetchInstruction(topic, 0);
+        instruction.setProcessDefinitionKeys(processDefinitionKeys.toArray(new String[processDefinitionKeys.size()]));
+        if (withoutTenantId) {
+            instruction.setTenantIdSet(true);
+        } else if (tenantId != null) {
+            instruction.setTenantIdSet(true);
+            instruction.setTenantIds(new String[] { tenantId });
+        }
+        instruction.ensureVariablesInitialized();
+
+        return commandContext
+                .getExternalTaskManager()
+                .selectExternalTasksForTopics(Collections.singletonList(instruction), maxResults, false)
+                .stream()
+                .collect(Collectors.toList());
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+
+/**
+ * Selects the ids of external tasks waiting for an asynchronous response,
+ * identified by their pending response timeout jobs.
+ */
+public class SelectPendingAsyncResponsesCmd implements Command<Set<String>> {
+
+    @Override
+    public Set<String> execute(final CommandContext commandContext) {
+
+        final Set<String> result = new HashSet<>();
+        commandContext
+                .getJobManager()
+                .findJobsByHandlerType(ExternalTaskHandlerImpl.ASYNC_TIMEOUT_HANDLER_TYPE)
+                .forEach(job -> result.add(new AsyncProcessorTimeoutJobHandlerConfiguration(
+                        ((JobEntity) job).getJobHandlerConfigurationRaw()).getExternalTaskId()));
+        return result;
+
+    }
+
+}
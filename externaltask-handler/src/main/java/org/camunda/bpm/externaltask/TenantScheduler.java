@@ -0,0 +1,132 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the capacity of one fetch between the tenants of a registration
+ * according to their weights. The order of tenants rotates on each fetch, so
+ * remainders are distributed round-robin. Optionally the number of tasks in
+ * flight is capped per tenant.
+ */
+public class TenantScheduler {
+
+    private final Map<String, Integer> weights = new LinkedHashMap<>();
+
+    private final Map<String, Integer> inFlightPerTenant = new HashMap<>();
+
+    private final Map<String, String> tenantOfTask = new HashMap<>();
+
+    private Integer maxInFlightPerTenant;
+
+    private int cursor;
+
+    /**
+     * @param tenantId The tenant's id or null for tasks without tenant
+     * @param weight   The tenant's share relative to other tenants
+     */
+    synchronized void addTenant(final String tenantId, final int weight) {
+
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight of a tenant has to be at least 1");
+        }
+        weights.put(tenantId, weight);
+
+    }
+
+    synchronized void setMaxInFlightPerTenant(final int maxInFlightPerTenant) {
+
+        if (maxInFlightPerTenant < 1) {
+            throw new IllegalArgumentException("The maximum number of tasks in flight has to be at least 1");
+        }
+        this.maxInFlightPerTenant = maxInFlightPerTenant;
+
+    }
+
+    public synchronized Map<String, Integer> getWeights() {
+        return new LinkedHashMap<>(weights);
+    }
+
+    public synchronized Integer getMaxInFlightPerTenant() {
+        return maxInFlightPerTenant;
+    }
+
+    /**
+     * @param maxTasks   Capacity available for this fetch
+     * @param candidates Tenants to be considered (e.g. those which had more
+     *                   tasks than fetched by a previous pass) or null for all
+     * @return The number of tasks to be fetched per tenant
+     */
+    synchronized Map<String, Integer> plan(final int maxTasks, final List<String> candidates) {
+
+        final List<String> order = new ArrayList<>(weights.keySet());
+        if (!order.isEmpty()) {
+            final int start = cursor++ % order.size();
+            for (int i = 0; i < start; ++i) {
+                order.add(order.remove(0));
+            }
+        }
+        if (candidates != null) {
+            order.retainAll(candidates);
+        }
+
+        final Map<String, Integer> headroom = new HashMap<>();
+        int totalWeight = 0;
+        for (String tenantId : order) {
+            headroom.put(tenantId, maxInFlightPerTenant == null
+                    ? Integer.MAX_VALUE
+                    : Math.max(0, maxInFlightPerTenant - inFlightPerTenant.getOrDefault(tenantId, 0)));
+            totalWeight += weights.get(tenantId);
+        }
+
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        int remaining = maxTasks;
+        for (String tenantId : order) {
+            final int share = Math.min(headroom.get(tenantId), maxTasks * weights.get(tenantId) / totalWeight);
+            result.put(tenantId, share);
+            remaining -= share;
+        }
+
+        // distribute the remainder round-robin
+        boolean progress = true;
+        while ((remaining > 0) && progress) {
+            progress = false;
+            for (String tenantId : order) {
+                if (remaining == 0) {
+                    break;
+                }
+                final int quota = result.get(tenantId);
+                if (quota < headroom.get(tenantId)) {
+                    result.put(tenantId, quota + 1);
+                    --remaining;
+                    progress = true;
+                }
+            }
+        }
+
+        result.values().removeIf(quota -> quota == 0);
+        return result;
+
+    }
+
+    synchronized void locked(final String externalTaskId, final String tenantId) {
+
+        tenantOfTask.put(externalTaskId, tenantId);
+        inFlightPerTenant.merge(tenantId, 1, Integer::sum);
+
+    }
+
+    synchronized void released(final String externalTaskId) {
+
+        if (!tenantOfTask.containsKey(externalTaskId)) {
+            return;
+        }
+        final String tenantId = tenantOfTask.remove(externalTaskId);
+        inFlightPerTenant.computeIfPresent(tenantId, (t, count) -> count > 1 ? count - 1 : null);
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Collection;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.ExternalTaskEntity;
+
+/**
+ * Unlocks several external tasks in one transaction. Tasks not existing any
+ * more or locked by another worker meanwhile are skipped instead of failing
+ * the whole command.
+ */
+public class UnlockExternalTasksCmd implements Command<Integer> {
+
+    private final Collection<String> externalTaskIds;
+
+    private final String workerId;
+
+    public UnlockExternalTasksCmd(final Collection<String> externalTaskIds, final String workerId) {
+
+        this.externalTaskIds = externalTaskIds;
+        this.workerId = workerId;
+
+    }
+
+    @Override
+    public Integer execute(final CommandContext commandContext) {
+
+        int unlocked = 0;
+        for (String externalTaskId : externalTaskIds) {
+            final ExternalTaskEntity externalTask = commandContext
+                    .getExternalTaskManager()
+                    .findExternalTaskById(externalTaskId);
+            if ((externalTask != null)
+                    && workerId.equals(externalTask.getWorkerId())) {
+                externalTask.unlock();
+                ++unlocked;
+            }
+        }
+        return unlocked;
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.camunda.bpm.externaltask.CircuitBreaker.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_PERIOD = 200;
+
+    private final List<State> transitions = new LinkedList<>();
+
+    private final List<Boolean> listenerHoldingLock = new LinkedList<>();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", 50, 4, OPEN_PERIOD, 100l,
+            this::onStateChanged);
+
+    @Test
+    public void testOpensAtFailureRateThreshold() {
+
+        succeed(10);
+        fail();
+        succeed(10);
+        Assert.assertEquals("window not filled", State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals("fetch limit when closed", 10, circuitBreaker.getFetchLimit(10));
+
+        succeed(500); // slow call
+        Assert.assertEquals("two of four calls failed", State.OPEN, circuitBreaker.getState());
+        Assert.assertEquals("fetch limit when open", 0, circuitBreaker.getFetchLimit(10));
+        Assert.assertNull("permission when open", circuitBreaker.tryAcquirePermission());
+
+    }
+
+    @Test
+    public void testStaysClosedBelowThreshold() {
+
+        fail();
+        for (int i = 0; i < 10; ++i) {
+            succeed(10);
+        }
+        Assert.assertEquals("state", State.CLOSED, circuitBreaker.getState());
+        Assert.assertTrue("no transitions", transitions.isEmpty());
+
+    }
+
+    @Test
+    public void testHalfOpenProbeClosesOnSuccess() throws Exception {
+
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+
+        Assert.assertEquals("probe fetch limit", 1, circuitBreaker.getFetchLimit(10));
+        Assert.assertEquals("state", State.HALF_OPEN, circuitBreaker.getState());
+        Assert.assertEquals("concurrent fetch while the probe is reserved", 0, circuitBreaker.getFetchLimit(10));
+
+        circuitBreaker.onFetched(1);
+        final CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+        Assert.assertNotNull("probe permitted", probe);
+        Assert.assertNull("second probe permitted", circuitBreaker.tryAcquirePermission());
+        Assert.assertEquals("fetch while the probe is running", 0, circuitBreaker.getFetchLimit(10));
+
+        circuitBreaker.onSuccess(probe, 10);
+        Assert.assertEquals("state", State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals("fetch limit when closed again", 10, circuitBreaker.getFetchLimit(10));
+        Assert.assertEquals("transitions", list(State.OPEN, State.HALF_OPEN, State.CLOSED), transitions);
+
+    }
+
+    @Test
+    public void testHalfOpenProbeOpensOnFailure() throws Exception {
+
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+
+        Assert.assertEquals("probe fetch limit", 1, circuitBreaker.getFetchLimit(10));
+        circuitBreaker.onFetched(1);
+        final CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+        Assert.assertNotNull("probe permitted", probe);
+        circuitBreaker.onFailure(probe);
+
+        Assert.assertEquals("state", State.OPEN, circuitBreaker.getState());
+        Assert.assertEquals("fetch limit when open again", 0, circuitBreaker.getFetchLimit(10));
+        Assert.assertEquals("transitions", list(State.OPEN, State.HALF_OPEN, State.OPEN), transitions);
+
+    }
+
+    @Test
+    public void testHalfOpenIgnoresCallsPermittedBeforeTheProbe() throws Exception {
+
+        final CircuitBreaker.Permission beforeOpened = circuitBreaker.tryAcquirePermission();
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+
+        Assert.assertEquals("probe fetch limit", 1, circuitBreaker.getFetchLimit(10));
+        circuitBreaker.onFetched(1);
+        final CircuitBreaker.Permission probe = circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onSuccess(beforeOpened, 10);
+        Assert.assertEquals("state after a call started before the breaker opened", State.HALF_OPEN,
+                circuitBreaker.getState());
+
+        circuitBreaker.onFailure(probe);
+        Assert.assertEquals("state", State.OPEN, circuitBreaker.getState());
+
+    }
+
+    @Test
+    public void testListenerCalledWithoutLock() throws Exception {
+
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquirePermission(), 10);
+
+        Assert.assertEquals("transitions", list(State.OPEN, State.HALF_OPEN, State.CLOSED), transitions);
+        Assert.assertEquals("listener called holding the lock", list(false, false, false), listenerHoldingLock);
+
+    }
+
+    @Test
+    public void testProbeReservationReleasedIfNothingFetched() throws Exception {
+
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+
+        Assert.assertEquals("probe fetch limit", 1, circuitBreaker.getFetchLimit(10));
+        circuitBreaker.onFetched(0);
+        Assert.assertEquals("probe fetch limit after an empty fetch", 1, circuitBreaker.getFetchLimit(10));
+
+    }
+
+    @Test
+    public void testProbeReservationExpires() throws Exception {
+
+        open();
+        Thread.sleep(OPEN_PERIOD + 50);
+
+        Assert.assertEquals("probe fetch limit", 1, circuitBreaker.getFetchLimit(10));
+        circuitBreaker.onFetched(1); // but the probe is never processed
+        Assert.assertEquals("fetch limit while reserved", 0, circuitBreaker.getFetchLimit(10));
+
+        Thread.sleep(OPEN_PERIOD + 50);
+        Assert.assertEquals("probe fetch limit after the reservation expired", 1, circuitBreaker.getFetchLimit(10));
+
+    }
+
+    private void open() {
+
+        for (int i = 0; i < 4; ++i) {
+            fail();
+        }
+        Assert.assertEquals("state", State.OPEN, circuitBreaker.getState());
+
+    }
+
+    private void succeed(final long duration) {
+
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquirePermission(), duration);
+
+    }
+
+    private void fail() {
+
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission());
+
+    }
+
+    private void onStateChanged(final String name, final State state) {
+
+        transitions.add(state);
+        listenerHoldingLock.add(Thread.holdsLock(circuitBreaker));
+
+    }
+
+    @SafeVarargs
+    private static <T> List<T> list(final T... elements) {
+
+        final List<T> result = new LinkedList<>();
+        for (T element : elements) {
+            result.add(element);
+        }
+        return result;
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.camunda.bpm.externaltask;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.externaltask.spi.ExternalTaskPayloadStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClaimCheckTest {
+
+    private static final int THRESHOLD = 10;
+
+    /**
+     * Keeps payloads in memory.
+     */
+    private static class InMemoryPayloadStore implements ExternalTaskPayloadStore {
+
+        private final Map<String, byte[]> payloads = new HashMap<>();
+
+        private int references;
+
+        private String nextReference;
+
+        @Override
+        public String newReference() {
+            return nextReference != null ? nextReference : "payload-" + ++references;
+        }
+
+        @Override
+        public OutputStream openOutputStream(final String reference) {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    payloads.put(reference, toByteArray());
+                }
+            };
+        }
+
+        @Override
+        public InputStream openInputStream(final String reference) throws IOException {
+            if (!payloads.containsKey(reference)) {
+                throw new IOException("No payload '" + reference + "'");
+            }
+            return new ByteArrayInputStream(payloads.get(reference));
+        }
+
+        @Override
+        public void delete(final String reference) {
+            payloads.remove(reference);
+        }
+
+    }
+
+    private InMemoryPayloadStore store;
+
+    private ClaimCheck claimCheck;
+
+    @Before
+    public void setup() {
+
+        store = new InMemoryPayloadStore();
+        claimCheck = new ClaimCheck(store, THRESHOLD);
+
+    }
+
+    @Test
+    public void testReferenceFormat() {
+
+        Assert.assertTrue("bytes", ClaimCheck.isReference("claim-check:bytes:payload-1"));
+        Assert.assertTrue("string", ClaimCheck.isReference("claim-check:string:a/b.c_d~e-f"));
+        Assert.assertFalse("no type", ClaimCheck.isReference("claim-check:payload-1"));
+        Assert.assertFalse("unknown type", ClaimCheck.isReference("claim-check:json:payload-1"));
+        Assert.assertFalse("no reference", ClaimCheck.isReference("claim-check:bytes:"));
+        Assert.assertFalse("text", ClaimCheck.isReference("claim-check:string:see the attached document"));
+        Assert.assertFalse("traversal", ClaimCheck.isReference("claim-check:bytes:../secret"));
+        Assert.assertFalse("not a String", ClaimCheck.isReference("claim-check:bytes:payload-1".getBytes()));
+
+    }
+
+    @Test
+    public void testOffloadAndResolve() throws IOException {
+
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("small", "small");
+        variables.put("text", "a text exceeding the threshold");
+        variables.put("bytes", new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 });
+        variables.put("typed", Variables.stringValue("a typed text exceeding the threshold"));
+        variables.put("number", 42);
+
+        final Map<String, Object> offloaded = claimCheck.offload(variables);
+        Assert.assertEquals("small kept", "small", offloaded.get("small"));
+        Assert.assertEquals("number kept", 42, offloaded.get("number"));
+        Assert.assertTrue("text offloaded", ((String) offloaded.get("text")).startsWith("claim-check:string:"));
+        Assert.assertTrue("bytes offloaded", ((String) offloaded.get("bytes")).startsWith("claim-check:bytes:"));
+        Assert.assertTrue("typed offloaded", ((String) offloaded.get("typed")).startsWith("claim-check:string:"));
+        Assert.assertEquals("payloads", 3, store.payloads.size());
+
+        final Map<String, Object> resolved = claimCheck.resolveAll(offloaded);
+        Assert.assertEquals("text", "a text exceeding the threshold", resolved.get("text"));
+        Assert.assertArrayEquals("bytes", new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 },
+                (byte[]) resolved.get("bytes"));
+        Assert.assertEquals("typed", "a typed text exceeding the threshold", resolved.get("typed"));
+        Assert.assertEquals("small", "small", resolved.get("small"));
+
+    }
+
+    @Test
+    public void testValuesLookingLikeReferences() throws IOException {
+
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("text", "claim-check: see the attached document");
+
+        final Map<String, Object> offloaded = claimCheck.offload(variables);
+        Assert.assertTrue("offloaded", ClaimCheck.isReference(offloaded.get("text")));
+        Assert.assertEquals("resolved", "claim-check: see the attached document",
+                claimCheck.resolveAll(offloaded).get("text"));
+        Assert.assertEquals("not a reference", "claim-check: see the attached document",
+                claimCheck.resolve("claim-check: see the attached document"));
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidStoreReferenceRejected() throws IOException {
+
+        store.nextReference = "../secret";
+        claimCheck.offload(Collections.singletonMap("text", "a text exceeding the threshold"));
+
+    }
+
+    @Test
+    public void testDeleteReplaced() throws IOException {
+
+        final Map<String, Object> before = claimCheck.offload(
+                Collections.singletonMap("text", "a text exceeding the threshold"));
+        final Map<String, Object> written = claimCheck.offload(
+                Collections.singletonMap("text", "another text exceeding the threshold"));
+
+        claimCheck.deleteReplaced(before, written);
+        Assert.assertEquals("replaced payload deleted", 1, store.payloads.size());
+        Assert.assertEquals("new payload kept", "another text exceeding the threshold",
+                claimCheck.resolve(written.get("text")));
+
+    }
+
+    @Test
+    public void testDeleteWritten() throws IOException {
+
+        final Map<String, Object> before = claimCheck.offload(
+                Collections.singletonMap("kept", "a text exceeding the threshold"));
+        final Map<String, Object> written = new HashMap<>(before);
+        written.putAll(claimCheck.offload(
+                Collections.singletonMap("text", "another text exceeding the threshold")));
+        Assert.assertEquals("payloads", 2, store.payloads.size());
+
+        claimCheck.deleteWritten(before, written);
+        Assert.assertEquals("written payload deleted", 1, store.payloads.size());
+        Assert.assertEquals("payload existing before kept", "a text exceeding the threshold",
+                claimCheck.resolve(before.get("kept")));
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClusterMembershipTest {
+
+    private final List<Command<?>> executed = new LinkedList<>();
+
+    private List<String> members = Arrays.asList("node-a", "node-b", "node-c");
+
+    private final CommandExecutor commandExecutor = new CommandExecutor() {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(final Command<T> command) {
+            executed.add(command);
+            if (command instanceof RenewClusterLeaseCmd) {
+                return (T) members;
+            }
+            return (T) Integer.valueOf(0);
+        }
+
+    };
+
+    @Test
+    public void testEachProcessInstanceHasExactlyOneNode() {
+
+        final List<ClusterMembership> nodes = new LinkedList<>();
+        for (String node : members) {
+            final ClusterMembership membership = new ClusterMembership(60000, 16);
+            membership.renewIfDue(commandExecutor, node);
+            nodes.add(membership);
+        }
+
+        final int[] assigned = new int[members.size()];
+        for (int i = 0; i < 1000; ++i) {
+            final String processInstanceId = "pi-" + i;
+            int responsible = 0;
+            for (int n = 0; n < members.size(); ++n) {
+                if (nodes.get(n).isResponsibleFor(members.get(n), processInstanceId)) {
+                    ++responsible;
+                    ++assigned[n];
+                }
+            }
+            Assert.assertEquals("nodes responsible for " + processInstanceId, 1, responsible);
+        }
+        for (int n = 0; n < members.size(); ++n) {
+            Assert.assertTrue("node " + members.get(n) + " has partitions", assigned[n] > 0);
+        }
+
+    }
+
+    @Test
+    public void testPartitionsReassignedWhenNodeLeaves() {
+
+        final ClusterMembership membership = new ClusterMembership(0, 16);
+        membership.renewIfDue(commandExecutor, "node-a");
+        int responsibleOfThree = 0;
+        for (int i = 0; i < 100; ++i) {
+            if (membership.isResponsibleFor("node-a", "pi-" + i)) {
+                ++responsibleOfThree;
+            }
+        }
+        Assert.assertTrue("responsible for a part of three nodes", responsibleOfThree < 100);
+
+        members = Collections.singletonList("node-a");
+        membership.renewIfDue(commandExecutor, "node-a");
+        Assert.assertEquals("members", members, membership.getMembers());
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertTrue("single node responsible for all", membership.isResponsibleFor("node-a", "pi-" + i));
+        }
+
+    }
+
+    @Test
+    public void testNotJoinedBehavesLikeSingleNode() {
+
+        final ClusterMembership membership = new ClusterMembership(60000, 16);
+        Assert.assertTrue("responsible before joining", membership.isResponsibleFor("node-x", "pi-1"));
+
+        membership.renewIfDue(commandExecutor, "node-x");
+        Assert.assertTrue("responsible while not in the members", membership.isResponsibleFor("node-x", "pi-1"));
+
+    }
+
+    @Test
+    public void testRenewalOnlyWhenDueAndDeletesExpiredLeases() {
+
+        final ClusterMembership membership = new ClusterMembership(60000, 16);
+        membership.renewIfDue(commandExecutor, "node-a");
+        membership.renewIfDue(commandExecutor, "node-a");
+
+        Assert.assertEquals("commands executed", 2, executed.size());
+        Assert.assertTrue("lease renewed", executed.get(0) instanceof RenewClusterLeaseCmd);
+        Assert.assertTrue("expired leases deleted", executed.get(1) instanceof DeleteExpiredClusterLeasesCmd);
+
+    }
+
+}
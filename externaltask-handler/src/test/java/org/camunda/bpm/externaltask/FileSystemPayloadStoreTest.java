@@ -0,0 +1,110 @@
+package org.camunda.bpm.externaltask;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSystemPayloadStoreTest {
+
+    private Path directory;
+
+    private FileSystemPayloadStore store;
+
+    @Before
+    public void setup() throws IOException {
+
+        directory = Files.createTempDirectory("payloads");
+        store = new FileSystemPayloadStore(directory.resolve("store"));
+
+    }
+
+    @After
+    public void cleanup() throws IOException {
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+
+    }
+
+    @Test
+    public void testWriteReadDelete() throws IOException {
+
+        final String reference = store.newReference();
+        try (OutputStream out = store.openOutputStream(reference)) {
+            out.write("payload".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue("stored in the directory", Files.exists(directory.resolve("store").resolve(reference)));
+
+        try (InputStream in = store.openInputStream(reference)) {
+            final byte[] content = new byte[7];
+            Assert.assertEquals("read", 7, in.read(content));
+            Assert.assertEquals("content", "payload", new String(content, StandardCharsets.UTF_8));
+        }
+
+        store.delete(reference);
+        Assert.assertFalse("deleted", Files.exists(directory.resolve("store").resolve(reference)));
+        store.delete(reference); // deleting twice is no error
+
+    }
+
+    @Test
+    public void testNewReferencesUnique() {
+
+        Assert.assertNotEquals("unique", store.newReference(), store.newReference());
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testTraversalOnRead() throws IOException {
+
+        Files.write(directory.resolve("secret"), "secret".getBytes(StandardCharsets.UTF_8));
+        store.openInputStream("../secret");
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testTraversalOnWrite() throws IOException {
+
+        store.openOutputStream("../outside");
+
+    }
+
+    @Test
+    public void testTraversalOnDelete() throws IOException {
+
+        final Path secret = Files.write(directory.resolve("secret"), "secret".getBytes(StandardCharsets.UTF_8));
+        try {
+            store.delete("../secret");
+            Assert.fail("deleted outside the directory");
+        } catch (IOException e) {
+            Assert.assertTrue("file outside kept", Files.exists(secret));
+        }
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testSubdirectoryRejected() throws IOException {
+
+        store.openOutputStream("sub/payload");
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testAbsolutePathRejected() throws IOException {
+
+        store.openInputStream(directory.resolve("secret").toString());
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessDefinitionPatternsTest {
+
+    private final List<String> deployed = new LinkedList<>();
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private ProcessDefinitionPatterns patterns;
+
+    @Before
+    public void setup() {
+
+        deployed.clear();
+        deployed.addAll(Arrays.asList("Order", "OrderReturn", "OrderReturnExpress", "Invoice"));
+        loaded.set(0);
+        patterns = new ProcessDefinitionPatterns(() -> {
+            loaded.incrementAndGet();
+            return new LinkedList<>(deployed);
+        });
+
+    }
+
+    @Test
+    public void testIsPattern() {
+
+        Assert.assertTrue("pattern", ProcessDefinitionPatterns.isPattern("Order*"));
+        Assert.assertFalse("exact key", ProcessDefinitionPatterns.isPattern("Order"));
+
+    }
+
+    @Test
+    public void testMostSpecificPatternWins() {
+
+        // the order of registration does not matter
+        patterns.add("*#Topic", "Topic", "*");
+        patterns.add("OrderReturn*#Topic", "Topic", "OrderReturn*");
+        patterns.add("Order*#Topic", "Topic", "Order*");
+        patterns.add("*Express#Topic", "Topic", "*Express");
+
+        Assert.assertEquals("OrderReturn*#Topic", patterns.findKey("OrderReturnExpress", "Topic"));
+        Assert.assertEquals("OrderReturn*#Topic", patterns.findKey("OrderReturn", "Topic"));
+        Assert.assertEquals("Order*#Topic", patterns.findKey("Order", "Topic"));
+        Assert.assertEquals("*#Topic", patterns.findKey("Invoice", "Topic"));
+        Assert.assertNull("other topic", patterns.findKey("Order", "OtherTopic"));
+
+    }
+
+    @Test
+    public void testFewerWildcardsWin() {
+
+        patterns.add("Or*er#Topic", "Topic", "Or*er");
+        patterns.add("O*r*er#Topic", "Topic", "O*r*er");
+
+        Assert.assertEquals("Or*er#Topic", patterns.findKey("Order", "Topic"));
+
+    }
+
+    @Test
+    public void testLiteralCharactersAreQuoted() {
+
+        patterns.add("a.b*#Topic", "Topic", "a.b*");
+
+        Assert.assertEquals("a.b*#Topic", patterns.findKey("a.bc", "Topic"));
+        Assert.assertNull("'.' is no wildcard", patterns.findKey("axbc", "Topic"));
+
+    }
+
+    @Test
+    public void testDefinitionsBelongToOnePatternOnly() {
+
+        patterns.add("Order*#Topic", "Topic", "Order*");
+        patterns.add("OrderReturn*#Topic", "Topic", "OrderReturn*");
+
+        Assert.assertEquals(Arrays.asList("Order"),
+                patterns.getProcessDefinitionKeys("Order*#Topic", key -> false));
+        Assert.assertEquals(Arrays.asList("OrderReturn", "OrderReturnExpress"),
+                patterns.getProcessDefinitionKeys("OrderReturn*#Topic", key -> false));
+
+    }
+
+    @Test
+    public void testExactRegistrationsAreExcluded() {
+
+        patterns.add("Order*#Topic", "Topic", "Order*");
+
+        final Collection<String> keys = patterns.getProcessDefinitionKeys("Order*#Topic",
+                key -> key.equals("OrderReturn"));
+        Assert.assertEquals(Arrays.asList("Order", "OrderReturnExpress"), keys);
+
+    }
+
+    @Test
+    public void testDeployedKeysAreCachedUntilInvalidated() {
+
+        patterns.add("Order*#Topic", "Topic", "Order*");
+
+        patterns.getProcessDefinitionKeys("Order*#Topic", key -> false);
+        patterns.getProcessDefinitionKeys("Order*#Topic", key -> false);
+        Assert.assertEquals("loaded once", 1, loaded.get());
+
+        deployed.add("OrderCancel");
+        Assert.assertFalse("cached", patterns
+                .getProcessDefinitionKeys("Order*#Topic", key -> false)
+                .contains("OrderCancel"));
+
+        patterns.invalidate();
+        Assert.assertTrue("reloaded", patterns
+                .getProcessDefinitionKeys("Order*#Topic", key -> false)
+                .contains("OrderCancel"));
+        Assert.assertEquals("loaded twice", 2, loaded.get());
+
+    }
+
+    @Test
+    public void testUnknownDefinitionInvalidatesCache() {
+
+        patterns.add("Order*#Topic", "Topic", "Order*");
+        patterns.getProcessDefinitionKeys("Order*#Topic", key -> false);
+
+        patterns.onProcessDefinitionUsed("Order");
+        patterns.getProcessDefinitionKeys("Order*#Topic", key -> false);
+        Assert.assertEquals("known definition keeps cache", 1, loaded.get());
+
+        deployed.add("OrderCancel");
+        patterns.onProcessDefinitionUsed("OrderCancel");
+        Assert.assertTrue("reloaded", patterns
+                .getProcessDefinitionKeys("Order*#Topic", key -> false)
+                .contains("OrderCancel"));
+        Assert.assertEquals("loaded twice", 2, loaded.get());
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.camunda.bpm.externaltask;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessInstanceLanesTest {
+
+    private static final long STALE_AFTER = 200;
+
+    @Test
+    public void testSameProcessInstanceSameLane() {
+
+        final ProcessInstanceLanes lanes = new ProcessInstanceLanes(16);
+        Assert.assertSame("lane", lanes.getLane("pi-1"), lanes.getLane("pi-1"));
+
+        final ProcessInstanceLanes singleLane = new ProcessInstanceLanes(1);
+        Assert.assertSame("single lane", singleLane.getLane("pi-1"), singleLane.getLane("pi-2"));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAtLeastOneLane() {
+
+        new ProcessInstanceLanes(0);
+
+    }
+
+    @Test
+    public void testSubmissionsRunOneAfterTheOther() {
+
+        final ProcessInstanceLanes.Lane lane = new ProcessInstanceLanes(1).getLane("pi-1");
+        final List<String> ran = new LinkedList<>();
+        final Runnable first = () -> ran.add("first");
+        final Runnable second = () -> ran.add("second");
+        final Runnable third = () -> ran.add("third");
+
+        Assert.assertTrue("idle lane runs first", lane.enqueue(first, STALE_AFTER));
+        Assert.assertFalse("busy lane queues second", lane.enqueue(second, STALE_AFTER));
+        Assert.assertFalse("busy lane queues third", lane.enqueue(third, STALE_AFTER));
+
+        Assert.assertSame("second after first", second, lane.next());
+        Assert.assertSame("third after second", third, lane.next());
+        Assert.assertNull("lane idle", lane.next());
+
+        Assert.assertTrue("idle lane runs immediately", lane.enqueue(first, STALE_AFTER));
+
+    }
+
+    @Test
+    public void testStuckLaneIsTakenOver() throws Exception {
+
+        final ProcessInstanceLanes.Lane lane = new ProcessInstanceLanes(1).getLane("pi-1");
+        final Runnable discarded = () -> Assert.fail("discarded");
+        final Runnable next = () -> { };
+
+        Assert.assertTrue("idle lane runs first", lane.enqueue(discarded, STALE_AFTER));
+        Assert.assertFalse("busy lane queues", lane.enqueue(next, STALE_AFTER));
+
+        Thread.sleep(STALE_AFTER + 50);
+
+        Assert.assertTrue("stuck lane taken over", lane.enqueue(() -> { }, STALE_AFTER));
+        Assert.assertSame("queued submission kept", next, lane.next());
+        Assert.assertNull("lane idle", lane.next());
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.camunda.bpm.externaltask.spring.boot;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import org.camunda.bpm.externaltask.spring.ExternalTaskHandlerHelper;
+import org.camunda.bpm.externaltask.spring.SpringExternalTaskHandler;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Declares the handler of the application's process engine using executors of
+ * its own, so handler work does not compete with other asynchronous work of
+ * the application and can be sized independently.
+ */
+@Configuration
+@ConditionalOnClass(SpringExternalTaskHandler.class)
+@EnableConfigurationProperties(ExternalTaskHandlerProperties.class)
+@AutoConfigureAfter({ TaskExecutionAutoConfiguration.class, TaskSchedulingAutoConfiguration.class })
+public class ExternalTaskHandlerAutoConfiguration {
+
+    @Bean
+    public ExternalTaskHandlerExecutors externalTaskHandlerExecutors(final ExternalTaskHandlerProperties properties) {
+
+        return new ExternalTaskHandlerExecutors(properties);
+
+    }
+
+    @Bean(name = "workerId")
+    @ConditionalOnMissingBean(name = "workerId")
+    public String workerId(final ExternalTaskHandlerProperties properties) throws UnknownHostException {
+
+        return properties.getWorkerId() != null
+                ? properties.getWorkerId()
+                : InetAddress.getLocalHost().getHostName();
+
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ExternalTaskHandlerHelper externalTaskHandlerHelper() {
+
+        return new ExternalTaskHandlerHelper();
+
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SpringExternalTaskHandler springExternalTaskHandler(final ExternalTaskHandlerExecutors executors) {
+
+        final SpringExternalTaskHandler result = new SpringExternalTaskHandler();
+        result.setTaskExecutor(executors.getProcessing());
+        result.setTaskScheduler(executors.getScheduler());
+        result.setCompletionExecutor(executors.getCompletion());
+        return result;
+
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ExternalTaskHandlerEndpoint externalTaskHandlerEndpoint(final List<SpringExternalTaskHandler> handlers,
+                final ExternalTaskHandlerExecutors executors) {
+
+            return new ExternalTaskHandlerEndpoint(handlers, executors.getProcessing());
+
+        }
+
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class ExecutorMetricsConfiguration {
+
+        /**
+         * Bound to all meter registries by Spring Boot's metrics
+         * auto-configuration.
+         */
+        @Bean
+        public MeterBinder externalTaskHandlerExecutorMetrics(final ExternalTaskHandlerExecutors executors) {
+
+            return registry -> {
+                new ExecutorServiceMetrics(executors.getProcessing().getThreadPoolExecutor(),
+                        "externaltask-handler-processing", Tags.empty()).bindTo(registry);
+                new ExecutorServiceMetrics(executors.getCompletion().getThreadPoolExecutor(),
+                        "externaltask-handler-completion", Tags.empty()).bindTo(registry);
+                new ExecutorServiceMetrics(executors.getScheduler().getScheduledThreadPoolExecutor(),
+                        "externaltask-handler-scheduler", Tags.empty()).bindTo(registry);
+            };
+
+        }
+
+    }
+
+}
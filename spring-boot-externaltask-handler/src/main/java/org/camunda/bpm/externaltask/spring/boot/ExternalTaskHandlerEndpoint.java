@@ -0,0 +1,137 @@
+package org.camunda.bpm.externaltask.spring.boot;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.camunda.bpm.externaltask.ExternalTaskHandlerManagement;
+import org.camunda.bpm.externaltask.RegistrationInfo;
+import org.camunda.bpm.externaltask.spring.SpringExternalTaskHandler;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Statistics and runtime tuning of the handlers (one per engine) at
+ * <i>/actuator/externaltasks</i>:
+ * <ul>
+ * <li><i>GET /</i>: all handlers, their registrations and the processing
+ * executor
+ * <li><i>POST /</i>: resize the processing executor
+ * <li><i>POST /{engine}</i>: change the handler's overall in-flight limit
+ * <li><i>GET /{engine}/{processDefinitionKey}/{topic}</i>: one registration
+ * <li><i>POST /{engine}/{processDefinitionKey}/{topic}</i>: change lock
+ * timeout, in-flight limit, fetch page size or pause/resume fetching
+ * </ul>
+ */
+@Endpoint(id = "externaltasks")
+public class ExternalTaskHandlerEndpoint {
+
+    private final List<SpringExternalTaskHandler> handlers;
+
+    private final ThreadPoolTaskExecutor processingExecutor;
+
+    public ExternalTaskHandlerEndpoint(final List<SpringExternalTaskHandler> handlers,
+            final ThreadPoolTaskExecutor processingExecutor) {
+
+        this.handlers = handlers;
+        this.processingExecutor = processingExecutor;
+
+    }
+
+    @ReadOperation
+    public Map<String, Object> handlers() {
+
+        final Map<String, Object> engines = new LinkedHashMap<>();
+        handlers.forEach(handler -> {
+            final ExternalTaskHandlerManagement management = handler.getManagement();
+            final Map<String, Object> details = new LinkedHashMap<>();
+            details.put("inFlight", management.getInFlight());
+            details.put("maxInFlight", management.getMaxInFlight());
+            details.put("registrations", management.getRegistrations());
+            engines.put(handler.getProcessEngineName(), details);
+        });
+
+        final Map<String, Object> executor = new LinkedHashMap<>();
+        executor.put("corePoolSize", processingExecutor.getCorePoolSize());
+        executor.put("maxPoolSize", processingExecutor.getMaxPoolSize());
+        executor.put("activeCount", processingExecutor.getActiveCount());
+        executor.put("queueSize", processingExecutor.getThreadPoolExecutor().getQueue().size());
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("engines", engines);
+        result.put("processingExecutor", executor);
+        return result;
+
+    }
+
+    @WriteOperation
+    public void resizeProcessingExecutor(@Nullable Integer corePoolSize, @Nullable Integer maxPoolSize) {
+
+        // the core size must never exceed the maximum size, also in between
+        if ((maxPoolSize != null)
+                && (maxPoolSize >= processingExecutor.getCorePoolSize())) {
+            processingExecutor.setMaxPoolSize(maxPoolSize);
+        }
+        if (corePoolSize != null) {
+            processingExecutor.setCorePoolSize(corePoolSize);
+        }
+        if (maxPoolSize != null) {
+            processingExecutor.setMaxPoolSize(maxPoolSize);
+        }
+
+    }
+
+    @WriteOperation
+    public void configureHandler(@Selector String engine, int maxInFlight) {
+
+        getManagement(engine).setMaxInFlight(maxInFlight);
+
+    }
+
+    @ReadOperation
+    public RegistrationInfo registration(@Selector String engine, @Selector String processDefinitionKey,
+            @Selector String topic) {
+
+        return getManagement(engine).getRegistration(processDefinitionKey, topic);
+
+    }
+
+    @WriteOperation
+    public void configureRegistration(@Selector String engine, @Selector String processDefinitionKey,
+            @Selector String topic, @Nullable Long lockTimeout, @Nullable Integer maxInFlight,
+            @Nullable Integer fetchPageSize, @Nullable Boolean paused) {
+
+        final ExternalTaskHandlerManagement management = getManagement(engine);
+        if (lockTimeout != null) {
+            management.changeLockTimeout(processDefinitionKey, topic, lockTimeout);
+        }
+        if (maxInFlight != null) {
+            management.changeMaxInFlight(processDefinitionKey, topic, maxInFlight);
+        }
+        if (fetchPageSize != null) {
+            management.changeFetchPageSize(processDefinitionKey, topic, fetchPageSize);
+        }
+        if (Boolean.TRUE.equals(paused)) {
+            management.pause(processDefinitionKey, topic);
+        } else if (Boolean.FALSE.equals(paused)) {
+            management.resume(processDefinitionKey, topic);
+        }
+
+    }
+
+    private ExternalTaskHandlerManagement getManagement(final String engine) {
+
+        return handlers
+                .stream()
+                .filter(handler -> handler.getProcessEngineName().equals(engine))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No handler for engine '" + engine + "'"))
+                .getManagement();
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.camunda.bpm.externaltask.spring.boot;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.camunda.bpm.externaltask.spring.boot.ExternalTaskHandlerProperties.Pool;
+import org.camunda.bpm.externaltask.spring.boot.ExternalTaskHandlerProperties.RejectionPolicy;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * The executors dedicated to the handler. They are not exposed as beans of
+ * their own, so they do not replace the application's default executor or
+ * scheduler and are not used by other components.
+ */
+public class ExternalTaskHandlerExecutors implements InitializingBean, DisposableBean {
+
+    private final ThreadPoolTaskExecutor processing;
+
+    private final ThreadPoolTaskExecutor completion;
+
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public ExternalTaskHandlerExecutors(final ExternalTaskHandlerProperties properties) {
+
+        processing = buildExecutor(properties.getProcessing());
+        completion = buildExecutor(properties.getCompletion());
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(properties.getScheduler().getPoolSize());
+        scheduler.setThreadNamePrefix(properties.getScheduler().getThreadNamePrefix());
+
+    }
+
+    private static ThreadPoolTaskExecutor buildExecutor(final Pool pool) {
+
+        final ThreadPoolTaskExecutor result = new ThreadPoolTaskExecutor();
+        result.setCorePoolSize(pool.getCoreSize());
+        result.setMaxPoolSize(pool.getMaxSize());
+        result.setQueueCapacity(pool.getQueueCapacity());
+        result.setKeepAliveSeconds(pool.getKeepAlive());
+        result.setThreadNamePrefix(pool.getThreadNamePrefix());
+        result.setRejectedExecutionHandler(pool.getRejectionPolicy() == RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy());
+        // running processors are given the handler's shutdown grace period
+        result.setWaitForTasksToCompleteOnShutdown(true);
+        return result;
+
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+
+        processing.initialize();
+        completion.initialize();
+        scheduler.initialize();
+
+    }
+
+    @Override
+    public void destroy() {
+
+        scheduler.shutdown();
+        completion.shutdown();
+        processing.shutdown();
+
+    }
+
+    public ThreadPoolTaskExecutor getProcessing() {
+        return processing;
+    }
+
+    public ThreadPoolTaskExecutor getCompletion() {
+        return completion;
+    }
+
+    public ThreadPoolTaskScheduler getScheduler() {
+        return scheduler;
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.camunda.bpm.externaltask.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the executors dedicated to the handler. The handler's own
+ * settings (e.g. <i>default-locktimeout</i>, <i>max-in-flight</i>) share the
+ * same prefix and are read by the handler itself.
+ */
+@ConfigurationProperties(prefix = "camunda.bpm.externaltask-handler")
+public class ExternalTaskHandlerProperties {
+
+    public enum RejectionPolicy {
+        /**
+         * Reject the submission: tasks are unlocked and fetched again later.
+         */
+        ABORT,
+        /**
+         * Run the submission in the submitting thread, which slows down fetching.
+         */
+        CALLER_RUNS
+    }
+
+    public static class Pool {
+
+        private int coreSize;
+
+        private int maxSize;
+
+        private int queueCapacity;
+
+        private int keepAlive = 60;
+
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+        private String threadNamePrefix;
+
+        Pool(final int coreSize, final int maxSize, final int queueCapacity, final String threadNamePrefix) {
+            this.coreSize = coreSize;
+            this.maxSize = maxSize;
+            this.queueCapacity = queueCapacity;
+            this.threadNamePrefix = threadNamePrefix;
+        }
+
+        public int getCoreSize() {
+            return coreSize;
+        }
+
+        public void setCoreSize(int coreSize) {
+            this.coreSize = coreSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Submissions waiting for a thread. Threads beyond the core size are only
+         * started if the queue is full.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * Seconds threads beyond the core size are kept idle.
+         */
+        public int getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(int keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        public String getThreadNamePrefix() {
+            return threadNamePrefix;
+        }
+
+        public void setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+        }
+
+    }
+
+    public static class Scheduler {
+
+        private int poolSize = 2;
+
+        private String threadNamePrefix = "externaltask-scheduler-";
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public String getThreadNamePrefix() {
+            return threadNamePrefix;
+        }
+
+        public void setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+        }
+
+    }
+
+    /**
+     * Used to lock external tasks, the host's name if not set.
+     */
+    private String workerId;
+
+    /**
+     * Runs the processors.
+     */
+    private final Pool processing = new Pool(8, 8, 100, "externaltask-processing-");
+
+    /**
+     * Runs the actions following a transaction, e.g. submitting the tasks
+     * locked.
+     */
+    private final Pool completion = new Pool(1, 2, 1000, "externaltask-completion-");
+
+    /**
+     * Runs retries and timeouts.
+     */
+    private final Scheduler scheduler = new Scheduler();
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Pool getProcessing() {
+        return processing;
+    }
+
+    public Pool getCompletion() {
+        return completion;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+}
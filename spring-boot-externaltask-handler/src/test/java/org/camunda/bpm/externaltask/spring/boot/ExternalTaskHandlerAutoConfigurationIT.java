@@ -0,0 +1,146 @@
+package org.camunda.bpm.externaltask.spring.boot;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.externaltask.ExternalTaskHandlerManagement;
+import org.camunda.bpm.externaltask.RegistrationInfo;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.externaltask.spring.SpringExternalTaskHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class ExternalTaskHandlerAutoConfigurationIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    @Qualifier("workerId")
+    private String workerId;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ExternalTaskHandlerExecutors executors;
+
+    @Test
+    public void testOneHandlerAlthoughPackageScanned() {
+
+        Assert.assertEquals("handlers", 1, applicationContext.getBeansOfType(SpringExternalTaskHandler.class).size());
+
+    }
+
+    @Test
+    public void testSweepOnDedicatedScheduler() {
+
+        Assert.assertFalse("sweep not scheduled on the handler's scheduler", executors
+                .getScheduler()
+                .getScheduledThreadPoolExecutor()
+                .getQueue()
+                .isEmpty());
+
+    }
+
+    @Test
+    public void testProcessingOnDedicatedExecutor() throws Exception {
+
+        Assert.assertEquals("worker id", "bootWorker", workerId);
+
+        final CompletableFuture<String> processingThread = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            processingThread.complete(Thread.currentThread().getName());
+                            return Collections.singletonMap("test", "success");
+                        });
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        Assert.assertTrue("processed by the handler's executor",
+                processingThread.get(50, TimeUnit.SECONDS).startsWith("test-processing-"));
+
+        Thread.sleep(500);
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception {
+
+        final CompletableFuture<String> processed = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            processed.complete(processInstanceId);
+                            return Collections.singletonMap("test", "success");
+                        });
+
+        final ExternalTaskHandlerManagement management = ((SpringExternalTaskHandler) externalTaskHandler)
+                .getManagement();
+        management.pause(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC);
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        Thread.sleep(1000);
+        Assert.assertFalse("processed while paused", processed.isDone());
+        Assert.assertTrue("paused", management
+                .getRegistration(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC)
+                .isPaused());
+
+        management.resume(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC);
+
+        Assert.assertEquals("processed after resume", processInstanceId, processed.get(50, TimeUnit.SECONDS));
+
+        Thread.sleep(500);
+
+        final RegistrationInfo registration = management
+                .getRegistration(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC);
+        Assert.assertEquals("tasks processed", 1, registration.getProcessed());
+        Assert.assertEquals("last fetch size", 1, registration.getLastFetchSize());
+
+    }
+
+    /**
+     * Scans the package of the Spring integration as well, like applications
+     * migrated from it might do.
+     */
+    @SpringBootApplication(scanBasePackages = "org.camunda.bpm.externaltask.spring")
+    static class TestCamundaApplication {
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects the actions of one handler to be run after the current transaction.
+ * One instance is registered per transaction and handler, bound as a resource
+ * so further actions are added to the same instance.
+ */
+class AfterTransactionActions extends TransactionSynchronizationAdapter {
+
+    private static Logger logger = LoggerFactory.getLogger(AfterTransactionActions.class);
+
+    private final Object key;
+
+    private final TaskExecutor executor;
+
+    private final Queue<Runnable> afterCommit = new LinkedList<>();
+
+    private final Queue<Runnable> afterCompletion = new LinkedList<>();
+
+    private AfterTransactionActions(final Object key, final TaskExecutor executor) {
+        this.key = key;
+        this.executor = executor;
+    }
+
+    /**
+     * @param key      Identifies the handler the actions belong to
+     * @param executor Runs the actions of a transaction as one batch or null to
+     *                 run them in the thread completing the transaction
+     * @return The actions of the current transaction or null if there is no
+     *         transaction
+     */
+    static AfterTransactionActions of(final Object key, final TaskExecutor executor) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        AfterTransactionActions result = (AfterTransactionActions) TransactionSynchronizationManager
+                .getResource(key);
+        if (result == null) {
+            result = new AfterTransactionActions(key, executor);
+            TransactionSynchronizationManager.registerSynchronization(result);
+            TransactionSynchronizationManager.bindResource(key, result);
+        }
+        return result;
+
+    }
+
+    void addAfterCommit(final Runnable action) {
+        afterCommit.add(action);
+    }
+
+    void addAfterCompletion(final Runnable action) {
+        afterCompletion.add(action);
+    }
+
+    @Override
+    public void suspend() {
+        // actions of an inner transaction must not be added to this one
+        TransactionSynchronizationManager.unbindResource(key);
+    }
+
+    @Override
+    public void resume() {
+        TransactionSynchronizationManager.bindResource(key, this);
+    }
+
+    /*
+     * Actions may add further actions while running, they are run as well.
+     */
+    @Override
+    public void afterCommit() {
+        flush(afterCommit);
+    }
+
+    @Override
+    public void afterCompletion(final int status) {
+        afterCommit.clear();
+        flush(afterCompletion);
+        TransactionSynchronizationManager.unbindResourceIfPossible(key);
+    }
+
+    private void flush(final Queue<Runnable> actions) {
+        if ((executor == null) || actions.isEmpty()) {
+            runAll(actions);
+            return;
+        }
+        final Queue<Runnable> batch = new LinkedList<>(actions);
+        actions.clear();
+        try {
+            executor.execute(() -> runAll(batch));
+        } catch (RejectedExecutionException e) {
+            // back-pressure: the thread completing the transaction runs them
+            runAll(batch);
+        }
+    }
+
+    private static void runAll(final Queue<Runnable> actions) {
+        Runnable action;
+        while ((action = actions.poll()) != null) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.warn("Could not run action after transaction", e);
+            }
+        }
+    }
+
+}
@@ -11,25 +11,39 @@ import org.springframework.transaction.support.TransactionTemplate;
 @Component
 public class ExternalTaskHandlerHelper {
 
-    @Autowired
+    @Autowired(required = false)
     private TaskScheduler taskScheduler;
     
     @Autowired
     private TransactionTemplate transactionTemplate;
 
     @Async
-    void processAsynchronously(final Runnable task) {
-        processTransactional(task);
+    void processAsynchronously(final TransactionTemplate transactionTemplate, final Runnable task) {
+        processTransactional(transactionTemplate, task);
+    }
+    
+    @Async
+    void processAsynchronouslyWithoutTransaction(final Runnable task) {
+        task.run();
     }
     
-    void schedule(final long timeout, final Runnable task) {
-        taskScheduler.schedule(
-                () -> processTransactional(task),
+    /**
+     * @param taskScheduler The scheduler of the handler or null for the
+     *                      application's one
+     */
+    void schedule(final long timeout, final TaskScheduler taskScheduler,
+            final TransactionTemplate transactionTemplate, final Runnable task) {
+        (taskScheduler != null ? taskScheduler : this.taskScheduler).schedule(
+                () -> processTransactional(transactionTemplate, task),
                 new Date(System.currentTimeMillis() + timeout));
     }
     
-    <T> T processTransactional(final Runnable task) {
-        return transactionTemplate.execute(txStatus -> {
+    /**
+     * @param transactionTemplate The template of the engine's transaction manager
+     *                            or null for the application's one
+     */
+    <T> T processTransactional(final TransactionTemplate transactionTemplate, final Runnable task) {
+        return (transactionTemplate != null ? transactionTemplate : this.transactionTemplate).execute(txStatus -> {
             task.run();
             return null;
         });
@@ -1,56 +1,234 @@
 package org.camunda.bpm.externaltask.spring;
 
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 import org.camunda.bpm.model.bpmn.instance.FlowElement;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-@Component
+/**
+ * The handler of the application's process engine, declared by
+ * {@link SpringExternalTaskHandlerConfiguration}. If several engines run in one
+ * JVM, a handler per additional engine can be declared as a bean using
+ * {@link #setProcessEngine(ProcessEngine)}: each handler has its own
+ * registrations, fetching, recovery sweep and timeout handling.
+ *
+ * <pre>
+ * &#64;Bean
+ * public SpringExternalTaskHandler unitBExternalTaskHandler(&#64;Qualifier("unitB") ProcessEngine unitB,
+ *         &#64;Qualifier("unitB") PlatformTransactionManager transactionManager) {
+ *     final SpringExternalTaskHandler result = new SpringExternalTaskHandler();
+ *     result.setProcessEngine(unitB);
+ *     result.setTransactionManager(transactionManager);
+ *     return result;
+ * }
+ * </pre>
+ * 
+ * The properties <i>camunda.bpm.externaltask-handler.*</i> apply to every
+ * handler if they are set. A worker id or lock timeout set on the handler takes
+ * precedence over the application's one.
+ */
 public class SpringExternalTaskHandler extends org.camunda.bpm.externaltask.ExternalTaskHandlerImpl {
 
-    @Value("${camunda.bpm.externaltask-handler.default-locktimeout:60000}")
-    private long defaultLockTimeout;
+    private static final long SWEEP_INTERVAL = 60000;
+
+    private static final long DEFAULT_LOCK_TIMEOUT = 60000;
+
+    /*
+     * The properties are applied on initialization only if they are set, so they
+     * do not override the configuration of a handler declared as a bean: field
+     * injection runs after the bean's factory method called the setters.
+     */
+    @Value("${camunda.bpm.externaltask-handler.default-locktimeout:#{null}}")
+    private Long defaultLockTimeoutProperty;
+    
+    @Value("${camunda.bpm.externaltask-handler.partitioned-fetching:#{null}}")
+    private Boolean partitionedFetching;
+    
+    @Value("${camunda.bpm.externaltask-handler.shutdown-grace-period:#{null}}")
+    private Long gracePeriod;
+    
+    @Value("${camunda.bpm.externaltask-handler.max-in-flight:#{null}}")
+    private Integer maxInFlightTasks;
+    
+    @Value("${camunda.bpm.externaltask-handler.process-instance-lanes:#{null}}")
+    private Integer processInstanceLanes;
+    
+    @Value("${camunda.bpm.externaltask-handler.optimistic-locking-retries:#{null}}")
+    private Integer optimisticLockingRetries;
+    
+    @Value("${camunda.bpm.externaltask-handler.transactional-processing:#{null}}")
+    private Boolean transactionalProcessing;
     
+    @Value("${camunda.bpm.externaltask-handler.singleton-sweep:#{null}}")
+    private Boolean singletonSweep;
+    
+    @Value("${camunda.bpm.externaltask-handler.startup-recovery:#{null}}")
+    private Boolean startupRecovery;
+    
+    /*
+     * The application's worker id, used unless one was set explicitly.
+     */
     @Autowired
     @Qualifier("workerId")
-    private String workerId;
+    private String applicationWorkerId;
     
-    @Autowired
-    private ExternalTaskService externalTaskService;
+    private Long defaultLockTimeout;
+    
+    private String workerId;
     
+    /*
+     * Resolved on initialization unless the engine was set explicitly, so a
+     * handler of another engine is not rebound to the application's one.
+     */
     @Autowired
-    private RuntimeService runtimeService;
+    private ObjectProvider<ProcessEngine> processEngines;
 
     @Autowired
     private ExternalTaskHandlerHelper helper;
     
-    @Autowired
-    private ApplicationEventPublisher applicationEventPublisher;
+    private ExternalTaskService externalTaskService;
     
-    @Autowired
+    private RuntimeService runtimeService;
+
     private ProcessEngineConfigurationImpl processEngineConfiguration;
+    
+    private ScheduledFuture<?> sweep;
+    
+    private TaskExecutor taskExecutor;
+    
+    private TaskScheduler taskScheduler;
+    
+    private TaskExecutor completionExecutor;
+    
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Bind this handler to another engine than the application's one. Has to be
+     * called before the bean is initialized.
+     */
+    public void setProcessEngine(ProcessEngine processEngine) {
+        
+        this.processEngineConfiguration = (ProcessEngineConfigurationImpl) processEngine
+                .getProcessEngineConfiguration();
+        this.externalTaskService = processEngine.getExternalTaskService();
+        this.runtimeService = processEngine.getRuntimeService();
+        
+    }
+    
+    /**
+     * Use a separate executor for processing this handler's tasks instead of the
+     * application's one, e.g. to scale engines independently.
+     */
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+    
+    /**
+     * Use a separate scheduler for retries, timeouts and the recovery sweep of
+     * this handler instead of the application's one.
+     */
+    public void setTaskScheduler(TaskScheduler taskScheduler) {
+        this.taskScheduler = taskScheduler;
+    }
+    
+    /**
+     * Run the actions following a transaction (e.g. submitting the tasks locked)
+     * on this executor instead of the thread committing the transaction. The
+     * actions of one transaction are submitted as one batch.
+     */
+    public void setCompletionExecutor(TaskExecutor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+    }
+    
+    /**
+     * Use the transaction manager of this handler's engine if it is not the
+     * application's one.
+     */
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @PostConstruct
     public void init() {
 
+        if (processEngineConfiguration == null) {
+            setProcessEngine(processEngines.getObject());
+        }
+        
+        if (defaultLockTimeout == null) {
+            defaultLockTimeout = defaultLockTimeoutProperty != null ? defaultLockTimeoutProperty : DEFAULT_LOCK_TIMEOUT;
+        }
+        if (workerId == null) {
+            workerId = applicationWorkerId;
+        }
+        if (partitionedFetching != null) {
+            setPartitionedFetching(partitionedFetching);
+        }
+        if (gracePeriod != null) {
+            setShutdownGracePeriod(gracePeriod);
+        }
+        if (processInstanceLanes != null) {
+            setProcessInstanceLanes(processInstanceLanes);
+        }
+        if (optimisticLockingRetries != null) {
+            setOptimisticLockingRetries(optimisticLockingRetries);
+        }
+        if (transactionalProcessing != null) {
+            setTransactionalProcessing(transactionalProcessing);
+        }
+        if (singletonSweep != null) {
+            setSingletonSweep(singletonSweep);
+        }
+        if (startupRecovery != null) {
+            setStartupRecovery(startupRecovery);
+        }
+        if (maxInFlightTasks != null) {
+            setMaxInFlight(maxInFlightTasks);
+        }
+        
         processEngineConfiguration
                 .getJobHandlers()
                 .put(this.getType(), this);
+        
+        if (taskScheduler != null) {
+            sweep = taskScheduler.scheduleWithFixedDelay(
+                    () -> helper.processTransactional(transactionTemplate, this::sweepExternalTasks),
+                    new Date(System.currentTimeMillis() + SWEEP_INTERVAL),
+                    SWEEP_INTERVAL);
+        }
+
+    }
 
+    @PreDestroy
+    public void destroy() {
+        
+        if (sweep != null) {
+            sweep.cancel(false);
+        }
+        shutdown();
+        
     }
 
     @Override
@@ -79,45 +257,87 @@ public class SpringExternalTaskHandler extends org.camunda.bpm.externaltask.Exte
     }
     
     /**
-     * Pickup external task which might be "lost" due to system crashes.
+     * Pickup external task which might be "lost" due to system crashes. Handlers
+     * having a scheduler of their own sweep on that one.
      */
     @Scheduled(fixedDelayString = "PT1M", initialDelayString = "PT1M")
     @Transactional
     public void fetchAndLockExternalTasks() {
         
-        registrations.keySet()
-                .forEach(super::fetchAndLockExternalTasks);
+        if (taskScheduler != null) {
+            return;
+        }
+        sweepExternalTasks();
         
     }
     
     @Override
     protected void doAfterTransaction(Runnable action) {
         
-        applicationEventPublisher
-                .publishEvent(
-                        new ExternalTaskHandlerEvent(this, action));
+        final AfterTransactionActions actions = AfterTransactionActions.of(this, completionExecutor);
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.addAfterCommit(action);
+        }
+        
+    }
+    
+    @Override
+    protected void doAfterTransactionCompletion(Runnable action) {
+        
+        final AfterTransactionActions actions = AfterTransactionActions.of(this, completionExecutor);
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.addAfterCompletion(action);
+        }
         
     }
     
-    @SuppressWarnings("static-method")
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
-    public void processAfterTransaction(ExternalTaskHandlerEvent event) {
+    @Override
+    protected boolean isTransactionActive() {
         
-        event.getAction().run();
+        return TransactionSynchronizationManager.isActualTransactionActive();
         
     }
     
     @Override
     protected void processAsynchronously(Runnable action) {
         
-        helper.processAsynchronously(action);
+        if (taskExecutor != null) {
+            taskExecutor.execute(() -> helper.processTransactional(transactionTemplate, action));
+        } else {
+            helper.processAsynchronously(transactionTemplate, action);
+        }
+        
+    }
+    
+    @Override
+    protected void processAsynchronouslyWithoutTransaction(Runnable action) {
+        
+        if (taskExecutor != null) {
+            taskExecutor.execute(action);
+        } else {
+            helper.processAsynchronouslyWithoutTransaction(action);
+        }
         
     }
     
     @Override
     protected void scheduleFetchAndLockExternalTasks(long timeout, String key) {
         
-        helper.schedule(timeout, () -> super.fetchAndLockExternalTasks(key));
+        helper.schedule(timeout, taskScheduler, transactionTemplate, () -> super.fetchAndLockExternalTasks(key));
+        
+    }
+    
+    /**
+     * Pickup external tasks waiting for processors registered at startup.
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        
+        onApplicationReady();
         
     }
     
@@ -127,7 +347,8 @@ public class SpringExternalTaskHandler extends org.camunda.bpm.externaltask.Exte
         final FlowElement bpmnElement = execution.getBpmnModelElementInstance();
         final String processDefinitionKey = ((ExecutionEntity) execution).getProcessDefinition().getKey();
 
-        super.onTaskEvent(processDefinitionKey, bpmnElement);
+        super.onTaskEvent(execution.getProcessEngine().getName(), processDefinitionKey,
+                execution.getProcessInstanceId(), bpmnElement);
         
     }
 
@@ -0,0 +1,49 @@
+package org.camunda.bpm.externaltask.spring;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Declares the handler of the application's process engine for applications
+ * scanning the package <code>org.camunda.bpm.externaltask.spring</code>.
+ * <p>
+ * The handler is not declared if the property
+ * <code>camunda.bpm.externaltask-handler.default-handler</code> is false, e.g.
+ * if there is no primary engine and a handler is declared per engine, or if the
+ * Spring Boot auto-configuration is present, which declares the handler using
+ * executors of its own.
+ * </p>
+ */
+@Configuration
+public class SpringExternalTaskHandlerConfiguration {
+
+    private static final String AUTO_CONFIGURATION
+            = "org.camunda.bpm.externaltask.spring.boot.ExternalTaskHandlerAutoConfiguration";
+
+    static class DefaultHandlerCondition implements Condition {
+
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+
+            return context.getEnvironment()
+                            .getProperty("camunda.bpm.externaltask-handler.default-handler", Boolean.class, true)
+                    && !ClassUtils.isPresent(AUTO_CONFIGURATION, context.getClassLoader());
+
+        }
+
+    }
+
+    @Bean
+    @Conditional(DefaultHandlerCondition.class)
+    public SpringExternalTaskHandler springExternalTaskHandler() {
+
+        return new SpringExternalTaskHandler();
+
+    }
+
+}
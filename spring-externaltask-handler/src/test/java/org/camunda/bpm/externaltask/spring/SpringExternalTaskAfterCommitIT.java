@@ -0,0 +1,190 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tasks created in a transaction of the application are fetched once that
+ * transaction is committed - not before and not at all if it is rolled back.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskAfterCommitIT {
+
+    private static String AFTER_COMMIT_PROCESS_DEFINITION_KEY = "AfterCommitProcess";
+
+    private static String AFTER_COMMIT_TOPIC = "AfterCommitTopic";
+
+    private static final Map<String, CompletableFuture<String>> processed = new ConcurrentHashMap<>();
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void register() {
+
+        if (repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(AFTER_COMMIT_PROCESS_DEFINITION_KEY)
+                .count() == 0) {
+            final BpmnModelInstance model = Bpmn.createExecutableProcess(AFTER_COMMIT_PROCESS_DEFINITION_KEY)
+                    .startEvent()
+                    .serviceTask("Service").camundaExternalTask(AFTER_COMMIT_TOPIC)
+                    .endEvent()
+                    .done();
+            repositoryService.createDeployment()
+                    .addModelInstance(AFTER_COMMIT_PROCESS_DEFINITION_KEY + ".bpmn", model)
+                    .deploy();
+        }
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(AFTER_COMMIT_PROCESS_DEFINITION_KEY, AFTER_COMMIT_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            processed(businessKey).complete(processInstanceId);
+                            return new HashMap<>();
+                        });
+
+    }
+
+    @Test
+    public void testFetchedAfterCommit() throws Exception {
+
+        final String processInstanceId = new TransactionTemplate(transactionManager).execute(status -> {
+            final String result = start("commit");
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+            Assert.assertFalse("fetched before commit", processed("commit").isDone());
+            return result;
+        });
+
+        Assert.assertEquals(processInstanceId, processed("commit").get(10, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    public void testNotFetchedOnRollback() throws Exception {
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            start("rollback");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Thread.sleep(2000);
+
+        Assert.assertFalse("fetched although rolled back", processed("rollback").isDone());
+
+    }
+
+    @Test
+    public void testOneSynchronizationPerTransaction() throws Exception {
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            start("batch1");
+            start("batch2");
+            start("batch3");
+            Assert.assertEquals("synchronizations of the handler", 1, TransactionSynchronizationManager
+                    .getSynchronizations()
+                    .stream()
+                    .filter(synchronization -> synchronization instanceof AfterTransactionActions)
+                    .count());
+            return null;
+        });
+
+        processed("batch1").get(10, TimeUnit.SECONDS);
+        processed("batch2").get(10, TimeUnit.SECONDS);
+        processed("batch3").get(10, TimeUnit.SECONDS);
+
+    }
+
+    @Test
+    public void testInnerTransactionCollectsItsOwnActions() throws Exception {
+
+        final TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            start("outer");
+            requiresNew.execute(innerStatus -> start("inner"));
+            try {
+                Assert.assertNotNull("inner not fetched after its commit", processed("inner").get(10, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                Assert.fail(e.getMessage());
+            }
+            Assert.assertFalse("outer fetched on inner commit", processed("outer").isDone());
+            return null;
+        });
+
+        processed("outer").get(10, TimeUnit.SECONDS);
+
+    }
+
+    private String start(final String businessKey) {
+
+        return runtimeService
+                .startProcessInstanceByKey(AFTER_COMMIT_PROCESS_DEFINITION_KEY, businessKey)
+                .getProcessInstanceId();
+
+    }
+
+    private static CompletableFuture<String> processed(final String businessKey) {
+
+        return processed.computeIfAbsent(businessKey, k -> new CompletableFuture<>());
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "afterCommitWorker";
+        }
+
+    }
+
+}
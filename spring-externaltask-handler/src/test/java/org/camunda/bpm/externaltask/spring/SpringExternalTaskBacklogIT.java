@@ -0,0 +1,189 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.externaltask.RegistrationInfo;
+import org.camunda.bpm.externaltask.spi.ExternalTaskSyncProcessingRegistration;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Tasks waiting before a processor is registered are fetched once the
+ * application is ready or shortly after a later registration - in pages and
+ * long before the one-minute sweep.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskBacklogIT {
+
+    private static String STARTUP_PROCESS_DEFINITION_KEY = "StartupBacklogProcess";
+
+    private static String REGISTRATION_PROCESS_DEFINITION_KEY = "RegistrationBacklogProcess";
+
+    private static String BACKLOG_TOPIC = "BacklogTopic";
+
+    private static int BACKLOG = 25;
+
+    private static int PAGE_SIZE = 10;
+
+    private static final Set<String> processed = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private SpringExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    private Backlog backlog;
+
+    @Test
+    public void testBacklogDrainedOnStartup() throws Exception {
+
+        waitForProcessed(backlog.processInstanceIds);
+
+        Assert.assertEquals("last of 3 pages", BACKLOG % PAGE_SIZE,
+                getRegistration(STARTUP_PROCESS_DEFINITION_KEY).getLastFetchSize());
+
+    }
+
+    @Test
+    public void testBacklogDrainedOnRegistration() throws Exception {
+
+        backlog.deploy(REGISTRATION_PROCESS_DEFINITION_KEY);
+        final Set<String> processInstanceIds = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < BACKLOG; ++i) {
+            processInstanceIds.add(runtimeService
+                    .startProcessInstanceByKey(REGISTRATION_PROCESS_DEFINITION_KEY)
+                    .getProcessInstanceId());
+        }
+
+        // registered after the application is ready
+        backlog.register(REGISTRATION_PROCESS_DEFINITION_KEY);
+
+        waitForProcessed(processInstanceIds);
+
+        Assert.assertEquals("last of 3 pages", BACKLOG % PAGE_SIZE,
+                getRegistration(REGISTRATION_PROCESS_DEFINITION_KEY).getLastFetchSize());
+
+    }
+
+    private RegistrationInfo getRegistration(final String processDefinitionKey) {
+
+        return externalTaskHandler.getManagement().getRegistration(processDefinitionKey, BACKLOG_TOPIC);
+
+    }
+
+    /*
+     * Much less than the sweep's interval of one minute.
+     */
+    private static void waitForProcessed(final Set<String> processInstanceIds) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + 15000;
+        while (!processed.containsAll(processInstanceIds)
+                && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue("backlog not drained", processed.containsAll(processInstanceIds));
+
+    }
+
+    /**
+     * Creates tasks before the application is ready.
+     */
+    static class Backlog {
+
+        private final Set<String> processInstanceIds = ConcurrentHashMap.newKeySet();
+
+        @Autowired
+        private RepositoryService repositoryService;
+
+        @Autowired
+        private RuntimeService runtimeService;
+
+        @Autowired
+        private SpringExternalTaskHandler externalTaskHandler;
+
+        @PostConstruct
+        public void createTasks() {
+
+            deploy(STARTUP_PROCESS_DEFINITION_KEY);
+            for (int i = 0; i < BACKLOG; ++i) {
+                processInstanceIds.add(runtimeService
+                        .startProcessInstanceByKey(STARTUP_PROCESS_DEFINITION_KEY)
+                        .getProcessInstanceId());
+            }
+
+            register(STARTUP_PROCESS_DEFINITION_KEY);
+
+        }
+
+        void deploy(final String processDefinitionKey) {
+
+            final BpmnModelInstance model = Bpmn.createExecutableProcess(processDefinitionKey)
+                    .startEvent()
+                    .serviceTask("Service").camundaExternalTask(BACKLOG_TOPIC)
+                    .endEvent()
+                    .done();
+            repositoryService.createDeployment()
+                    .addModelInstance(processDefinitionKey + ".bpmn", model)
+                    .deploy();
+
+        }
+
+        void register(final String processDefinitionKey) {
+
+            final ExternalTaskSyncProcessingRegistration<?> registration = externalTaskHandler
+                    .registerExternalTaskProcessor(processDefinitionKey, BACKLOG_TOPIC,
+                            (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                                processed.add(processInstanceId);
+                                return new HashMap<>();
+                            });
+            externalTaskHandler.getManagement().changeFetchPageSize(processDefinitionKey, BACKLOG_TOPIC, PAGE_SIZE);
+            registration.activate();
+
+        }
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "backlogWorker";
+        }
+
+        @Bean
+        public Backlog backlog() {
+            return new Backlog();
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Fetches lock no more tasks than the free processing capacity and tasks which
+ * cannot be submitted for processing are unlocked immediately.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskCapacityIT {
+
+    private static String CAPACITY_PROCESS_DEFINITION_KEY = "CapacityProcess";
+
+    private static String REJECTED_PROCESS_DEFINITION_KEY = "RejectedProcess";
+
+    private static String CAPACITY_TOPIC = "CapacityTopic";
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    @Qualifier("springExternalTaskHandler")
+    private SpringExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    @Qualifier("rejectingExternalTaskHandler")
+    private SpringExternalTaskHandler rejectingExternalTaskHandler;
+
+    @Test
+    public void testFetchSizedToCapacity() throws Exception {
+
+        final List<String> processInstanceIds = startProcesses(CAPACITY_PROCESS_DEFINITION_KEY, 5);
+
+        final CountDownLatch running = new CountDownLatch(2);
+        final CountDownLatch finish = new CountDownLatch(1);
+        externalTaskHandler
+                .registerExternalTaskProcessor(CAPACITY_PROCESS_DEFINITION_KEY, CAPACITY_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            running.countDown();
+                            finish.await(30, TimeUnit.SECONDS);
+                            return new HashMap<>();
+                        })
+                .maxInFlight(2)
+                .activate();
+
+        Assert.assertTrue("processors not called!", running.await(10, TimeUnit.SECONDS));
+        Thread.sleep(500);
+
+        Assert.assertEquals("tasks locked beyond capacity", 2, externalTaskService.createExternalTaskQuery()
+                .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
+                .locked()
+                .count());
+        Assert.assertEquals("in flight", 2, externalTaskHandler.getManagement()
+                .getRegistration(CAPACITY_PROCESS_DEFINITION_KEY, CAPACITY_TOPIC)
+                .getInFlight());
+
+        // capacity released by finished tasks is used for the remaining ones
+        finish.countDown();
+        waitFor("remaining tasks not fetched", () -> historyService.createHistoricProcessInstanceQuery()
+                .processInstanceIds(new HashSet<>(processInstanceIds))
+                .finished()
+                .count() == processInstanceIds.size());
+        Assert.assertEquals("capacity not released", 0, externalTaskHandler.getManagement()
+                .getRegistration(CAPACITY_PROCESS_DEFINITION_KEY, CAPACITY_TOPIC)
+                .getInFlight());
+
+    }
+
+    @Test
+    public void testRejectedTasksUnlocked() throws Exception {
+
+        final List<String> processInstanceIds = startProcesses(REJECTED_PROCESS_DEFINITION_KEY, 3);
+
+        final AtomicInteger calls = new AtomicInteger();
+        rejectingExternalTaskHandler
+                .registerExternalTaskProcessor(REJECTED_PROCESS_DEFINITION_KEY, CAPACITY_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            calls.incrementAndGet();
+                            return new HashMap<>();
+                        })
+                .activate();
+
+        waitFor("tasks not fetched", () -> rejectingExternalTaskHandler.getManagement()
+                .getRegistration(REJECTED_PROCESS_DEFINITION_KEY, CAPACITY_TOPIC)
+                .getLastFetchSize() == processInstanceIds.size());
+        // much less than the lock timeout
+        waitFor("rejected tasks still locked", () -> externalTaskService.createExternalTaskQuery()
+                .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
+                .notLocked()
+                .count() == processInstanceIds.size());
+
+        Assert.assertEquals("processor called", 0, calls.get());
+        Assert.assertEquals("capacity not released", 0, rejectingExternalTaskHandler.getManagement().getInFlight());
+
+    }
+
+    private List<String> startProcesses(final String processDefinitionKey, final int count) {
+
+        final BpmnModelInstance model = Bpmn.createExecutableProcess(processDefinitionKey)
+                .startEvent()
+                .serviceTask("Service").camundaExternalTask(CAPACITY_TOPIC)
+                .endEvent()
+                .done();
+        repositoryService.createDeployment()
+                .addModelInstance(processDefinitionKey + ".bpmn", model)
+                .deploy();
+
+        // waiting before the registration, so the first fetch is limited by capacity only
+        final List<String> result = new LinkedList<>();
+        for (int i = 0; i < count; ++i) {
+            result.add(runtimeService
+                    .startProcessInstanceByKey(processDefinitionKey)
+                    .getProcessInstanceId());
+        }
+        return result;
+
+    }
+
+    private static void waitFor(final String message, final BooleanSupplier condition) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()
+                && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(message, condition.getAsBoolean());
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "capacityWorker";
+        }
+
+        /**
+         * A handler whose executor's queue is always full.
+         */
+        @Bean(name = "rejectingExternalTaskHandler")
+        public SpringExternalTaskHandler rejectingExternalTaskHandler() {
+
+            final SpringExternalTaskHandler result = new SpringExternalTaskHandler();
+            result.setTaskExecutor(task -> {
+                throw new TaskRejectedException("queue full");
+            });
+            return result;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Variables returned unchanged must neither be updated nor produce history
+ * entries if the registration is configured to write changed variables only.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskChangedVariablesIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    private static byte[] PAYLOAD = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Test
+    public void testUnchangedFetchedVariablesAreSkipped() throws Exception {
+
+        final CompletableFuture<String> processed = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            // returns the variables received, modified in place
+                            variables.put("initB", "B1");
+                            variables.put("added", "C");
+                            processed.complete(processInstanceId);
+                            return variables;
+                        })
+                .changedVariablesOnly();
+
+        final String processInstanceId = startProcess();
+        Assert.assertEquals(processInstanceId, processed.get(50, TimeUnit.SECONDS));
+
+        assertWritten(processInstanceId);
+
+    }
+
+    @Test
+    public void testUnchangedLoadedVariablesAreSkipped() throws Exception {
+
+        final CompletableFuture<String> processed = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        context -> {
+                            // values of the context are loaded lazily, so they are
+                            // compared to the current values on completion
+                            final Map<String, Object> result = new HashMap<>(
+                                    context.getVariables("initA", "payload"));
+                            result.put("initB", "B1");
+                            result.put("added", "C");
+                            processed.complete(context.getProcessInstanceId());
+                            return result;
+                        })
+                .changedVariablesOnly();
+
+        final String processInstanceId = startProcess();
+        Assert.assertEquals(processInstanceId, processed.get(50, TimeUnit.SECONDS));
+
+        assertWritten(processInstanceId);
+
+    }
+
+    private String startProcess() {
+
+        return runtimeService
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, Variables
+                        .createVariables()
+                        .putValue("initA", "A")
+                        .putValue("initB", "B")
+                        .putValueTyped("payload", Variables.byteArrayValue(PAYLOAD)))
+                .getProcessInstanceId();
+
+    }
+
+    private void assertWritten(final String processInstanceId) throws InterruptedException {
+
+        Thread.sleep(500);
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+
+        Assert.assertEquals("variable instances", 4, historyService
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .count());
+        Assert.assertEquals("changed value", "B1", historyService
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName("initB")
+                .singleResult()
+                .getValue());
+
+        // the start of the process produced one update per variable
+        Assert.assertEquals("updates of unchanged 'initA'", 1, countUpdates(processInstanceId, "initA"));
+        Assert.assertEquals("updates of unchanged 'payload'", 1, countUpdates(processInstanceId, "payload"));
+        Assert.assertEquals("updates of changed 'initB'", 2, countUpdates(processInstanceId, "initB"));
+        Assert.assertEquals("updates of added 'added'", 1, countUpdates(processInstanceId, "added"));
+
+    }
+
+    private long countUpdates(final String processInstanceId, final String name) {
+
+        final String variableInstanceId = historyService
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName(name)
+                .singleResult()
+                .getId();
+        return historyService
+                .createHistoricDetailQuery()
+                .variableUpdates()
+                .variableInstanceId(variableInstanceId)
+                .count();
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "changedVariablesWorker";
+        }
+
+    }
+
+}
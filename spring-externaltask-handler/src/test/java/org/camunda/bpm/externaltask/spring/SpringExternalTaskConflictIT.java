@@ -0,0 +1,183 @@
+package org.camunda.bpm.externaltask.spring;
+
+import static org.camunda.bpm.externaltask.spring.SpringExternalTaskSyncProcessingIT.variables;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.history.HistoricVariableInstance;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Forces an optimistic locking conflict on completion: while the processor
+ * runs, a concurrent transaction updates the variable the completion sets and
+ * commits only after the completion read it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskConflictIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @After
+    public void resetTransactionalProcessing() {
+
+        externalTaskHandler.setTransactionalProcessing(true);
+
+    }
+
+    @Test
+    public void testConflictWithoutTransactionIsRetried() {
+
+        externalTaskHandler.setTransactionalProcessing(false);
+
+        final AtomicInteger processorCalls = new AtomicInteger();
+        final String processInstanceId = runConflictingProcess(processorCalls);
+
+        Assert.assertEquals("processor called again", 1, processorCalls.get());
+        assertProcessEndedWith(processInstanceId, "A1");
+
+    }
+
+    @Test
+    public void testConflictWithinTransactionIsRetried() {
+
+        final AtomicInteger processorCalls = new AtomicInteger();
+        final String processInstanceId = runConflictingProcess(processorCalls);
+
+        // the completion is retried in a transaction of its own
+        Assert.assertEquals("processor called again", 1, processorCalls.get());
+        assertProcessEndedWith(processInstanceId, "A1");
+
+    }
+
+    private String runConflictingProcess(final AtomicInteger processorCalls) {
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            if (processorCalls.incrementAndGet() == 1) {
+                                updateConcurrently(executionId);
+                            }
+                            return variables("initA", "A1");
+                        });
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, variables("initA", "A"))
+                .getProcessInstanceId();
+
+        final long timeout = System.currentTimeMillis() + 10000;
+        while ((historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .finished()
+                .count() == 0)
+                && (System.currentTimeMillis() < timeout)) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+        return processInstanceId;
+
+    }
+
+    /*
+     * Updates the variable in a transaction committed shortly after the
+     * processor returned, so the completion reads the former revision.
+     */
+    private void updateConcurrently(final String executionId) {
+
+        final CountDownLatch updated = new CountDownLatch(1);
+        final Thread concurrent = new Thread(() ->
+                new TransactionTemplate(transactionManager).execute(txStatus -> {
+                    runtimeService.setVariable(executionId, "initA", "concurrent");
+                    updated.countDown();
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+        concurrent.start();
+        try {
+            Assert.assertTrue("concurrent update", updated.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+    }
+
+    private void assertProcessEndedWith(final String processInstanceId, final String value) {
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        Assert.assertEquals("Incident created", 0, historyService.createHistoricIncidentQuery()
+                .processInstanceId(processInstanceId)
+                .count());
+
+        final Map<String, Object> variables = historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(HistoricVariableInstance::getName, HistoricVariableInstance::getValue));
+        Assert.assertEquals("Variable not set", variables("initA", value), variables);
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "testWorker";
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Runs a second engine "unitB" next to the application's one. Its handler is
+ * bound to it explicitly and must not be rebound to the application's engine
+ * on initialization.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskHandlerEnginesIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    @Qualifier("springExternalTaskHandler")
+    private SpringExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    @Qualifier("unitBExternalTaskHandler")
+    private SpringExternalTaskHandler unitBExternalTaskHandler;
+
+    @Autowired
+    private TestCamundaApplicationConfiguration configuration;
+
+    @Test
+    public void testHandlerPerEngine() throws Exception {
+
+        final ProcessEngine unitB = configuration.unitB();
+        unitB.getRepositoryService()
+                .createDeployment()
+                .addClasspathResource("test-external-task.bpmn")
+                .deploy();
+
+        Assert.assertSame("engine of the application's handler",
+                runtimeService, externalTaskHandler.getRuntimeService());
+        Assert.assertSame("engine of unitB's handler",
+                unitB.getRuntimeService(), unitBExternalTaskHandler.getRuntimeService());
+
+        // started before the processor is registered, fetched as the backlog
+        final String unitBProcessInstanceId = unitB.getRuntimeService()
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        final CompletableFuture<String> processedByUnitB = new CompletableFuture<>();
+        unitBExternalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            processedByUnitB.complete(processInstanceId);
+                            return Collections.singletonMap("test", "unitB");
+                        })
+                .activate();
+
+        final CompletableFuture<String> processed = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            processed.complete(processInstanceId);
+                            return Collections.singletonMap("test", "default");
+                        });
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        Assert.assertEquals("unitB's task processed by its handler",
+                unitBProcessInstanceId, processedByUnitB.get(50, TimeUnit.SECONDS));
+        Assert.assertEquals("application's task processed by its handler",
+                processInstanceId, processed.get(50, TimeUnit.SECONDS));
+
+        Thread.sleep(500);
+
+        assertEnded(historyService, processInstanceId, "default");
+        assertEnded(unitB.getHistoryService(), unitBProcessInstanceId, "unitB");
+
+    }
+
+    private static void assertEnded(final HistoryService historyService, final String processInstanceId,
+            final String expected) {
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        Assert.assertEquals("processed by the other engine's handler", expected, historyService
+                .createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName("test")
+                .singleResult()
+                .getValue());
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "enginesWorker";
+        }
+
+        /**
+         * Not an autowire candidate, so the application's engine stays the only
+         * one injected by type.
+         */
+        @Bean(name = "unitB", autowireCandidate = false, destroyMethod = "close")
+        public ProcessEngine unitB() {
+
+            final StandaloneInMemProcessEngineConfiguration configuration = new StandaloneInMemProcessEngineConfiguration();
+            configuration.setProcessEngineName("unitB");
+            configuration.setJdbcUrl("jdbc:h2:mem:unitB;DB_CLOSE_DELAY=-1");
+            configuration.setJobExecutorActivate(false);
+            configuration.setHistory(ProcessEngineConfiguration.HISTORY_FULL);
+            return configuration.buildProcessEngine();
+
+        }
+
+        @Bean(name = "unitBExternalTaskHandler")
+        public SpringExternalTaskHandler unitBExternalTaskHandler() {
+
+            final SpringExternalTaskHandler result = new SpringExternalTaskHandler();
+            result.setProcessEngine(unitB());
+            return result;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.externaltask.ExternalTask;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskLanesIT {
+
+    private static String TESTPROCESS_DEFINITION_KEY = "ExternalTaskProcess";
+
+    private static String TESTPROCESS_TESTTOPIC = "TestTopic";
+
+    private static long LOCK_TIMEOUT = 2000;
+
+    private static long PROCESSING_TIME = 1200;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @After
+    public void resetLanes() {
+
+        externalTaskHandler.setProcessInstanceLanes(0);
+
+    }
+
+    @Test
+    public void testWaitingTasksGetTheirLockExtended() {
+
+        // a single lane serializes all tasks
+        externalTaskHandler.setProcessInstanceLanes(1);
+
+        final List<String> processed = new LinkedList<>();
+        final List<String> lockExpired = new LinkedList<>();
+
+        externalTaskHandler
+                .registerExternalTaskProcessor(TESTPROCESS_DEFINITION_KEY, TESTPROCESS_TESTTOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables,
+                                retries) -> slowProcessor(processed, lockExpired, processInstanceId))
+                .lockTimeout(LOCK_TIMEOUT);
+
+        final List<String> processInstanceIds = new LinkedList<>();
+
+        synchronized (processed) {
+            for (int i = 0; i < 3; ++i) {
+                processInstanceIds.add(runtimeService
+                        .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY)
+                        .getProcessInstanceId());
+            }
+
+            final long timeout = System.currentTimeMillis() + 10000;
+            while ((processed.size() < 3)
+                    && (System.currentTimeMillis() < timeout)) {
+                try {
+                    processed.wait(1000);
+                } catch (InterruptedException e) {
+                    Assert.fail("Interrupted");
+                }
+            }
+        }
+
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        Assert.assertEquals("each task processed once", 3, processed.size());
+        Assert.assertTrue("processed with expired lock: " + lockExpired, lockExpired.isEmpty());
+
+        for (String processInstanceId : processInstanceIds) {
+            Assert.assertTrue("task not processed", processed.contains(processInstanceId));
+            final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                    .processInstanceId(processInstanceId)
+                    .singleResult();
+            Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        }
+
+    }
+
+    private Map<String, Object> slowProcessor(List<String> processed, List<String> lockExpired,
+            String processInstanceId) {
+
+        final ExternalTask task = externalTaskService.createExternalTaskQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        if (task.getLockExpirationTime().before(new Date())) {
+            synchronized (lockExpired) {
+                lockExpired.add(processInstanceId);
+            }
+        }
+
+        try {
+            Thread.sleep(PROCESSING_TIME);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        synchronized (processed) {
+            processed.add(processInstanceId);
+            processed.notify();
+        }
+
+        return new HashMap<>();
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "testWorker";
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.runtime.Incident;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Processors run without a transaction and without holding a pooled
+ * connection, each report of their result is a short transaction of its own.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "camunda.bpm.externaltask-handler.transactional-processing=false")
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskNonTransactionalIT {
+
+    private static String COMPLETED_PROCESS_DEFINITION_KEY = "NonTransactionalCompletedProcess";
+
+    private static String FAILED_PROCESS_DEFINITION_KEY = "NonTransactionalFailedProcess";
+
+    private static String NON_TRANSACTIONAL_TOPIC = "NonTransactionalTopic";
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void testCompletionWithoutTransaction() throws Exception {
+
+        deploy(COMPLETED_PROCESS_DEFINITION_KEY);
+
+        final CompletableFuture<Boolean> transactionActive = new CompletableFuture<>();
+        final CompletableFuture<Integer> activeConnections = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(COMPLETED_PROCESS_DEFINITION_KEY, NON_TRANSACTIONAL_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            transactionActive.complete(TransactionSynchronizationManager.isActualTransactionActive());
+                            // the fetching thread releases its connection after submitting the task
+                            Thread.sleep(200);
+                            activeConnections.complete(((HikariDataSource) dataSource)
+                                    .getHikariPoolMXBean()
+                                    .getActiveConnections());
+                            return Collections.singletonMap("test", "success");
+                        });
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(COMPLETED_PROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        Assert.assertFalse("processor run in a transaction", transactionActive.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("connection held while processing", 0, activeConnections.get().intValue());
+
+        Thread.sleep(500);
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        Assert.assertEquals("Variable not set", "success", historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .variableName("test")
+                .singleResult()
+                .getValue());
+
+    }
+
+    @Test
+    public void testFailureWithoutTransaction() throws Exception {
+
+        deploy(FAILED_PROCESS_DEFINITION_KEY);
+
+        final CompletableFuture<Boolean> transactionActive = new CompletableFuture<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(FAILED_PROCESS_DEFINITION_KEY, NON_TRANSACTIONAL_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            transactionActive.complete(TransactionSynchronizationManager.isActualTransactionActive());
+                            throw new Exception("failed with incident");
+                        });
+
+        final String processInstanceId = runtimeService
+                .startProcessInstanceByKey(FAILED_PROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        Assert.assertFalse("processor run in a transaction", transactionActive.get(10, TimeUnit.SECONDS));
+
+        Thread.sleep(500);
+
+        final Incident incident = runtimeService.createIncidentQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertNotNull("failure not reported", incident);
+        Assert.assertEquals("failed with incident", incident.getIncidentMessage());
+
+    }
+
+    private void deploy(final String processDefinitionKey) {
+
+        final BpmnModelInstance model = Bpmn.createExecutableProcess(processDefinitionKey)
+                .startEvent()
+                .serviceTask("Service").camundaExternalTask(NON_TRANSACTIONAL_TOPIC)
+                .endEvent()
+                .done();
+        repositoryService.createDeployment()
+                .addModelInstance(processDefinitionKey + ".bpmn", model)
+                .deploy();
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "nonTransactionalWorker";
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A handler processing one task at a time is shut down while one task is
+ * running and two are queued in its executor: the queued ones are unlocked
+ * immediately and never processed, the running one may finish within the
+ * grace period.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "camunda.bpm.externaltask-handler.shutdown-grace-period=30000")
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskShutdownIT {
+
+    private static String SHUTDOWN_PROCESS_DEFINITION_KEY = "ShutdownProcess";
+
+    private static String SHUTDOWN_TOPIC = "ShutdownTopic";
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    @Qualifier("shutdownExternalTaskHandler")
+    private SpringExternalTaskHandler externalTaskHandler;
+
+    @Test
+    public void testQueuedTasksUnlockedAndRunningDrained() throws Exception {
+
+        final BpmnModelInstance model = Bpmn.createExecutableProcess(SHUTDOWN_PROCESS_DEFINITION_KEY)
+                .startEvent()
+                .serviceTask("Service").camundaExternalTask(SHUTDOWN_TOPIC)
+                .endEvent()
+                .done();
+        repositoryService.createDeployment()
+                .addModelInstance(SHUTDOWN_PROCESS_DEFINITION_KEY + ".bpmn", model)
+                .deploy();
+
+        // waiting before the registration, so all of them are locked by one fetch
+        final List<String> processInstanceIds = new LinkedList<>();
+        for (int i = 0; i < 3; ++i) {
+            processInstanceIds.add(runtimeService
+                    .startProcessInstanceByKey(SHUTDOWN_PROCESS_DEFINITION_KEY)
+                    .getProcessInstanceId());
+        }
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final List<String> processed = new LinkedList<>();
+        externalTaskHandler
+                .registerExternalTaskProcessor(SHUTDOWN_PROCESS_DEFINITION_KEY, SHUTDOWN_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            calls.incrementAndGet();
+                            processed.add(processInstanceId);
+                            running.countDown();
+                            finish.await(30, TimeUnit.SECONDS);
+                            return new HashMap<>();
+                        })
+                .activate();
+
+        Assert.assertTrue("processor not called!", running.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("locked", 3, externalTaskService.createExternalTaskQuery()
+                .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
+                .locked()
+                .count());
+
+        final CompletableFuture<Void> shutdown = CompletableFuture.runAsync(externalTaskHandler::shutdown);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while ((countUnlocked(processInstanceIds) < 2)
+                && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals("queued tasks unlocked", 2, countUnlocked(processInstanceIds));
+        Assert.assertFalse("shutdown did not wait for the running processor", shutdown.isDone());
+
+        finish.countDown();
+        shutdown.get(10, TimeUnit.SECONDS);
+        Thread.sleep(500);
+
+        Assert.assertEquals("queued tasks processed after shutdown", 1, calls.get());
+        Assert.assertTrue("running processor not completed", historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processed.get(0))
+                .singleResult()
+                .getEndTime() != null);
+        Assert.assertEquals("queued tasks locked again", 2, countUnlocked(processInstanceIds));
+
+    }
+
+    private long countUnlocked(final List<String> processInstanceIds) {
+
+        return externalTaskService.createExternalTaskQuery()
+                .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
+                .notLocked()
+                .count();
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "shutdownWorker";
+        }
+
+        /**
+         * Processes one task at a time, further tasks are queued.
+         */
+        @Bean(name = "shutdownExternalTaskHandler")
+        public SpringExternalTaskHandler shutdownExternalTaskHandler() {
+
+            final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            executor.setMaxPoolSize(1);
+            executor.setThreadNamePrefix("Shutdown-Executor-");
+            executor.setDaemon(true);
+            executor.initialize();
+
+            final SpringExternalTaskHandler result = new SpringExternalTaskHandler();
+            result.setTaskExecutor(executor);
+            return result;
+
+        }
+
+    }
+
+}
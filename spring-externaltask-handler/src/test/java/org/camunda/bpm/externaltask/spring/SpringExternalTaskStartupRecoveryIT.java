@@ -0,0 +1,211 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.externaltask.ExternalTask;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.externaltask.AsyncProcessorTimeoutTimerCommand;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Simulates a restart: before the application is ready tasks are locked by
+ * this node's worker id like by a previous run. Once ready only the task not
+ * waiting for an asynchronous response is unlocked and processed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "camunda.bpm.externaltask-handler.startup-recovery=true")
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskStartupRecoveryIT {
+
+    private static String RECOVERY_PROCESS_DEFINITION_KEY = "StartupRecoveryProcess";
+
+    private static String SYNC_TOPIC = "SyncTopic";
+
+    private static String ASYNC_TOPIC = "AsyncTopic";
+
+    private static String UNREGISTERED_TOPIC = "UnregisteredTopic";
+
+    private static String WORKER_ID = "restartedWorker";
+
+    private static final List<String> processed = new LinkedList<>();
+
+    private static final List<String> requested = new LinkedList<>();
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    private PreviousRun previousRun;
+
+    @Test
+    public void testTasksWaitingForAsyncResponseKeptLocked() {
+
+        synchronized (processed) {
+            if (processed.isEmpty()) {
+                try {
+                    processed.wait(5000);
+                } catch (InterruptedException e) {
+                    Assert.fail("Interrupted");
+                }
+            }
+        }
+
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        Assert.assertEquals("task of previous run not processed",
+                previousRun.processInstanceIds.get(SYNC_TOPIC), processed.isEmpty() ? null : processed.get(0));
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(previousRun.processInstanceIds.get(SYNC_TOPIC))
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+
+        Assert.assertTrue("request sent again: " + requested, requested.isEmpty());
+        assertStillLocked(ASYNC_TOPIC);
+        assertStillLocked(UNREGISTERED_TOPIC);
+
+    }
+
+    private void assertStillLocked(final String topic) {
+
+        final ExternalTask task = externalTaskService.createExternalTaskQuery()
+                .processInstanceId(previousRun.processInstanceIds.get(topic))
+                .singleResult();
+        Assert.assertNotNull("task of " + topic + " completed", task);
+        Assert.assertEquals("task of " + topic + " unlocked", WORKER_ID, task.getWorkerId());
+        Assert.assertTrue("task of " + topic + " unlocked", task.getLockExpirationTime().after(new Date()));
+
+    }
+
+    /**
+     * Locks tasks by this node's worker id before the application is ready.
+     */
+    static class PreviousRun {
+
+        private final HashMap<String, String> processInstanceIds = new HashMap<>();
+
+        @Autowired
+        private RepositoryService repositoryService;
+
+        @Autowired
+        private RuntimeService runtimeService;
+
+        @Autowired
+        private ExternalTaskService externalTaskService;
+
+        @Autowired
+        private ProcessEngineConfigurationImpl processEngineConfiguration;
+
+        @Autowired
+        private ExternalTaskHandler externalTaskHandler;
+
+        @PostConstruct
+        public void lockTasks() {
+
+            for (String topic : new String[] { SYNC_TOPIC, ASYNC_TOPIC, UNREGISTERED_TOPIC }) {
+                final String processDefinitionKey = RECOVERY_PROCESS_DEFINITION_KEY + topic;
+                final BpmnModelInstance model = Bpmn.createExecutableProcess(processDefinitionKey)
+                        .startEvent()
+                        .serviceTask("Service").camundaExternalTask(topic)
+                        .endEvent()
+                        .done();
+                repositoryService.createDeployment()
+                        .addModelInstance(processDefinitionKey + ".bpmn", model)
+                        .deploy();
+                processInstanceIds.put(topic, runtimeService
+                        .startProcessInstanceByKey(processDefinitionKey)
+                        .getProcessInstanceId());
+
+                final List<LockedExternalTask> locked = externalTaskService
+                        .fetchAndLock(1, WORKER_ID)
+                        .topic(topic, 600000)
+                        .processDefinitionKey(processDefinitionKey)
+                        .execute();
+                Assert.assertEquals("tasks locked", 1, locked.size());
+                if (!SYNC_TOPIC.equals(topic)) {
+                    // the request was sent, the response is pending
+                    processEngineConfiguration.getCommandExecutorTxRequired().execute(
+                            new AsyncProcessorTimeoutTimerCommand(new Date(System.currentTimeMillis() + 600000),
+                                    locked.get(0).getId(), locked.get(0).getLockExpirationTime()));
+                }
+            }
+
+            externalTaskHandler
+                    .registerExternalTaskProcessor(RECOVERY_PROCESS_DEFINITION_KEY + SYNC_TOPIC, SYNC_TOPIC,
+                            (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                                synchronized (processed) {
+                                    processed.add(processInstanceId);
+                                    processed.notify();
+                                }
+                                return new HashMap<>();
+                            });
+            externalTaskHandler
+                    .<String, String>registerExternalTaskProcessor(RECOVERY_PROCESS_DEFINITION_KEY + ASYNC_TOPIC,
+                            ASYNC_TOPIC,
+                            (correlationId, processInstanceId, businessKey, activityId, executionId, variables,
+                                    retries) -> {
+                                synchronized (requested) {
+                                    requested.add(processInstanceId);
+                                }
+                                return null;
+                            },
+                            (processInstanceId, businessKey, activityId, executionId, retries, correlationId,
+                                    response, variablesToBeSet) -> response);
+
+        }
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return WORKER_ID;
+        }
+
+        @Bean
+        public PreviousRun previousRun() {
+            return new PreviousRun();
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Two handlers acting as two nodes of a cluster sharing a worker id: only the
+ * node holding the sweep lease sweeps, the other one takes over once the lease
+ * is released.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskSweepLeaseIT {
+
+    private static String SWEEP_LEASE = "externaltask.sweep";
+
+    private static String SWEEP_PROCESS_DEFINITION_KEY = "SweepLeaseProcess";
+
+    private static String SWEEP_TOPIC = "SweepLeaseTopic";
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private ManagementService managementService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    @Qualifier("nodeAExternalTaskHandler")
+    private SpringExternalTaskHandler nodeA;
+
+    @Autowired
+    @Qualifier("nodeBExternalTaskHandler")
+    private SpringExternalTaskHandler nodeB;
+
+    @Test
+    public void testOnlyLeaseHolderSweeps() throws Exception {
+
+        final BpmnModelInstance model = Bpmn.createExecutableProcess(SWEEP_PROCESS_DEFINITION_KEY)
+                .startEvent()
+                .serviceTask("Service").camundaExternalTask(SWEEP_TOPIC)
+                .endEvent()
+                .done();
+        repositoryService.createDeployment()
+                .addModelInstance(SWEEP_PROCESS_DEFINITION_KEY + ".bpmn", model)
+                .deploy();
+
+        managementService.deleteProperty(SWEEP_LEASE);
+
+        nodeA.fetchAndLockExternalTasks();
+        Assert.assertTrue("lease not taken by the first node", managementService.getProperties()
+                .get(SWEEP_LEASE)
+                .endsWith(":nodeA"));
+
+        // a "lost" task: waiting before the registration, which is not activated
+        final String waitingProcessInstanceId = runtimeService
+                .startProcessInstanceByKey(SWEEP_PROCESS_DEFINITION_KEY)
+                .getProcessInstanceId();
+
+        final AtomicInteger calls = new AtomicInteger();
+        nodeB.registerExternalTaskProcessor(SWEEP_PROCESS_DEFINITION_KEY, SWEEP_TOPIC,
+                (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                    calls.incrementAndGet();
+                    return new HashMap<>();
+                });
+
+        nodeB.fetchAndLockExternalTasks();
+        Thread.sleep(500);
+
+        Assert.assertEquals("swept without holding the lease", 0, calls.get());
+        Assert.assertEquals("task locked", 1, externalTaskService.createExternalTaskQuery()
+                .processInstanceId(waitingProcessInstanceId)
+                .notLocked()
+                .count());
+
+        // releasing the lease on shutdown lets the other node take over at once
+        nodeA.shutdown();
+        Assert.assertNull("lease not released on shutdown", managementService.getProperties()
+                .get(SWEEP_LEASE));
+
+        nodeB.fetchAndLockExternalTasks();
+
+        Assert.assertTrue("lease not taken over", managementService.getProperties()
+                .get(SWEEP_LEASE)
+                .endsWith(":nodeB"));
+        waitFor("not swept after taking over the lease", () -> historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(waitingProcessInstanceId)
+                .finished()
+                .count() == 1);
+        Assert.assertEquals("processor calls", 1, calls.get());
+
+    }
+
+    private static void waitFor(final String message, final BooleanSupplier condition) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()
+                && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(message, condition.getAsBoolean());
+
+    }
+
+    /**
+     * A node which fetches waiting tasks by its sweep only.
+     */
+    static class SweepingExternalTaskHandler extends SpringExternalTaskHandler {
+
+        private final String nodeName;
+
+        SweepingExternalTaskHandler(final String nodeName) {
+
+            this.nodeName = nodeName;
+
+        }
+
+        @Override
+        protected String getNodeId() {
+            return nodeName;
+        }
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "sweepLeaseWorker";
+        }
+
+        @Bean(name = "nodeAExternalTaskHandler")
+        public SpringExternalTaskHandler nodeAExternalTaskHandler() {
+            return new SweepingExternalTaskHandler("nodeA");
+        }
+
+        @Bean(name = "nodeBExternalTaskHandler")
+        public SpringExternalTaskHandler nodeBExternalTaskHandler() {
+            return new SweepingExternalTaskHandler("nodeB");
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package org.camunda.bpm.externaltask.spring;
 
 import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +17,8 @@ import org.camunda.bpm.engine.history.HistoricProcessInstance;
 import org.camunda.bpm.engine.history.HistoricVariableInstance;
 import org.camunda.bpm.engine.runtime.Incident;
 import org.camunda.bpm.externaltask.spi.BpmnErrorWithVariables;
+import org.camunda.bpm.externaltask.spi.ExternalTaskBatchResult;
+import org.camunda.bpm.externaltask.spi.ExternalTaskContext;
 import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
 import org.camunda.bpm.externaltask.spi.RetryableException;
 import org.junit.Assert;
@@ -583,6 +586,206 @@ public class SpringExternalTaskSyncProcessingIT {
                 
     }
 
+    @Test
+    public void testExternalTaskHandlingLazyVariables() {
+
+        final boolean[] processorCalled = new boolean[] { false };
+        
+        externalTaskHandler
+                .registerExternalTaskProcessor(
+                        TESTPROCESS_DEFINITION_KEY,
+                        TESTPROCESS_TESTTOPIC, 
+                        context -> lazyVariableProcessor(processorCalled, context));
+
+        String processInstanceId = null;
+        
+        synchronized (processorCalled) {
+            processInstanceId = runtimeService
+                    .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, variables("initA", "A", "initB", "B"))
+                    .getProcessInstanceId();
+
+            try {
+                processorCalled.wait(5000);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+        
+        Assert.assertTrue("processor not called!", processorCalled[0]);
+        
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+        
+        final Map<String, Object> variablesSetByProcessor = historyService.createHistoricVariableInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(HistoricVariableInstance::getName, HistoricVariableInstance::getValue));
+        Assert.assertEquals("Variable not set", variables("initA", "A1", "initB", "B"), variablesSetByProcessor);
+                
+    }
+
+    @Test
+    public void testExternalTaskHandlingBatch() {
+
+        final List<Integer> batchSizes = new LinkedList<>();
+        
+        externalTaskHandler
+                .registerExternalTaskBatchProcessor(
+                        TESTPROCESS_DEFINITION_KEY,
+                        TESTPROCESS_TESTTOPIC, 
+                        tasks -> batchProcessor(batchSizes, tasks))
+                .batchGatheringPeriod(1000);
+
+        final List<String> processInstanceIds = new LinkedList<>();
+        
+        synchronized (batchSizes) {
+            for (int i = 0; i < 3; ++i) {
+                processInstanceIds.add(runtimeService
+                        .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, variables("initA", "A" + i))
+                        .getProcessInstanceId());
+            }
+
+            try {
+                batchSizes.wait(5000);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+        
+        Assert.assertEquals("tasks not gathered into one batch!", Collections.singletonList(3), batchSizes);
+        
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            final String processInstanceId = processInstanceIds.get(i);
+            final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                    .processInstanceId(processInstanceId)
+                    .singleResult();
+            Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+            
+            final Map<String, Object> variablesSetByProcessor = historyService.createHistoricVariableInstanceQuery()
+                    .processInstanceId(processInstanceId)
+                    .list()
+                    .stream()
+                    .collect(Collectors.toMap(HistoricVariableInstance::getName, HistoricVariableInstance::getValue));
+            Assert.assertEquals("Variable not set", variables("initA", "A" + i + "1"), variablesSetByProcessor);
+        }
+                
+    }
+
+    @Test
+    public void testExternalTaskBatchBpmnError() {
+
+        final List<Integer> batchSizes = new LinkedList<>();
+
+        externalTaskHandler
+                .registerExternalTaskBatchProcessor(
+                        TESTPROCESS_DEFINITION_KEY,
+                        TESTPROCESS_TESTTOPIC,
+                        tasks -> throwBpmnErrorBatchProcessor(batchSizes, tasks))
+                .batchGatheringPeriod(1000);
+
+        final List<String> processInstanceIds = new LinkedList<>();
+
+        synchronized (batchSizes) {
+            for (int i = 0; i < 3; ++i) {
+                processInstanceIds.add(runtimeService
+                        .startProcessInstanceByKey(TESTPROCESS_DEFINITION_KEY, variables("initA", "A" + i))
+                        .getProcessInstanceId());
+            }
+
+            try {
+                batchSizes.wait(5000);
+            } catch (InterruptedException e) {
+                Assert.fail("Interrupted");
+            }
+        }
+
+        Assert.assertEquals("tasks not gathered into one batch!", Collections.singletonList(3), batchSizes);
+
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted");
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            final String processInstanceId = processInstanceIds.get(i);
+            final HistoricProcessInstance processInstance = historyService.createHistoricProcessInstanceQuery()
+                    .processInstanceId(processInstanceId)
+                    .singleResult();
+            Assert.assertTrue("Process not ended", processInstance.getEndTime() != null);
+            Assert.assertEquals("Incident created", 0, runtimeService.createIncidentQuery()
+                    .processInstanceId(processInstanceId)
+                    .count());
+
+            final Map<String, Object> variablesSetByProcessor = historyService.createHistoricVariableInstanceQuery()
+                    .processInstanceId(processInstanceId)
+                    .list()
+                    .stream()
+                    .collect(Collectors.toMap(HistoricVariableInstance::getName, HistoricVariableInstance::getValue));
+            Assert.assertEquals("BPMN Error not processed", variables("initA", "A" + i, "error", "failed"),
+                    variablesSetByProcessor);
+        }
+
+    }
+
+    private Map<String, ExternalTaskBatchResult> throwBpmnErrorBatchProcessor(List<Integer> batchSizes,
+            List<ExternalTaskContext> tasks) {
+
+        synchronized (batchSizes) {
+            batchSizes.add(tasks.size());
+            batchSizes.notify();
+        }
+
+        throw new BpmnError("error", "failed");
+
+    }
+
+    private Map<String, ExternalTaskBatchResult> batchProcessor(List<Integer> batchSizes,
+            List<ExternalTaskContext> tasks) {
+        
+        synchronized (batchSizes) {
+            batchSizes.add(tasks.size());
+            batchSizes.notify();
+        }
+        
+        final Map<String, ExternalTaskBatchResult> results = new HashMap<>();
+        tasks.forEach(task -> results.put(task.getExternalTaskId(),
+                ExternalTaskBatchResult.success(variables("initA", task.getVariable("initA") + "1"))));
+        return results;
+        
+    }
+
+    private Map<String, Object> lazyVariableProcessor(boolean[] result, ExternalTaskContext context)
+            throws BpmnError {
+        
+        result[0] = true;
+        
+        synchronized (result) {
+            result.notify();
+        }
+        
+        Assert.assertEquals(TESTPROCESS_TESTTOPIC, context.getTopic());
+        Assert.assertNull(context.getRetries());
+        
+        return variables("initA", context.getVariable("initA") + "1");
+        
+    }
+
     private Map<String, Object> fetchVariableProcessor(boolean[] result, String processInstanceId, Map<String, Object> variables)
             throws BpmnError {
         
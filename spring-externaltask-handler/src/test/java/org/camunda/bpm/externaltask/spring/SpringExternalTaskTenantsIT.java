@@ -0,0 +1,200 @@
+package org.camunda.bpm.externaltask.spring;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQuery;
+import org.camunda.bpm.engine.repository.DeploymentBuilder;
+import org.camunda.bpm.engine.runtime.ProcessInstantiationBuilder;
+import org.camunda.bpm.externaltask.spi.ExternalTaskHandler;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Tasks of several tenants are waiting while processors block, so the tasks
+ * locked show how a fetch was shared between the tenants.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ AsyncConfiguration.class })
+public class SpringExternalTaskTenantsIT {
+
+    private static String WEIGHTED_PROCESS_DEFINITION_KEY = "WeightedTenantsProcess";
+
+    private static String CAPPED_PROCESS_DEFINITION_KEY = "CappedTenantsProcess";
+
+    private static String TENANTS_TOPIC = "TenantsTopic";
+
+    private static String TENANT_A = "tenantA";
+
+    private static String TENANT_B = "tenantB";
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RuntimeService runtimeService;
+
+    @Autowired
+    private ExternalTaskService externalTaskService;
+
+    @Autowired
+    private ExternalTaskHandler externalTaskHandler;
+
+    @Test
+    public void testFetchSharedByWeight() throws Exception {
+
+        final List<String> processInstanceIds = new LinkedList<>();
+        processInstanceIds.addAll(startProcesses(WEIGHTED_PROCESS_DEFINITION_KEY, TENANT_A, 5));
+        processInstanceIds.addAll(startProcesses(WEIGHTED_PROCESS_DEFINITION_KEY, TENANT_B, 5));
+
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        externalTaskHandler
+                .registerExternalTaskProcessor(WEIGHTED_PROCESS_DEFINITION_KEY, TENANTS_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            running.countDown();
+                            finish.await(30, TimeUnit.SECONDS);
+                            return new HashMap<>();
+                        })
+                .tenant(TENANT_A, 3)
+                .tenant(TENANT_B, 1)
+                .maxInFlight(4)
+                .activate();
+
+        Assert.assertTrue("processor not called!", running.await(10, TimeUnit.SECONDS));
+        Thread.sleep(500);
+
+        // tenantA's backlog does not take tenantB's share
+        Assert.assertEquals("locked of " + TENANT_A, 3, query(processInstanceIds).tenantIdIn(TENANT_A).locked().count());
+        Assert.assertEquals("locked of " + TENANT_B, 1, query(processInstanceIds).tenantIdIn(TENANT_B).locked().count());
+
+        finish.countDown();
+        waitFor("tasks not processed", () -> query(processInstanceIds).count() == 0);
+
+    }
+
+    @Test
+    public void testInFlightCappedPerTenant() throws Exception {
+
+        final List<String> processInstanceIds = new LinkedList<>();
+        processInstanceIds.addAll(startProcesses(CAPPED_PROCESS_DEFINITION_KEY, TENANT_A, 3));
+        processInstanceIds.addAll(startProcesses(CAPPED_PROCESS_DEFINITION_KEY, TENANT_B, 3));
+        final List<String> withoutTenant = startProcesses(CAPPED_PROCESS_DEFINITION_KEY, null, 1);
+
+        final CountDownLatch running = new CountDownLatch(2);
+        final CountDownLatch finish = new CountDownLatch(1);
+        externalTaskHandler
+                .registerExternalTaskProcessor(CAPPED_PROCESS_DEFINITION_KEY, TENANTS_TOPIC,
+                        (processInstanceId, businessKey, activityId, executionId, variables, retries) -> {
+                            running.countDown();
+                            finish.await(30, TimeUnit.SECONDS);
+                            return new HashMap<>();
+                        })
+                .tenants(TENANT_A, TENANT_B)
+                .maxInFlightPerTenant(1)
+                .activate();
+
+        Assert.assertTrue("processors not called!", running.await(10, TimeUnit.SECONDS));
+        Thread.sleep(500);
+
+        Assert.assertEquals("locked of " + TENANT_A, 1, query(processInstanceIds).tenantIdIn(TENANT_A).locked().count());
+        Assert.assertEquals("locked of " + TENANT_B, 1, query(processInstanceIds).tenantIdIn(TENANT_B).locked().count());
+
+        // slots released by finished tasks are used for the remaining ones
+        finish.countDown();
+        waitFor("tasks not processed", () -> query(processInstanceIds).count() == 0);
+
+        Assert.assertEquals("task of a tenant not configured fetched", 1, query(withoutTenant).notLocked().count());
+
+    }
+
+    private ExternalTaskQuery query(final List<String> processInstanceIds) {
+
+        return externalTaskService.createExternalTaskQuery()
+                .processInstanceIdIn(processInstanceIds.toArray(new String[0]));
+
+    }
+
+    /**
+     * @param tenantId The tenant or null for tasks without tenant
+     */
+    private List<String> startProcesses(final String processDefinitionKey, final String tenantId, final int count) {
+
+        final BpmnModelInstance model = Bpmn.createExecutableProcess(processDefinitionKey)
+                .startEvent()
+                .serviceTask("Service").camundaExternalTask(TENANTS_TOPIC)
+                .endEvent()
+                .done();
+        final DeploymentBuilder deployment = repositoryService.createDeployment()
+                .addModelInstance(processDefinitionKey + ".bpmn", model);
+        if (tenantId != null) {
+            deployment.tenantId(tenantId);
+        }
+        deployment.deploy();
+
+        // waiting before the registration, so the first fetch shows the tenants' shares
+        final List<String> result = new LinkedList<>();
+        for (int i = 0; i < count; ++i) {
+            final ProcessInstantiationBuilder instantiation = runtimeService
+                    .createProcessInstanceByKey(processDefinitionKey);
+            if (tenantId == null) {
+                instantiation.processDefinitionWithoutTenantId();
+            } else {
+                instantiation.processDefinitionTenantId(tenantId);
+            }
+            result.add(instantiation
+                    .execute()
+                    .getProcessInstanceId());
+        }
+        return result;
+
+    }
+
+    private static void waitFor(final String message, final BooleanSupplier condition) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()
+                && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(message, condition.getAsBoolean());
+
+    }
+
+    @SpringBootApplication
+    static class TestCamundaApplication {
+    }
+
+    @TestConfiguration
+    @Order(0)
+    static class TestCamundaApplicationConfiguration {
+
+        @Bean(name = "workerId")
+        public String getWorkerId() {
+            return "tenantsWorker";
+        }
+
+    }
+
+}